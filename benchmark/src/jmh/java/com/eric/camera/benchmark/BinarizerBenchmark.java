@@ -0,0 +1,112 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.eric.camera.recognition.zxing.BinarizerBuffers;
+import com.eric.camera.recognition.zxing.ReusableGlobalHistogramBinarizer;
+import com.eric.camera.recognition.zxing.ReusableHybridBinarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HybridBinarizer与GlobalHistogramBinarizer：二值化本身的耗时和整次识别的耗时，
+ * 以及复用BinarizerBuffers的对应实现，配合-prof gc比较每次的分配量
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BinarizerBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({BenchmarkFrames.CONTENT_QR, BenchmarkFrames.CONTENT_EAN13})
+    public String content;
+
+    private LuminanceSource mSource;
+    private BitArray mRow;
+    private final MultiFormatReader mReader = new MultiFormatReader();
+    private final BinarizerBuffers mBuffers = new BinarizerBuffers();
+
+    @Setup
+    public void setup() throws IOException {
+        Frame frame = YuvRotator.rotateRoi(BenchmarkFrames.load(content, resolution));
+        // 线程复用的旋转缓冲会被后续调用覆盖，复制一份
+        mSource = new PlanarYUVLuminanceSource(frame.getData().clone(), frame.getWidth(), frame.getHeight(),
+                0, 0, frame.getWidth(), frame.getHeight(), false);
+        mRow = new BitArray(mSource.getWidth());
+    }
+
+    @Benchmark
+    public BitMatrix hybridMatrix() throws NotFoundException {
+        return new HybridBinarizer(mSource).getBlackMatrix();
+    }
+
+    @Benchmark
+    public BitMatrix globalHistogramMatrix() throws NotFoundException {
+        return new GlobalHistogramBinarizer(mSource).getBlackMatrix();
+    }
+
+    @Benchmark
+    public BitMatrix reusableHybridMatrix() throws NotFoundException {
+        return new ReusableHybridBinarizer(mSource, mBuffers).getBlackMatrix();
+    }
+
+    @Benchmark
+    public BitMatrix reusableGlobalHistogramMatrix() throws NotFoundException {
+        return new ReusableGlobalHistogramBinarizer(mSource, mBuffers).getBlackMatrix();
+    }
+
+    /**
+     * 一维码识别按行二值化，两种二值化器的getBlackRow实现相同
+     */
+    @Benchmark
+    public BitArray globalHistogramMiddleRow() throws NotFoundException {
+        return new GlobalHistogramBinarizer(mSource).getBlackRow(mSource.getHeight() / 2, mRow);
+    }
+
+    @Benchmark
+    public Result hybridDecode() {
+        return decode(new BinaryBitmap(new HybridBinarizer(mSource)));
+    }
+
+    @Benchmark
+    public Result globalHistogramDecode() {
+        return decode(new BinaryBitmap(new GlobalHistogramBinarizer(mSource)));
+    }
+
+    @Benchmark
+    public Result reusableHybridDecode() {
+        return decode(new BinaryBitmap(new ReusableHybridBinarizer(mSource, mBuffers)));
+    }
+
+    private Result decode(BinaryBitmap bitmap) {
+        try {
+            return mReader.decode(bitmap);
+        } catch (NotFoundException e) {
+            return null;
+        } finally {
+            mReader.reset();
+        }
+    }
+}
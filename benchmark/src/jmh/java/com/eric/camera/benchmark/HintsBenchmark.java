@@ -0,0 +1,71 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.eric.camera.recognition.zxing.ZxingDecoder;
+import com.eric.camera.recognition.zxing.ZxingFrameProcessor;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ZxingView.getHints()的全部码制与限定码制的识别耗时，包括扫描框中没有条码的情况
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HintsBenchmark {
+
+    /**
+     * all：getHints()的17种码制；qr：只识别二维码；oned：常见一维码
+     */
+    @Param({"all", "qr", "oned"})
+    public String formats;
+
+    @Param({"true", "false"})
+    public boolean tryHarder;
+
+    @Param({BenchmarkFrames.CONTENT_QR, BenchmarkFrames.CONTENT_EAN13, BenchmarkFrames.CONTENT_NONE})
+    public String content;
+
+    @Param({"1280x720"})
+    public String resolution;
+
+    private Frame mFrame;
+    private ZxingDecoder mDecoder;
+
+    @Setup
+    public void setup() throws IOException {
+        Frame rotated = YuvRotator.rotateRoi(BenchmarkFrames.load(content, resolution));
+        // 线程复用的旋转缓冲会被后续调用覆盖，复制一份
+        mFrame = new Frame(rotated.getData().clone(), rotated.getMetadata(), 0, 0,
+                rotated.getRoiLeft(), rotated.getRoiTop(), rotated.getRoiWidth(), rotated.getRoiHeight(), null);
+        Map<DecodeHintType, Object> hints = ZxingFrameProcessor.createHints(tryHarder);
+        if ("qr".equals(formats)) {
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, Arrays.asList(BarcodeFormat.QR_CODE));
+        } else if ("oned".equals(formats)) {
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, Arrays.asList(BarcodeFormat.EAN_13, BarcodeFormat.EAN_8,
+                    BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.CODE_128, BarcodeFormat.CODE_39));
+        }
+        mDecoder = new ZxingDecoder(hints);
+    }
+
+    @Benchmark
+    public Result decode() {
+        return mDecoder.decode(mFrame);
+    }
+}
@@ -0,0 +1,103 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.ByteBufferLuminanceSource;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.google.zxing.PlanarYUVLuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PlanarYUVLuminanceSource从整幅旋转后的图像中裁剪扫描框：getMatrix复制整块与getRow逐行读取；
+ * 以及ByteBufferLuminanceSource直接在原始方向的直接缓冲区上按旋转视图读取
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LuminanceSourceBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    private byte[] mUpright;
+    private int mUprightWidth;
+    private int mUprightHeight;
+    private Frame mFrame;
+    private byte[] mRow;
+    private Frame mDirectFrame;
+    private byte[] mMatrix;
+
+    @Setup
+    public void setup() throws IOException {
+        mFrame = BenchmarkFrames.load(BenchmarkFrames.CONTENT_QR, resolution);
+        mUprightWidth = mFrame.getMetadata().getUprightWidth();
+        mUprightHeight = mFrame.getMetadata().getUprightHeight();
+        mUpright = new byte[mUprightWidth * mUprightHeight];
+        YuvRotator.rotateY90(mFrame.getData(), mFrame.getWidth(), mFrame.getHeight(), mUpright);
+        mRow = new byte[mFrame.getRoiWidth()];
+        ByteBuffer direct = ByteBuffer.allocateDirect(mFrame.getRowStride() * mFrame.getHeight());
+        direct.put(mFrame.getData(), 0, direct.capacity());
+        direct.clear();
+        mDirectFrame = new Frame(direct, mFrame.getMetadata(), 0, 0,
+                mFrame.getRoiLeft(), mFrame.getRoiTop(), mFrame.getRoiWidth(), mFrame.getRoiHeight(), null);
+        mMatrix = new byte[mFrame.getRoiWidth() * mFrame.getRoiHeight()];
+    }
+
+    private PlanarYUVLuminanceSource createSource() {
+        return new PlanarYUVLuminanceSource(mUpright, mUprightWidth, mUprightHeight,
+                mFrame.getRoiLeft(), mFrame.getRoiTop(), mFrame.getRoiWidth(), mFrame.getRoiHeight(), false);
+    }
+
+    @Benchmark
+    public byte[] cropMatrix() {
+        return createSource().getMatrix();
+    }
+
+    @Benchmark
+    public void cropRows(Blackhole blackhole) {
+        PlanarYUVLuminanceSource source = createSource();
+        byte[] row = mRow;
+        for (int y = 0; y < source.getHeight(); y++) {
+            row = source.getRow(y, row);
+        }
+        blackhole.consume(row);
+    }
+
+    /**
+     * 扫描框刚好是整幅图像时getMatrix直接返回原数组，作为下限
+     */
+    @Benchmark
+    public byte[] fullFrameMatrix() {
+        return new PlanarYUVLuminanceSource(mUpright, mUprightWidth, mUprightHeight,
+                0, 0, mUprightWidth, mUprightHeight, false).getMatrix();
+    }
+
+    /**
+     * 直接缓冲区按旋转视图逐行读取到复用的行缓冲，不复制整帧也不分配
+     */
+    @Benchmark
+    public void directBufferRows(Blackhole blackhole) {
+        ByteBufferLuminanceSource source = ByteBufferLuminanceSource.fromFrame(mDirectFrame);
+        for (int y = 0; y < source.getHeight(); y++) {
+            source.getRow(y, mRow, 0);
+        }
+        blackhole.consume(mRow);
+    }
+
+    @Benchmark
+    public byte[] directBufferMatrix() {
+        return ByteBufferLuminanceSource.fromFrame(mDirectFrame).getMatrix(mMatrix);
+    }
+}
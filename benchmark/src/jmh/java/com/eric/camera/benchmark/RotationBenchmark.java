@@ -0,0 +1,70 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.RotatedLuminanceSource;
+import com.eric.camera.recognition.decode.YuvRotator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 竖屏预览数据的旋转：ProcessPreviewDataThread.run原来逐像素旋转整帧，现在只旋转扫描框（ROTATE_MODE_COPY）
+ * 或不旋转、按传感器方向读取（ROTATE_MODE_SENSOR）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RotationBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    private Frame mFrame;
+
+    @Setup
+    public void setup() throws IOException {
+        mFrame = BenchmarkFrames.load(BenchmarkFrames.CONTENT_QR, resolution);
+    }
+
+    /**
+     * 原来的实现：每帧新建缓冲并旋转整帧的Y分量
+     */
+    @Benchmark
+    public byte[] legacyFullFrame() {
+        byte[] src = mFrame.getData();
+        int width = mFrame.getWidth();
+        int height = mFrame.getHeight();
+        byte[] data = new byte[src.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                data[x * height + height - y - 1] = src[x + y * width];
+            }
+        }
+        return data;
+    }
+
+    /**
+     * ROTATE_MODE_COPY：只旋转扫描框，输出到线程复用的缓冲
+     */
+    @Benchmark
+    public byte[] rotateRoi() {
+        return YuvRotator.rotateRoi(mFrame).getData();
+    }
+
+    /**
+     * ROTATE_MODE_SENSOR：不复制，识别器按旋转后的坐标读取扫描框
+     */
+    @Benchmark
+    public byte[] sensorSourceMatrix() {
+        return RotatedLuminanceSource.fromFrame(mFrame).getMatrix();
+    }
+}
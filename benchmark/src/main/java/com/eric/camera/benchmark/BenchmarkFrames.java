@@ -0,0 +1,181 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameFile;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.MultiFormatWriter;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+/**
+ * 基准测试使用的预览帧。按以下顺序查找名为"内容_宽x高.frame"的录制帧（FrameFile格式）：
+ * 系统属性benchmark.frames指定的目录、资源目录frames/；都没有时生成一帧模拟的竖屏预览帧：
+ * 传感器方向为横向（旋转90度），背景带渐变和噪声，条码经过轻微模糊
+ */
+public final class BenchmarkFrames {
+
+    /**
+     * 二维码
+     */
+    public static final String CONTENT_QR = "qr";
+    /**
+     * EAN-13一维码
+     */
+    public static final String CONTENT_EAN13 = "ean13";
+    /**
+     * 没有条码，识别失败是预览中最常见的情况
+     */
+    public static final String CONTENT_NONE = "none";
+
+    public static final String FRAMES_PROPERTY = "benchmark.frames";
+    /*
+     * 扫描框边长占预览短边的比例，与RecognitionScanBoxView的默认扫描框接近
+     */
+    private static final float SCAN_BOX_RATIO = 0.6f;
+
+    private BenchmarkFrames() {
+    }
+
+    /**
+     * @param content    CONTENT_QR、CONTENT_EAN13 或 CONTENT_NONE
+     * @param resolution 传感器方向的分辨率，如"1280x720"
+     * @return 识别区域为居中扫描框的帧
+     */
+    public static Frame load(String content, String resolution) throws IOException {
+        String name = content + "_" + resolution + FrameFile.EXTENSION;
+        Frame frame = null;
+        String directory = System.getProperty(FRAMES_PROPERTY);
+        if (directory != null && new File(directory, name).isFile()) {
+            frame = FrameFile.read(new File(directory, name), 0);
+        } else {
+            InputStream in = BenchmarkFrames.class.getResourceAsStream("/frames/" + name);
+            if (in != null) {
+                try {
+                    frame = FrameFile.read(in, 0);
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        if (frame == null) {
+            String[] size = resolution.split("x");
+            frame = synthesize(content, Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+        }
+        return withScanBox(frame);
+    }
+
+    /**
+     * 识别区域设为居中的正方形扫描框
+     */
+    public static Frame withScanBox(Frame frame) {
+        int uprightWidth = frame.getMetadata().getUprightWidth();
+        int uprightHeight = frame.getMetadata().getUprightHeight();
+        int side = (int) (Math.min(uprightWidth, uprightHeight) * SCAN_BOX_RATIO);
+        return frame.withRoi((uprightWidth - side) / 2, (uprightHeight - side) / 2, side, side);
+    }
+
+    /**
+     * 生成一帧NV21数据，条码在预览方向上正放于扫描框中
+     */
+    public static Frame synthesize(String content, int width, int height) {
+        byte[] data = new byte[width * height * 3 / 2];
+        Random random = new Random(width * 31 + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int luma = 150 + 40 * x / width + 20 * y / height + random.nextInt(9) - 4;
+                data[y * width + x] = (byte) luma;
+            }
+        }
+        for (int i = width * height; i < data.length; i++) {
+            data[i] = (byte) 128;
+        }
+        BitMatrix matrix = encode(content);
+        if (matrix != null) {
+            // 预览方向为竖屏：宽为传感器的高
+            int uprightWidth = height;
+            int uprightHeight = width;
+            int side = (int) (Math.min(uprightWidth, uprightHeight) * SCAN_BOX_RATIO);
+            int barcodeWidth = side * 3 / 4;
+            int barcodeHeight = matrix.getHeight() == 1 ? barcodeWidth / 2 : barcodeWidth;
+            int left = (uprightWidth - barcodeWidth) / 2;
+            int top = (uprightHeight - barcodeHeight) / 2;
+            for (int uy = 0; uy < barcodeHeight; uy++) {
+                int my = uy * matrix.getHeight() / barcodeHeight;
+                for (int ux = 0; ux < barcodeWidth; ux++) {
+                    int mx = ux * matrix.getWidth() / barcodeWidth;
+                    // 预览坐标(ux, uy)对应传感器坐标(uy, height - 1 - ux)
+                    int sx = top + uy;
+                    int sy = height - 1 - (left + ux);
+                    data[sy * width + sx] = (byte) (matrix.get(mx, my) ? 40 + random.nextInt(9) : 215 + random.nextInt(9));
+                }
+            }
+            blur(data, width, height);
+        }
+        FrameMetadata metadata = new FrameMetadata(width, height, width, FrameMetadata.FORMAT_NV21, 90);
+        return new Frame(data, metadata, System.nanoTime(), 0,
+                0, 0, metadata.getUprightWidth(), metadata.getUprightHeight(), null);
+    }
+
+    /**
+     * 模拟帧中条码的码制
+     *
+     * @return BarcodeFormat名称，没有条码时为"NONE"
+     */
+    public static String getFormat(String content) {
+        if (CONTENT_QR.equals(content)) {
+            return BarcodeFormat.QR_CODE.name();
+        }
+        if (CONTENT_EAN13.equals(content)) {
+            return BarcodeFormat.EAN_13.name();
+        }
+        return "NONE";
+    }
+
+    /**
+     * 模拟帧中条码的内容，没有条码时为空字符串
+     */
+    public static String getText(String content) {
+        if (CONTENT_QR.equals(content)) {
+            return "https://github.com/FubinEric/AndroidLibrary";
+        }
+        if (CONTENT_EAN13.equals(content)) {
+            return "6901234567892";
+        }
+        return "";
+    }
+
+    private static BitMatrix encode(String content) {
+        if (CONTENT_NONE.equals(content)) {
+            return null;
+        }
+        try {
+            return new MultiFormatWriter().encode(getText(content), BarcodeFormat.valueOf(getFormat(content)), 0, 0);
+        } catch (WriterException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 3x3均值模糊，模拟镜头和对焦造成的边缘过渡
+     */
+    private static void blur(byte[] data, int width, int height) {
+        byte[] copy = new byte[width * height];
+        System.arraycopy(data, 0, copy, 0, copy.length);
+        for (int y = 1; y < height - 1; y++) {
+            for (int x = 1; x < width - 1; x++) {
+                int sum = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int offset = (y + dy) * width + x;
+                    sum += (copy[offset - 1] & 0xff) + (copy[offset] & 0xff) + (copy[offset + 1] & 0xff);
+                }
+                data[y * width + x] = (byte) (sum / 9);
+            }
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.eric.camera.benchmark;
+
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameFile;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.eric.camera.recognition.zxing.ZxingDecoder;
+import com.eric.camera.recognition.zxing.ZxingFrameProcessor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 识别回归测试：用ZxingView的识别逻辑（ZxingFrameProcessor，竖屏帧先旋转扫描框，与ROTATE_MODE_COPY相同）
+ * 识别标注的帧语料库，按码制和分辨率统计识别率、误识率和耗时分位数，输出JSON，可与基线比较。
+ * <p>
+ * 语料库目录中的corpus.tsv每行为：帧文件名、码制（BarcodeFormat名称，没有条码为NONE）、条码内容，以Tab分隔，#开头为注释。
+ * <p>
+ * 参数：语料库目录 [--output 结果.json] [--baseline 基线.json] [--passes 3] [--warmup 1] [--scan-box]
+ * [--no-try-harder] [--max-rate-drop 0.01] [--max-false-positive-increase 0.005] [--max-latency-increase 0.25]
+ * [--generate]（先在目录中生成模拟的语料库）。与基线相比退化时退出码为1
+ */
+public class CorpusHarness {
+
+    public static final String MANIFEST = "corpus.tsv";
+    public static final String FORMAT_NONE = "NONE";
+
+    /**
+     * 语料库中的一帧
+     */
+    static final class Entry {
+        final String file;
+        final String format;
+        final String text;
+        Frame frame;
+        String resolution;
+
+        Entry(String file, String format, String text) {
+            this.file = file;
+            this.format = format;
+            this.text = text;
+        }
+
+        boolean isPositive() {
+            return !FORMAT_NONE.equals(format);
+        }
+    }
+
+    /**
+     * 一组帧的统计
+     */
+    static final class Stats {
+        int attempts;
+        int positives;
+        int correct;
+        int misread;
+        int falsePositives;
+        long[] latencies = new long[64];
+        int latencyCount;
+
+        void add(Entry entry, DecodeResult result, long nanos) {
+            attempts++;
+            if (latencyCount == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = nanos;
+            boolean decoded = result != null && result.isSuccess();
+            if (entry.isPositive()) {
+                positives++;
+                if (decoded) {
+                    if (entry.format.equals(result.getFormat()) && entry.text.equals(result.getText())) {
+                        correct++;
+                    } else {
+                        misread++;
+                    }
+                }
+            } else if (decoded) {
+                falsePositives++;
+            }
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("attempts", (double) attempts);
+            json.put("positives", (double) positives);
+            json.put("correct", (double) correct);
+            json.put("misread", (double) misread);
+            json.put("falsePositives", (double) falsePositives);
+            json.put("decodeRate", positives == 0 ? null : (double) correct / positives);
+            json.put("falsePositiveRate", attempts == 0 ? null : (double) (misread + falsePositives) / attempts);
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("p50", percentileMillis(sorted, 50));
+            latency.put("p95", percentileMillis(sorted, 95));
+            latency.put("p99", percentileMillis(sorted, 99));
+            latency.put("max", sorted.length == 0 ? null : sorted[sorted.length - 1] / 1e6);
+            long sum = 0;
+            for (long value : sorted) {
+                sum += value;
+            }
+            latency.put("mean", sorted.length == 0 ? null : sum / 1e6 / sorted.length);
+            json.put("latencyMillis", latency);
+            return json;
+        }
+    }
+
+    private final File mDirectory;
+    private int mPasses = 3;
+    private int mWarmup = 1;
+    private boolean isScanBox = false;
+    private boolean isTryHarder = true;
+
+    public CorpusHarness(File directory) {
+        mDirectory = directory;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("usage: CorpusHarness <corpusDir> [--output file] [--baseline file] [--passes n]"
+                    + " [--warmup n] [--scan-box] [--no-try-harder] [--max-rate-drop r]"
+                    + " [--max-false-positive-increase r] [--max-latency-increase r] [--generate]");
+            System.exit(2);
+        }
+        CorpusHarness harness = new CorpusHarness(new File(args[0]));
+        String output = null;
+        String baseline = null;
+        double maxRateDrop = 0.01;
+        double maxFalsePositiveIncrease = 0.005;
+        double maxLatencyIncrease = 0.25;
+        boolean generate = false;
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if ("--output".equals(arg)) {
+                output = args[++i];
+            } else if ("--baseline".equals(arg)) {
+                baseline = args[++i];
+            } else if ("--passes".equals(arg)) {
+                harness.mPasses = Math.max(1, Integer.parseInt(args[++i]));
+            } else if ("--warmup".equals(arg)) {
+                harness.mWarmup = Math.max(0, Integer.parseInt(args[++i]));
+            } else if ("--scan-box".equals(arg)) {
+                harness.isScanBox = true;
+            } else if ("--no-try-harder".equals(arg)) {
+                harness.isTryHarder = false;
+            } else if ("--max-rate-drop".equals(arg)) {
+                maxRateDrop = Double.parseDouble(args[++i]);
+            } else if ("--max-false-positive-increase".equals(arg)) {
+                maxFalsePositiveIncrease = Double.parseDouble(args[++i]);
+            } else if ("--max-latency-increase".equals(arg)) {
+                maxLatencyIncrease = Double.parseDouble(args[++i]);
+            } else if ("--generate".equals(arg)) {
+                generate = true;
+            } else {
+                System.err.println("unknown argument: " + arg);
+                System.exit(2);
+            }
+        }
+        if (generate) {
+            generateSyntheticCorpus(harness.mDirectory);
+        }
+        Map<String, Object> report = harness.run();
+        String json = Json.write(report);
+        if (output != null) {
+            writeFile(new File(output), json);
+        } else {
+            System.out.print(json);
+        }
+        printSummary(report);
+        if (baseline != null) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> base = (Map<String, Object>) Json.parse(readFile(new File(baseline)));
+            List<String> regressions = compare(base, report, maxRateDrop, maxFalsePositiveIncrease, maxLatencyIncrease);
+            for (String regression : regressions) {
+                System.err.println("REGRESSION " + regression);
+            }
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * 识别整个语料库
+     *
+     * @return 报告，结构见toJson
+     */
+    public Map<String, Object> run() throws IOException {
+        List<Entry> entries = loadManifest(mDirectory);
+        long sequence = 0;
+        for (Entry entry : entries) {
+            Frame frame = FrameFile.read(new File(mDirectory, entry.file), sequence++);
+            entry.frame = isScanBox ? BenchmarkFrames.withScanBox(frame) : frame;
+            entry.resolution = frame.getWidth() + "x" + frame.getHeight();
+        }
+        ZxingFrameProcessor processor = new ZxingFrameProcessor(
+                new ZxingDecoder(ZxingFrameProcessor.createHints(isTryHarder)));
+        for (int pass = 0; pass < mWarmup; pass++) {
+            for (Entry entry : entries) {
+                decode(processor, entry.frame);
+            }
+        }
+        Stats overall = new Stats();
+        Map<String, Stats> byFormat = new TreeMap<>();
+        Map<String, Stats> byResolution = new TreeMap<>();
+        List<Object> failures = new ArrayList<>();
+        for (int pass = 0; pass < mPasses; pass++) {
+            for (Entry entry : entries) {
+                long start = System.nanoTime();
+                DecodeResult result = decode(processor, entry.frame);
+                long nanos = System.nanoTime() - start;
+                overall.add(entry, result, nanos);
+                statsFor(byFormat, entry.format).add(entry, result, nanos);
+                statsFor(byResolution, entry.resolution).add(entry, result, nanos);
+                if (pass == 0 && !isExpected(entry, result)) {
+                    Map<String, Object> failure = new LinkedHashMap<>();
+                    failure.put("file", entry.file);
+                    failure.put("expectedFormat", entry.format);
+                    failure.put("expectedText", entry.text);
+                    failure.put("actualFormat", result == null ? null : result.getFormat());
+                    failure.put("actualText", result == null ? null : result.getText());
+                    failures.add(failure);
+                }
+            }
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("corpus", mDirectory.getPath());
+        report.put("frames", (double) entries.size());
+        report.put("passes", (double) mPasses);
+        report.put("scanBox", isScanBox);
+        report.put("tryHarder", isTryHarder);
+        report.put("overall", overall.toJson());
+        report.put("byFormat", toJson(byFormat));
+        report.put("byResolution", toJson(byResolution));
+        report.put("failures", failures);
+        return report;
+    }
+
+    /**
+     * 与ProcessPreviewDataThread的ROTATE_MODE_COPY相同：先旋转识别区域再识别
+     */
+    private static DecodeResult decode(ZxingFrameProcessor processor, Frame frame) {
+        Frame target = frame.getRotation() != 0 ? YuvRotator.rotateRoi(frame) : frame;
+        try {
+            return processor.processFrame(target);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isExpected(Entry entry, DecodeResult result) {
+        boolean decoded = result != null && result.isSuccess();
+        if (!entry.isPositive()) {
+            return !decoded;
+        }
+        return decoded && entry.format.equals(result.getFormat()) && entry.text.equals(result.getText());
+    }
+
+    private static Stats statsFor(Map<String, Stats> groups, String key) {
+        Stats stats = groups.get(key);
+        if (stats == null) {
+            stats = new Stats();
+            groups.put(key, stats);
+        }
+        return stats;
+    }
+
+    private static Map<String, Object> toJson(Map<String, Stats> groups) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (Map.Entry<String, Stats> entry : groups.entrySet()) {
+            json.put(entry.getKey(), entry.getValue().toJson());
+        }
+        return json;
+    }
+
+    private static Double percentileMillis(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return null;
+        }
+        // 最近秩法
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1e6;
+    }
+
+    static List<Entry> loadManifest(File directory) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(new File(directory, MANIFEST)), "UTF-8"));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split("\t", 3);
+                if (columns.length < 2) {
+                    throw new IOException(MANIFEST + ":" + number + ": expected file<TAB>format<TAB>text");
+                }
+                entries.add(new Entry(columns[0], columns[1], columns.length > 2 ? columns[2] : ""));
+            }
+        } finally {
+            reader.close();
+        }
+        if (entries.isEmpty()) {
+            throw new IOException("empty corpus: " + directory);
+        }
+        return entries;
+    }
+
+    /**
+     * 与基线比较overall、byFormat、byResolution中两边都有的分组
+     *
+     * @return 退化项，为空表示通过
+     */
+    @SuppressWarnings("unchecked")
+    static List<String> compare(Map<String, Object> baseline, Map<String, Object> current, double maxRateDrop,
+                                double maxFalsePositiveIncrease, double maxLatencyIncrease) {
+        List<String> regressions = new ArrayList<>();
+        compareGroup("overall", (Map<String, Object>) baseline.get("overall"),
+                (Map<String, Object>) current.get("overall"), maxRateDrop, maxFalsePositiveIncrease,
+                maxLatencyIncrease, regressions);
+        for (String section : new String[]{"byFormat", "byResolution"}) {
+            Map<String, Object> baseGroups = (Map<String, Object>) baseline.get(section);
+            Map<String, Object> groups = (Map<String, Object>) current.get(section);
+            if (baseGroups == null || groups == null) {
+                continue;
+            }
+            for (Map.Entry<String, Object> entry : groups.entrySet()) {
+                compareGroup(section + "." + entry.getKey(), (Map<String, Object>) baseGroups.get(entry.getKey()),
+                        (Map<String, Object>) entry.getValue(), maxRateDrop, maxFalsePositiveIncrease,
+                        maxLatencyIncrease, regressions);
+            }
+        }
+        return regressions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void compareGroup(String name, Map<String, Object> base, Map<String, Object> current,
+                                     double maxRateDrop, double maxFalsePositiveIncrease, double maxLatencyIncrease,
+                                     List<String> regressions) {
+        if (base == null || current == null) {
+            return;
+        }
+        Double baseRate = number(base.get("decodeRate"));
+        Double rate = number(current.get("decodeRate"));
+        if (baseRate != null && rate != null && rate < baseRate - maxRateDrop) {
+            regressions.add(String.format("%s decodeRate %.4f -> %.4f", name, baseRate, rate));
+        }
+        Double baseFalse = number(base.get("falsePositiveRate"));
+        Double falseRate = number(current.get("falsePositiveRate"));
+        if (baseFalse != null && falseRate != null && falseRate > baseFalse + maxFalsePositiveIncrease) {
+            regressions.add(String.format("%s falsePositiveRate %.4f -> %.4f", name, baseFalse, falseRate));
+        }
+        Map<String, Object> baseLatency = (Map<String, Object>) base.get("latencyMillis");
+        Map<String, Object> latency = (Map<String, Object>) current.get("latencyMillis");
+        if (baseLatency != null && latency != null) {
+            Double baseP95 = number(baseLatency.get("p95"));
+            Double p95 = number(latency.get("p95"));
+            if (baseP95 != null && p95 != null && p95 > baseP95 * (1 + maxLatencyIncrease)) {
+                regressions.add(String.format("%s p95 %.2fms -> %.2fms", name, baseP95, p95));
+            }
+        }
+    }
+
+    private static Double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printSummary(Map<String, Object> report) {
+        System.err.println(String.format("%-24s %8s %10s %10s %9s %9s %9s", "group", "attempts", "decodeRate",
+                "falsePos", "p50(ms)", "p95(ms)", "p99(ms)"));
+        printRow("overall", (Map<String, Object>) report.get("overall"));
+        for (String section : new String[]{"byFormat", "byResolution"}) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) report.get(section)).entrySet()) {
+                printRow(entry.getKey(), (Map<String, Object>) entry.getValue());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printRow(String name, Map<String, Object> stats) {
+        Map<String, Object> latency = (Map<String, Object>) stats.get("latencyMillis");
+        System.err.println(String.format("%-24s %8s %10s %10s %9s %9s %9s", name, format(stats.get("attempts")),
+                format(stats.get("decodeRate")), format(stats.get("falsePositiveRate")),
+                format(latency.get("p50")), format(latency.get("p95")), format(latency.get("p99"))));
+    }
+
+    private static String format(Object value) {
+        if (!(value instanceof Number)) {
+            return "-";
+        }
+        double number = ((Number) value).doubleValue();
+        return number == Math.rint(number) ? String.valueOf((long) number) : String.format("%.3f", number);
+    }
+
+    /**
+     * 生成模拟的语料库：每种分辨率各一帧二维码、EAN-13和没有条码的帧，用于在没有录制帧时检查流程
+     */
+    static void generateSyntheticCorpus(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+        StringBuilder manifest = new StringBuilder("# file\tformat\ttext\n");
+        String[] contents = {BenchmarkFrames.CONTENT_QR, BenchmarkFrames.CONTENT_EAN13, BenchmarkFrames.CONTENT_NONE};
+        for (String resolution : new String[]{"640x480", "1280x720", "1920x1080"}) {
+            String[] size = resolution.split("x");
+            for (String content : contents) {
+                String name = content + "_" + resolution + FrameFile.EXTENSION;
+                FrameFile.write(BenchmarkFrames.synthesize(content, Integer.parseInt(size[0]), Integer.parseInt(size[1])),
+                        new File(directory, name));
+                manifest.append(name).append('\t').append(BenchmarkFrames.getFormat(content)).append('\t')
+                        .append(BenchmarkFrames.getText(content)).append('\n');
+            }
+        }
+        writeFile(new File(directory, MANIFEST), manifest.toString());
+    }
+
+    private static String readFile(File file) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[4096];
+            int count;
+            while ((count = reader.read(buffer)) > 0) {
+                text.append(buffer, 0, count);
+            }
+            return text.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void writeFile(File file, String text) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(text);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.eric.camera.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 最小的JSON读写，只用于识别报告和基线比较：对象为LinkedHashMap，数组为List，数字为Double
+ */
+final class Json {
+
+    private final String mText;
+    private int mPos;
+
+    private Json(String text) {
+        mText = text;
+    }
+
+    static Object parse(String text) {
+        Json json = new Json(text);
+        Object value = json.readValue();
+        json.skipWhitespace();
+        if (json.mPos != text.length()) {
+            throw json.error("unexpected trailing content");
+        }
+        return value;
+    }
+
+    static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(value, out, "");
+        return out.append('\n').toString();
+    }
+
+    private static void write(Object value, StringBuilder out, String indent) {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (map.isEmpty()) {
+                out.append("{}");
+                return;
+            }
+            out.append("{\n");
+            String inner = indent + "  ";
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!first) {
+                    out.append(",\n");
+                }
+                first = false;
+                out.append(inner);
+                writeString(String.valueOf(entry.getKey()), out);
+                out.append(": ");
+                write(entry.getValue(), out, inner);
+            }
+            out.append('\n').append(indent).append('}');
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            if (list.isEmpty()) {
+                out.append("[]");
+                return;
+            }
+            out.append("[\n");
+            String inner = indent + "  ";
+            for (int i = 0; i < list.size(); i++) {
+                if (i > 0) {
+                    out.append(",\n");
+                }
+                out.append(inner);
+                write(list.get(i), out, inner);
+            }
+            out.append('\n').append(indent).append(']');
+        } else if (value instanceof String) {
+            writeString((String) value, out);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isNaN(number) || Double.isInfinite(number)) {
+                out.append("null");
+            } else if (number == Math.rint(number) && Math.abs(number) < 1e15) {
+                out.append((long) number);
+            } else {
+                out.append(String.format(Locale.US, "%.4f", number));
+            }
+        } else {
+            out.append(value);
+        }
+    }
+
+    private static void writeString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (mPos >= mText.length()) {
+            throw error("unexpected end");
+        }
+        char c = mText.charAt(mPos);
+        if (c == '{') {
+            return readObject();
+        }
+        if (c == '[') {
+            return readArray();
+        }
+        if (c == '"') {
+            return readString();
+        }
+        if (mText.startsWith("true", mPos)) {
+            mPos += 4;
+            return Boolean.TRUE;
+        }
+        if (mText.startsWith("false", mPos)) {
+            mPos += 5;
+            return Boolean.FALSE;
+        }
+        if (mText.startsWith("null", mPos)) {
+            mPos += 4;
+            return null;
+        }
+        return readNumber();
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        mPos++;
+        skipWhitespace();
+        if (peek() == '}') {
+            mPos++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            map.put(key, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                mPos++;
+            } else {
+                expect('}');
+                return map;
+            }
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        mPos++;
+        skipWhitespace();
+        if (peek() == ']') {
+            mPos++;
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                mPos++;
+            } else {
+                expect(']');
+                return list;
+            }
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        StringBuilder out = new StringBuilder();
+        while (mPos < mText.length()) {
+            char c = mText.charAt(mPos++);
+            if (c == '"') {
+                return out.toString();
+            }
+            if (c != '\\') {
+                out.append(c);
+                continue;
+            }
+            char escaped = mText.charAt(mPos++);
+            switch (escaped) {
+                case 'n':
+                    out.append('\n');
+                    break;
+                case 'r':
+                    out.append('\r');
+                    break;
+                case 't':
+                    out.append('\t');
+                    break;
+                case 'b':
+                    out.append('\b');
+                    break;
+                case 'f':
+                    out.append('\f');
+                    break;
+                case 'u':
+                    out.append((char) Integer.parseInt(mText.substring(mPos, mPos + 4), 16));
+                    mPos += 4;
+                    break;
+                default:
+                    out.append(escaped);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    private Double readNumber() {
+        int start = mPos;
+        while (mPos < mText.length() && "+-0123456789.eE".indexOf(mText.charAt(mPos)) >= 0) {
+            mPos++;
+        }
+        if (start == mPos) {
+            throw error("unexpected character '" + mText.charAt(mPos) + "'");
+        }
+        return Double.valueOf(mText.substring(start, mPos));
+    }
+
+    private void skipWhitespace() {
+        while (mPos < mText.length() && Character.isWhitespace(mText.charAt(mPos))) {
+            mPos++;
+        }
+    }
+
+    private char peek() {
+        if (mPos >= mText.length()) {
+            throw error("unexpected end");
+        }
+        return mText.charAt(mPos);
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("expected '" + c + "'");
+        }
+        mPos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + mPos);
+    }
+}
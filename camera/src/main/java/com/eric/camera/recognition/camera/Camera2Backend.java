@@ -0,0 +1,740 @@
+package com.eric.camera.recognition.camera;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.hardware.camera2.params.MeteringRectangle;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.util.Range;
+import android.util.Size;
+import android.view.Display;
+import android.view.Surface;
+import android.view.SurfaceHolder;
+import android.view.WindowManager;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.eric.camera.recognition.manager.PreviewSizePolicy;
+import com.eric.camera.recognition.utils.RecognitionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Camera2后端：预览帧来自ImageReader的YUV_420_888图像，直接使用Y分量的直接缓冲区和行跨度，
+ * 不把整帧复制到Java堆。优先使用连续对焦，支持主动触发对焦和逐个设置CaptureRequest参数
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class Camera2Backend implements CameraBackend {
+
+    private static final String TAG = Camera2Backend.class.getSimpleName();
+    /*
+     * ImageReader最多同时持有的图像数：识别中1帧、队列中1帧、正在获取1帧
+     */
+    private static final int MAX_IMAGES = 3;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Map<CaptureRequest.Key<?>, Object> mRequestSettings = new LinkedHashMap<>();
+    private HandlerThread mBackgroundThread;
+    private Handler mBackgroundHandler;
+    private String mCameraId;
+    private int mSensorOrientation;
+    private boolean isFrontFacing;
+    private boolean hasContinuousFocus;
+    private Rect mActiveArraySize;
+    private int mMaxAfRegions;
+    private int mMaxAeRegions;
+    /*
+     * 对焦和测光区域，为null时使用整个画面
+     */
+    private MeteringRectangle[] mFocusRegions;
+    private Size mPreviewSize;
+    private Range<Integer> mFpsRange;
+    private PreviewSizePolicy mPreviewSizePolicy = new PreviewSizePolicy();
+    private int mScanBoxWidth;
+    private ImageReader mImageReader;
+    private ImageLease mImageLease;
+    private CameraDevice mCameraDevice;
+    private CameraCaptureSession mSession;
+    private CaptureRequest.Builder mRequestBuilder;
+    private Surface mPreviewSurface;
+    private boolean isTorchOn = false;
+    private boolean isFocusTriggered = false;
+    /*
+     * 上一次回调时连续对焦是否在移动镜头
+     */
+    private boolean isFocusMoving = false;
+    private FocusCallback mFocusCallback;
+    private ErrorCallback mErrorCallback;
+    /*
+     * 是否已经输出过预览，出错时据此判断能否回退到Camera1
+     */
+    private boolean isPreviewStarted = false;
+    private FrameCallback mFrameCallback;
+    private volatile FrameMetadata mFrameMetadata;
+    private long mFrameSequence = 0;
+
+    public Camera2Backend(Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    /**
+     * 是否支持Camera2：系统版本不低于5.0，且后置摄像头不是LEGACY级别（LEGACY设备上Camera2只是Camera1的封装）
+     *
+     * @param context 上下文
+     * @return 是否支持
+     */
+    public static boolean isSupported(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return false;
+        }
+        try {
+            CameraManager manager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+            String cameraId = findCamera(manager, FACING_BACK);
+            if (cameraId == null) {
+                return false;
+            }
+            Integer level = manager.getCameraCharacteristics(cameraId)
+                    .get(CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL);
+            return level != null && level != CameraCharacteristics.INFO_SUPPORTED_HARDWARE_LEVEL_LEGACY;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 设置预览尺寸和帧率范围的选择策略，在open之前调用
+     *
+     * @param previewSizePolicy 选择策略，为null时使用默认策略
+     * @param scanBoxWidth      扫描框宽度（屏幕像素），不大于0时选择与屏幕尺寸最接近的预览尺寸
+     */
+    public synchronized void setPreviewSizePolicy(PreviewSizePolicy previewSizePolicy, int scanBoxWidth) {
+        mPreviewSizePolicy = previewSizePolicy != null ? previewSizePolicy : new PreviewSizePolicy();
+        mScanBoxWidth = scanBoxWidth;
+    }
+
+    private static String findCamera(CameraManager manager, int facing) throws CameraAccessException {
+        int lensFacing = facing == FACING_FRONT ? CameraCharacteristics.LENS_FACING_FRONT : CameraCharacteristics.LENS_FACING_BACK;
+        for (String cameraId : manager.getCameraIdList()) {
+            Integer value = manager.getCameraCharacteristics(cameraId).get(CameraCharacteristics.LENS_FACING);
+            if (value != null && value == lensFacing) {
+                return cameraId;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean open(int facing) {
+        if (mBackgroundThread != null) {
+            return true;
+        }
+        CameraManager manager = (CameraManager) mContext.getSystemService(Context.CAMERA_SERVICE);
+        try {
+            mCameraId = findCamera(manager, facing);
+            if (mCameraId == null) {
+                return false;
+            }
+            CameraCharacteristics characteristics = manager.getCameraCharacteristics(mCameraId);
+            Integer orientation = characteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+            mSensorOrientation = orientation == null ? 90 : orientation;
+            isFrontFacing = facing == FACING_FRONT;
+            int[] afModes = characteristics.get(CameraCharacteristics.CONTROL_AF_AVAILABLE_MODES);
+            hasContinuousFocus = contains(afModes, CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_PICTURE);
+            mActiveArraySize = characteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+            Integer maxAfRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AF);
+            mMaxAfRegions = maxAfRegions == null ? 0 : maxAfRegions;
+            Integer maxAeRegions = characteristics.get(CameraCharacteristics.CONTROL_MAX_REGIONS_AE);
+            mMaxAeRegions = maxAeRegions == null ? 0 : maxAeRegions;
+            StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            mPreviewSize = findBestPreviewSize(map.getOutputSizes(ImageFormat.YUV_420_888));
+            mFpsRange = findBestFpsRange(characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES));
+
+            mBackgroundThread = new HandlerThread("Camera2Background");
+            mBackgroundThread.start();
+            mBackgroundHandler = new Handler(mBackgroundThread.getLooper());
+            mImageReader = ImageReader.newInstance(mPreviewSize.getWidth(), mPreviewSize.getHeight(),
+                    ImageFormat.YUV_420_888, MAX_IMAGES);
+            mImageReader.setOnImageAvailableListener(mImageAvailableListener, mBackgroundHandler);
+            mImageLease = new ImageLease(mImageReader);
+            manager.openCamera(mCameraId, mStateCallback, mBackgroundHandler);
+            return true;
+        } catch (CameraAccessException | SecurityException | IllegalArgumentException e) {
+            Log.e(TAG, e.toString(), e);
+            close();
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return mBackgroundThread != null;
+    }
+
+    @Override
+    public synchronized void startPreview(SurfaceHolder holder) {
+        if (mPreviewSize == null) {
+            return;
+        }
+        holder.setFixedSize(mPreviewSize.getWidth(), mPreviewSize.getHeight());
+        Surface surface = holder.getSurface();
+        if (surface == mPreviewSurface && mSession != null) {
+            return;
+        }
+        closeSession();
+        mPreviewSurface = surface;
+        createSession();
+    }
+
+    @Override
+    public synchronized void stopPreview() {
+        closeSession();
+        mPreviewSurface = null;
+    }
+
+    @Override
+    public synchronized void close() {
+        closeSession();
+        mPreviewSurface = null;
+        if (mCameraDevice != null) {
+            mCameraDevice.close();
+            mCameraDevice = null;
+        }
+        if (mImageReader != null) {
+            mImageReader.setOnImageAvailableListener(null, null);
+            // 识别线程可能还在读取图像的缓冲区，等所有帧归还后再关闭
+            mImageLease.close();
+            mImageReader = null;
+            mImageLease = null;
+        }
+        if (mBackgroundThread != null) {
+            mBackgroundThread.quitSafely();
+            mBackgroundThread = null;
+            mBackgroundHandler = null;
+        }
+        mFrameCallback = null;
+        mFocusCallback = null;
+        mErrorCallback = null;
+        isPreviewStarted = false;
+    }
+
+    @Override
+    public synchronized Point getPreviewSize() {
+        return mPreviewSize == null ? null : new Point(mPreviewSize.getWidth(), mPreviewSize.getHeight());
+    }
+
+    @Override
+    public FrameMetadata getFrameMetadata() {
+        return mFrameMetadata;
+    }
+
+    @Override
+    public synchronized void requestFrame(FrameCallback callback) {
+        mFrameCallback = callback;
+    }
+
+    /**
+     * 触发一次对焦：切换到自动对焦并发送AF_TRIGGER_START，对焦结束后恢复连续对焦
+     */
+    @Override
+    public synchronized boolean triggerAutoFocus() {
+        if (mSession == null || mRequestBuilder == null) {
+            return false;
+        }
+        try {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, CaptureRequest.CONTROL_AF_MODE_AUTO);
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER, CaptureRequest.CONTROL_AF_TRIGGER_START);
+            mSession.capture(mRequestBuilder.build(), mCaptureCallback, mBackgroundHandler);
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER, CaptureRequest.CONTROL_AF_TRIGGER_IDLE);
+            mSession.setRepeatingRequest(mRequestBuilder.build(), mCaptureCallback, mBackgroundHandler);
+            isFocusTriggered = true;
+            return true;
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, e.toString(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void cancelAutoFocus() {
+        if (!isFocusTriggered || mRequestBuilder == null) {
+            return;
+        }
+        isFocusTriggered = false;
+        restoreFocusMode();
+    }
+
+    @Override
+    public synchronized boolean isContinuousFocusSupported() {
+        return hasContinuousFocus;
+    }
+
+    @Override
+    public synchronized void setFocusCallback(FocusCallback callback) {
+        mFocusCallback = callback;
+    }
+
+    @Override
+    public synchronized void setErrorCallback(ErrorCallback callback) {
+        mErrorCallback = callback;
+    }
+
+    @Override
+    public synchronized void setTorch(boolean on) {
+        isTorchOn = on;
+        if (mRequestBuilder != null) {
+            mRequestBuilder.set(CaptureRequest.FLASH_MODE,
+                    on ? CaptureRequest.FLASH_MODE_TORCH : CaptureRequest.FLASH_MODE_OFF);
+            updateRepeatingRequest();
+        }
+    }
+
+    @Override
+    public synchronized void setFocusArea(Rect viewRect, int viewWidth, int viewHeight) {
+        Rect area = null;
+        if (viewRect != null && mActiveArraySize != null && mPreviewSize != null) {
+            area = RecognitionUtils.mapRectToCameraArea(viewRect, viewWidth, viewHeight, getFrameRotation());
+        }
+        mFocusRegions = area == null ? null : new MeteringRectangle[]{
+                new MeteringRectangle(RecognitionUtils.mapCameraAreaToActiveArray(area,
+                        mActiveArraySize.width(), mActiveArraySize.height(),
+                        mPreviewSize.getWidth(), mPreviewSize.getHeight()), MeteringRectangle.METERING_WEIGHT_MAX)};
+        if (mRequestBuilder != null) {
+            setFocusRegions();
+            updateRepeatingRequest();
+        }
+    }
+
+    /**
+     * 设置预览请求的参数，如曝光补偿、场景模式、帧率范围，重新打开预览后仍然生效
+     *
+     * @param key   参数
+     * @param value 值，为null时移除
+     */
+    public synchronized <T> void setRequestSetting(CaptureRequest.Key<T> key, T value) {
+        if (value == null) {
+            mRequestSettings.remove(key);
+        } else {
+            mRequestSettings.put(key, value);
+        }
+        if (mRequestBuilder != null) {
+            mRequestBuilder.set(key, value);
+            updateRepeatingRequest();
+        }
+    }
+
+    private void createSession() {
+        if (mCameraDevice == null || mPreviewSurface == null || mImageReader == null) {
+            // 摄像头打开后再创建
+            return;
+        }
+        try {
+            mCameraDevice.createCaptureSession(Arrays.asList(mPreviewSurface, mImageReader.getSurface()),
+                    mSessionCallback, mBackgroundHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, e.toString(), e);
+            postError(ERROR_CONFIGURE_FAILED);
+        }
+    }
+
+    private void closeSession() {
+        if (mSession != null) {
+            try {
+                mSession.close();
+            } catch (IllegalStateException e) {
+                // 摄像头已关闭
+            }
+            mSession = null;
+        }
+        mRequestBuilder = null;
+        isFocusTriggered = false;
+        isFocusMoving = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void startRepeatingRequest(CameraCaptureSession session) {
+        try {
+            mRequestBuilder = mCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
+            mRequestBuilder.addTarget(mPreviewSurface);
+            mRequestBuilder.addTarget(mImageReader.getSurface());
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, defaultFocusMode());
+            setFocusRegions();
+            if (mFpsRange != null) {
+                mRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, mFpsRange);
+            }
+            mRequestBuilder.set(CaptureRequest.FLASH_MODE,
+                    isTorchOn ? CaptureRequest.FLASH_MODE_TORCH : CaptureRequest.FLASH_MODE_OFF);
+            for (Map.Entry<CaptureRequest.Key<?>, Object> entry : mRequestSettings.entrySet()) {
+                mRequestBuilder.set((CaptureRequest.Key<Object>) entry.getKey(), entry.getValue());
+            }
+            mSession = session;
+            updateRepeatingRequest();
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, e.toString(), e);
+            postError(ERROR_CONFIGURE_FAILED);
+        }
+    }
+
+    private void updateRepeatingRequest() {
+        if (mSession == null) {
+            return;
+        }
+        try {
+            mSession.setRepeatingRequest(mRequestBuilder.build(), mCaptureCallback, mBackgroundHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, e.toString(), e);
+        }
+    }
+
+    /**
+     * 解除对焦锁定并恢复默认对焦模式
+     */
+    private void restoreFocusMode() {
+        mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER, CaptureRequest.CONTROL_AF_TRIGGER_CANCEL);
+        try {
+            mSession.capture(mRequestBuilder.build(), null, mBackgroundHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.e(TAG, e.toString(), e);
+        }
+        mRequestBuilder.set(CaptureRequest.CONTROL_AF_TRIGGER, CaptureRequest.CONTROL_AF_TRIGGER_IDLE);
+        mRequestBuilder.set(CaptureRequest.CONTROL_AF_MODE, defaultFocusMode());
+        updateRepeatingRequest();
+    }
+
+    private void setFocusRegions() {
+        if (mMaxAfRegions > 0) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AF_REGIONS, mFocusRegions);
+        }
+        if (mMaxAeRegions > 0) {
+            mRequestBuilder.set(CaptureRequest.CONTROL_AE_REGIONS, mFocusRegions);
+        }
+    }
+
+    private int defaultFocusMode() {
+        return hasContinuousFocus ? CaptureRequest.CONTROL_AF_MODE_CONTINUOUS_PICTURE : CaptureRequest.CONTROL_AF_MODE_AUTO;
+    }
+
+    /**
+     * 与CameraConfigurationManager相同，按扫描框内需要的像素选择尺寸
+     */
+    private Size findBestPreviewSize(Size[] sizes) {
+        Point screen = RecognitionUtils.getScreenResolution(mContext);
+        List<Point> points = new ArrayList<>();
+        for (Size size : sizes) {
+            points.add(new Point(size.getWidth(), size.getHeight()));
+        }
+        Point best = mPreviewSizePolicy.selectPreviewSize(points, screen.x, screen.y, mScanBoxWidth);
+        for (Size size : sizes) {
+            if (best != null && size.getWidth() == best.x && size.getHeight() == best.y) {
+                return size;
+            }
+        }
+        return sizes[0];
+    }
+
+    /**
+     * 按选择策略选择自动曝光的帧率范围
+     */
+    private Range<Integer> findBestFpsRange(Range<Integer>[] ranges) {
+        if (ranges == null) {
+            return null;
+        }
+        List<int[]> values = new ArrayList<>();
+        for (Range<Integer> range : ranges) {
+            values.add(new int[]{range.getLower(), range.getUpper()});
+        }
+        int[] best = mPreviewSizePolicy.selectFpsRange(values, 1);
+        return best == null ? null : Range.create(best[0], best[1]);
+    }
+
+    /**
+     * 帧需要顺时针旋转的角度，计算方式与Camera1的setDisplayOrientation相同
+     */
+    private int getFrameRotation() {
+        WindowManager wm = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
+        Display display = wm.getDefaultDisplay();
+        int degrees = display.getRotation() * 90;
+        if (isFrontFacing) {
+            return (360 - (mSensorOrientation + degrees) % 360) % 360;
+        }
+        return (mSensorOrientation - degrees + 360) % 360;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        if (values != null) {
+            for (int v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private final CameraDevice.StateCallback mStateCallback = new CameraDevice.StateCallback() {
+        @Override
+        public void onOpened(CameraDevice camera) {
+            synchronized (Camera2Backend.this) {
+                if (mBackgroundThread == null) {
+                    // 打开过程中已关闭
+                    camera.close();
+                    return;
+                }
+                mCameraDevice = camera;
+                createSession();
+            }
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+            fail(camera, ERROR_DISCONNECTED);
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int error) {
+            Log.e(TAG, "camera error " + error);
+            fail(camera, error);
+        }
+
+        /**
+         * 打开过程中或打开后出错，open已经返回，通过ErrorCallback通知
+         */
+        private void fail(CameraDevice camera, int error) {
+            camera.close();
+            synchronized (Camera2Backend.this) {
+                if (mBackgroundThread == null) {
+                    // 已关闭
+                    return;
+                }
+                if (mCameraDevice == camera) {
+                    mCameraDevice = null;
+                    closeSession();
+                }
+                postError(error);
+            }
+        }
+    };
+
+    private final CameraCaptureSession.StateCallback mSessionCallback = new CameraCaptureSession.StateCallback() {
+        @Override
+        public void onConfigured(CameraCaptureSession session) {
+            synchronized (Camera2Backend.this) {
+                if (mCameraDevice == null || mPreviewSurface == null) {
+                    session.close();
+                    return;
+                }
+                startRepeatingRequest(session);
+            }
+        }
+
+        @Override
+        public void onConfigureFailed(CameraCaptureSession session) {
+            Log.e(TAG, "capture session configure failed");
+            synchronized (Camera2Backend.this) {
+                if (mCameraDevice != null && mPreviewSurface != null) {
+                    // 预览已停止或已关闭时不算出错
+                    postError(ERROR_CONFIGURE_FAILED);
+                }
+            }
+        }
+    };
+
+    private final CameraCaptureSession.CaptureCallback mCaptureCallback = new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureCompleted(CameraCaptureSession session, CaptureRequest request, TotalCaptureResult result) {
+            synchronized (Camera2Backend.this) {
+                if (mRequestBuilder == null) {
+                    return;
+                }
+                isPreviewStarted = true;
+                Integer state = result.get(CaptureResult.CONTROL_AF_STATE);
+                if (!isFocusTriggered) {
+                    boolean moving = state != null && state == CaptureResult.CONTROL_AF_STATE_PASSIVE_SCAN;
+                    if (moving != isFocusMoving) {
+                        isFocusMoving = moving;
+                        postFocusMoving(moving);
+                    }
+                    return;
+                }
+                if (state == null || state == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED
+                        || state == CaptureResult.CONTROL_AF_STATE_NOT_FOCUSED_LOCKED) {
+                    // 对焦结束，解除锁定并恢复默认对焦模式
+                    isFocusTriggered = false;
+                    isFocusMoving = false;
+                    restoreFocusMode();
+                    postAutoFocus(state != null && state == CaptureResult.CONTROL_AF_STATE_FOCUSED_LOCKED);
+                }
+            }
+        }
+    };
+
+    private void postFocusMoving(final boolean moving) {
+        final FocusCallback callback = mFocusCallback;
+        if (callback == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFocusMoving(moving);
+            }
+        });
+    }
+
+    private void postError(final int error) {
+        final ErrorCallback callback = mErrorCallback;
+        if (callback == null) {
+            return;
+        }
+        final boolean previewStarted = isPreviewStarted;
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onError(error, previewStarted);
+            }
+        });
+    }
+
+        private void postAutoFocus(final boolean success) {
+        final FocusCallback callback = mFocusCallback;
+        if (callback == null) {
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onAutoFocus(success);
+            }
+        });
+    }
+
+    private final ImageReader.OnImageAvailableListener mImageAvailableListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            ImageLease lease;
+            synchronized (Camera2Backend.this) {
+                lease = mImageLease;
+            }
+            if (lease == null) {
+                return;
+            }
+            Image image = lease.acquire();
+            if (image == null) {
+                return;
+            }
+            final FrameCallback callback;
+            synchronized (Camera2Backend.this) {
+                callback = mFrameCallback;
+                mFrameCallback = null;
+            }
+            if (callback == null) {
+                lease.release(image);
+                return;
+            }
+            final Frame frame = createFrame(lease, image);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onFrame(frame);
+                }
+            });
+        }
+    };
+
+    /**
+     * Y分量即为灰度图，pixelStride恒为1，按rowStride读取；帧释放时归还Image
+     */
+    private Frame createFrame(final ImageLease lease, final Image image) {
+        Image.Plane plane = image.getPlanes()[0];
+        FrameMetadata metadata = mFrameMetadata;
+        if (metadata == null || metadata.getWidth() != image.getWidth() || metadata.getHeight() != image.getHeight()
+                || metadata.getRowStride() != plane.getRowStride() || metadata.getRotation() != getFrameRotation()) {
+            metadata = new FrameMetadata(image.getWidth(), image.getHeight(), plane.getRowStride(),
+                    FrameMetadata.FORMAT_Y8, getFrameRotation());
+            mFrameMetadata = metadata;
+        }
+        return new Frame(plane.getBuffer(), metadata, System.nanoTime(), mFrameSequence++,
+                0, 0, metadata.getUprightWidth(), metadata.getUprightHeight(), new Frame.Releaser() {
+            @Override
+            public void release(Frame frame) {
+                lease.release(image);
+            }
+        });
+    }
+
+    /**
+     * 记录ImageReader借出未归还的图像数，关闭时还有图像未归还则等最后一帧归还后再关闭，
+     * 避免识别线程读取已释放的缓冲区
+     */
+    private static final class ImageLease {
+
+        private final ImageReader mReader;
+        private int mOutstanding = 0;
+        private boolean isClosed = false;
+
+        ImageLease(ImageReader reader) {
+            mReader = reader;
+        }
+
+        /**
+         * 取最新的一帧图像
+         *
+         * @return 已关闭、没有新图像或借出的图像已达上限时为null
+         */
+        synchronized Image acquire() {
+            if (isClosed) {
+                return null;
+            }
+            Image image;
+            try {
+                image = mReader.acquireLatestImage();
+            } catch (IllegalStateException e) {
+                // 识别中的图像还没有归还，丢弃这一帧
+                return null;
+            }
+            if (image != null) {
+                mOutstanding++;
+            }
+            return image;
+        }
+
+        synchronized void release(Image image) {
+            image.close();
+            if (--mOutstanding == 0 && isClosed) {
+                mReader.close();
+            }
+        }
+
+        synchronized void close() {
+            if (isClosed) {
+                return;
+            }
+            isClosed = true;
+            if (mOutstanding == 0) {
+                mReader.close();
+            }
+        }
+    }
+}
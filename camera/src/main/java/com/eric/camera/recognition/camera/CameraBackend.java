@@ -0,0 +1,132 @@
+package com.eric.camera.recognition.camera;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.SurfaceHolder;
+
+import com.eric.camera.recognition.decode.FrameSource;
+
+/**
+ * 相机后端：打开相机、显示预览并按需提供预览帧，帧在主线程回调。RecognitionScanView内置的Camera1流程作为不支持时的回退
+ */
+public interface CameraBackend extends FrameSource {
+
+    /**
+     * 后置摄像头，与Camera.CameraInfo.CAMERA_FACING_BACK相同
+     */
+    int FACING_BACK = 0;
+    /**
+     * 前置摄像头，与Camera.CameraInfo.CAMERA_FACING_FRONT相同
+     */
+    int FACING_FRONT = 1;
+    /**
+     * 摄像头断开，如被其他应用占用
+     */
+    int ERROR_DISCONNECTED = -1;
+    /**
+     * 创建或配置预览失败
+     */
+    int ERROR_CONFIGURE_FAILED = -2;
+
+    /**
+     * 打开摄像头
+     *
+     * @param facing FACING_BACK 或 FACING_FRONT
+     * @return 是否找到并开始打开摄像头
+     */
+    boolean open(int facing);
+
+    boolean isOpen();
+
+    /**
+     * 关闭摄像头，释放所有资源
+     */
+    @Override
+    void close();
+
+    /**
+     * 开始预览，可在摄像头打开完成前调用
+     *
+     * @param holder 预览显示的SurfaceHolder
+     */
+    void startPreview(SurfaceHolder holder);
+
+    void stopPreview();
+
+    /**
+     * 预览尺寸（相机坐标系，宽大于高），打开前为null
+     */
+    Point getPreviewSize();
+
+    /**
+     * 触发一次对焦，结束后通过FocusCallback.onAutoFocus回调
+     *
+     * @return 是否已开始，预览还没开始时返回false
+     */
+    boolean triggerAutoFocus();
+
+    /**
+     * 取消触发的对焦，恢复默认对焦模式
+     */
+    void cancelAutoFocus();
+
+    /**
+     * 默认对焦模式是否为连续对焦
+     */
+    boolean isContinuousFocusSupported();
+
+    /**
+     * 设置对焦状态回调
+     *
+     * @param callback 为null时取消
+     */
+    void setFocusCallback(FocusCallback callback);
+
+    /**
+     * 设置出错回调。open返回true后打开和配置预览仍在异步进行，之后的失败通过该回调通知
+     *
+     * @param callback 为null时取消
+     */
+    void setErrorCallback(ErrorCallback callback);
+
+    void setTorch(boolean on);
+
+    /**
+     * 设置对焦和测光区域，重新打开预览后仍然生效
+     *
+     * @param viewRect   预览视图坐标系的矩形，为null时恢复整个画面
+     * @param viewWidth  预览视图宽度
+     * @param viewHeight 预览视图高度
+     */
+    void setFocusArea(Rect viewRect, int viewWidth, int viewHeight);
+
+    /**
+     * 对焦状态回调，在主线程调用
+     */
+    interface FocusCallback {
+
+        /**
+         * 连续对焦开始或停止移动镜头
+         */
+        void onFocusMoving(boolean moving);
+
+        /**
+         * triggerAutoFocus触发的对焦结束
+         *
+         * @param success 是否对焦成功
+         */
+        void onAutoFocus(boolean success);
+    }
+
+    /**
+     * 出错回调，在主线程调用，之后后端不能继续预览，需要关闭
+     */
+    interface ErrorCallback {
+
+        /**
+         * @param error          ERROR_DISCONNECTED、ERROR_CONFIGURE_FAILED或CameraDevice.StateCallback中的错误码
+         * @param previewStarted 出错前是否已经输出过预览，没有时可以改用Camera1重新打开
+         */
+        void onError(int error, boolean previewStarted);
+    }
+}
@@ -0,0 +1,243 @@
+package com.eric.camera.recognition.decode;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 直接读取ByteBuffer（直接缓冲区或堆缓冲区）的LuminanceSource，支持任意行宽和像素间隔，
+ * 可以裁剪和旋转视图，不复制数据。如Camera2 ImageReader的Y分量可以直接交给识别
+ */
+public class ByteBufferLuminanceSource extends LuminanceSource {
+
+    private final ByteBuffer buffer;
+    /*
+     * 堆缓冲区的数组，直接缓冲区为null
+     */
+    private final byte[] array;
+    private final int offset;
+    private final int rowStride;
+    private final int pixelStride;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+    private final int sensorWidth;
+    private final int sensorHeight;
+    private final int rotation;
+
+    /**
+     * @param buffer      原始方向的Y数据，读取时不改变position
+     * @param offset      第一个像素在缓冲区中的下标
+     * @param rowStride   每行字节数
+     * @param pixelStride 相邻像素的字节间隔，Y分量通常为1
+     * @param dataWidth   原始数据宽度（像素）
+     * @param dataHeight  原始数据高度
+     * @param left        识别区域在原始数据中的左边
+     * @param top         识别区域在原始数据中的上边
+     * @param width       识别区域在原始数据中的宽度
+     * @param height      识别区域在原始数据中的高度
+     * @param rotation    识别区域需要顺时针旋转的角度，0/90/180/270
+     */
+    public ByteBufferLuminanceSource(ByteBuffer buffer, int offset, int rowStride, int pixelStride,
+                                     int dataWidth, int dataHeight,
+                                     int left, int top, int width, int height, int rotation) {
+        super(isTransposed(rotation) ? height : width, isTransposed(rotation) ? width : height);
+        if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        if (pixelStride < 1 || rowStride < (dataWidth - 1) * pixelStride + 1) {
+            throw new IllegalArgumentException("Invalid stride: " + rowStride + "/" + pixelStride);
+        }
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotation);
+        }
+        // duplicate后修改position不影响其他线程读取同一个缓冲区
+        this.buffer = buffer.duplicate();
+        if (buffer.hasArray()) {
+            this.array = buffer.array();
+            this.offset = buffer.arrayOffset() + offset;
+        } else {
+            this.array = null;
+            this.offset = offset;
+        }
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.sensorWidth = width;
+        this.sensorHeight = height;
+        this.rotation = (rotation % 360 + 360) % 360;
+    }
+
+    private ByteBufferLuminanceSource(ByteBufferLuminanceSource source,
+                                      int left, int top, int width, int height, int rotation) {
+        super(isTransposed(rotation) ? height : width, isTransposed(rotation) ? width : height);
+        this.buffer = source.buffer.duplicate();
+        this.array = source.array;
+        this.offset = source.offset;
+        this.rowStride = source.rowStride;
+        this.pixelStride = source.pixelStride;
+        this.dataWidth = source.dataWidth;
+        this.dataHeight = source.dataHeight;
+        this.left = left;
+        this.top = top;
+        this.sensorWidth = width;
+        this.sensorHeight = height;
+        this.rotation = (rotation % 360 + 360) % 360;
+    }
+
+    /**
+     * 按帧的识别区域（预览方向坐标）创建，帧数据可以是byte[]或ByteBuffer
+     *
+     * @param frame 帧
+     * @return 预览方向的识别区域
+     */
+    public static ByteBufferLuminanceSource fromFrame(Frame frame) {
+        ByteBuffer buffer = frame.hasArray() ? ByteBuffer.wrap(frame.getData()) : frame.getBuffer();
+        return new ByteBufferLuminanceSource(buffer, 0, frame.getRowStride(), 1, frame.getWidth(), frame.getHeight(),
+                frame.getSensorRoiLeft(), frame.getSensorRoiTop(),
+                frame.getSensorRoiWidth(), frame.getSensorRoiHeight(), frame.getRotation());
+    }
+
+    private static boolean isTransposed(int rotation) {
+        return ((rotation % 360 + 360) % 360) % 180 != 0;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        getRow(y, row, 0);
+        return row;
+    }
+
+    /**
+     * 将视图中的第y行写入调用者的缓冲，不分配内存
+     *
+     * @param y      行号
+     * @param dest   目标缓冲，从offset起至少getWidth()字节
+     * @param offset 写入位置
+     */
+    public void getRow(int y, byte[] dest, int offset) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        copyRow(y, dest, offset);
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        return getMatrix(null);
+    }
+
+    /**
+     * 将整个视图写入调用者的缓冲，缓冲不足时才分配
+     *
+     * @param matrix 目标缓冲，可为null
+     * @return 写入的缓冲，紧密排列的getWidth() * getHeight()字节
+     */
+    public byte[] getMatrix(byte[] matrix) {
+        int width = getWidth();
+        int height = getHeight();
+        if (matrix == null || matrix.length < width * height) {
+            matrix = new byte[width * height];
+        }
+        for (int y = 0; y < height; y++) {
+            copyRow(y, matrix, y * width);
+        }
+        return matrix;
+    }
+
+    /**
+     * 同一行在原始数据中的下标是等差的；不旋转且像素连续时整行批量读取
+     */
+    private void copyRow(int y, byte[] dest, int destOffset) {
+        int width = getWidth();
+        int index = indexOf(0, y);
+        int step = width > 1 ? indexOf(1, y) - index : 0;
+        if (step == 1) {
+            if (array != null) {
+                System.arraycopy(array, index, dest, destOffset, width);
+            } else {
+                buffer.position(index);
+                buffer.get(dest, destOffset, width);
+            }
+            return;
+        }
+        if (array != null) {
+            for (int x = 0; x < width; x++) {
+                dest[destOffset + x] = array[index];
+                index += step;
+            }
+        } else {
+            for (int x = 0; x < width; x++) {
+                dest[destOffset + x] = buffer.get(index);
+                index += step;
+            }
+        }
+    }
+
+    /**
+     * 视图坐标(x, y)对应的缓冲区下标，堆缓冲区为数组下标
+     */
+    private int indexOf(int x, int y) {
+        return offset + (top + sensorY(x, y)) * rowStride + (left + sensorX(x, y)) * pixelStride;
+    }
+
+    private int sensorX(int x, int y) {
+        switch (rotation) {
+            case 90:
+                return y;
+            case 180:
+                return sensorWidth - 1 - x;
+            case 270:
+                return sensorWidth - 1 - y;
+            default:
+                return x;
+        }
+    }
+
+    private int sensorY(int x, int y) {
+        switch (rotation) {
+            case 90:
+                return sensorHeight - 1 - x;
+            case 180:
+                return sensorHeight - 1 - y;
+            case 270:
+                return x;
+            default:
+                return y;
+        }
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int cropLeft, int cropTop, int cropWidth, int cropHeight) {
+        // 视图中的矩形换算回原始数据中的矩形
+        int ax = sensorX(cropLeft, cropTop);
+        int ay = sensorY(cropLeft, cropTop);
+        int bx = sensorX(cropLeft + cropWidth - 1, cropTop + cropHeight - 1);
+        int by = sensorY(cropLeft + cropWidth - 1, cropTop + cropHeight - 1);
+        return new ByteBufferLuminanceSource(this, left + Math.min(ax, bx), top + Math.min(ay, by),
+                Math.abs(ax - bx) + 1, Math.abs(ay - by) + 1, rotation);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new ByteBufferLuminanceSource(this, left, top, sensorWidth, sensorHeight, rotation + 270);
+    }
+}
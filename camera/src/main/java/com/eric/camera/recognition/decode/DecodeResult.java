@@ -0,0 +1,156 @@
+package com.eric.camera.recognition.decode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一帧的识别结果，多码识别时包含同一帧中的全部结果
+ */
+public class DecodeResult {
+
+    private final String text;
+    private final String format;
+    private final List<DecodeResult> results;
+    private final FrameQuality quality;
+    private final boolean skipped;
+    private final long decodeTimeNanos;
+    private final long frameTimestamp;
+    private final long sentNanos;
+
+    /**
+     * @param text   识别内容，识别失败为null
+     * @param format 码制名称，未知时为null
+     */
+    public DecodeResult(String text, String format) {
+        this(text, format, null, null, false, 0, 0, 0);
+    }
+
+    private DecodeResult(List<DecodeResult> results) {
+        this(results.isEmpty() ? null : results.get(0).getText(),
+                results.isEmpty() ? null : results.get(0).getFormat(),
+                Collections.unmodifiableList(new ArrayList<>(results)), null, false, 0, 0, 0);
+    }
+
+    private DecodeResult(String text, String format, List<DecodeResult> results, FrameQuality quality,
+                         boolean skipped, long decodeTimeNanos, long frameTimestamp, long sentNanos) {
+        this.text = text;
+        this.format = format;
+        this.results = results;
+        this.quality = quality;
+        this.skipped = skipped;
+        this.decodeTimeNanos = decodeTimeNanos;
+        this.frameTimestamp = frameTimestamp;
+        this.sentNanos = sentNanos;
+    }
+
+    /**
+     * 同一帧中的多个识别结果，text和format取第一个结果
+     *
+     * @param results 识别结果
+     * @return 合并后的结果
+     */
+    public static DecodeResult of(List<DecodeResult> results) {
+        return new DecodeResult(results);
+    }
+
+    /**
+     * 附带帧处理信息的副本
+     *
+     * @param quality         帧质量评分，可为null
+     * @param skipped         是否因帧质量不达标跳过了识别
+     * @param decodeTimeNanos 识别线程处理这一帧的耗时（纳秒）
+     * @return 识别结果
+     */
+    public DecodeResult withFrameStats(FrameQuality quality, boolean skipped, long decodeTimeNanos) {
+        return new DecodeResult(text, format, results, quality, skipped, decodeTimeNanos, frameTimestamp, sentNanos);
+    }
+
+    /**
+     * 附带帧到达时间和结果发出时间的副本，用于统计各阶段耗时
+     *
+     * @param frameTimestamp 帧到达时间（System.nanoTime）
+     * @param sentNanos      识别线程发出结果的时间（System.nanoTime）
+     * @return 识别结果
+     */
+    public DecodeResult withTimestamps(long frameTimestamp, long sentNanos) {
+        return new DecodeResult(text, format, results, quality, skipped, decodeTimeNanos, frameTimestamp, sentNanos);
+    }
+
+    /**
+     * 帧质量评分，未开启帧质量门限时为null
+     */
+    public FrameQuality getQuality() {
+        return quality;
+    }
+
+    /**
+     * 是否因帧质量不达标跳过了识别
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * 识别线程处理这一帧的耗时（纳秒）
+     */
+    public long getDecodeTimeNanos() {
+        return decodeTimeNanos;
+    }
+
+    /**
+     * 帧到达时间（System.nanoTime），未记录时为0
+     */
+    public long getFrameTimestamp() {
+        return frameTimestamp;
+    }
+
+    /**
+     * 识别线程发出结果的时间（System.nanoTime），未记录时为0
+     */
+    public long getSentNanos() {
+        return sentNanos;
+    }
+
+    /**
+     * 是否是多码识别的结果
+     */
+    public boolean isMultiple() {
+        return results != null;
+    }
+
+    /**
+     * 同一帧中的全部识别结果，单码识别时只包含自身
+     */
+    public List<DecodeResult> getResults() {
+        return results != null ? results : Collections.singletonList(this);
+    }
+
+    /**
+     * 同一帧中全部识别结果的内容
+     */
+    public List<String> getTexts() {
+        List<String> texts = new ArrayList<>();
+        for (DecodeResult result : getResults()) {
+            if (result.isSuccess()) {
+                texts.add(result.getText());
+            }
+        }
+        return texts;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * 是否识别成功
+     */
+    public boolean isSuccess() {
+        return text != null && !text.isEmpty();
+    }
+}
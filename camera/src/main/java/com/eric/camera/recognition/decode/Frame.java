@@ -0,0 +1,258 @@
+package com.eric.camera.recognition.decode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 一帧预览数据，识别完成后需调用release()归还缓冲区。
+ * 数据可以是堆上的byte[]，也可以是ByteBuffer（如Camera2 ImageReader的Y分量直接缓冲区），后者getData()为null
+ */
+public class Frame {
+
+    /**
+     * 帧释放回调，用于归还缓冲区
+     */
+    public interface Releaser {
+        void release(Frame frame);
+    }
+
+    private final byte[] data;
+    private final ByteBuffer buffer;
+    private final FrameMetadata metadata;
+    private final long timestamp;
+    private final long sequence;
+    private final int roiLeft;
+    private final int roiTop;
+    private final int roiWidth;
+    private final int roiHeight;
+    private final int sensorRoiLeft;
+    private final int sensorRoiTop;
+    private final int sensorRoiWidth;
+    private final int sensorRoiHeight;
+    private Releaser releaser;
+
+    /**
+     * @param data      帧数据
+     * @param metadata  帧的不变信息
+     * @param timestamp 到达时间（纳秒）
+     * @param sequence  帧序号
+     * @param roiLeft   识别区域左边（预览方向坐标）
+     * @param roiTop    识别区域上边（预览方向坐标）
+     * @param roiWidth  识别区域宽度
+     * @param roiHeight 识别区域高度
+     * @param releaser  释放回调，可为null
+     */
+    public Frame(byte[] data, FrameMetadata metadata, long timestamp, long sequence,
+                 int roiLeft, int roiTop, int roiWidth, int roiHeight, Releaser releaser) {
+        this(data, null, metadata, timestamp, sequence, roiLeft, roiTop, roiWidth, roiHeight, releaser);
+    }
+
+    /**
+     * @param buffer    帧数据，从下标0开始，读取时不改变position
+     * @param metadata  帧的不变信息
+     * @param timestamp 到达时间（纳秒）
+     * @param sequence  帧序号
+     * @param roiLeft   识别区域左边（预览方向坐标）
+     * @param roiTop    识别区域上边（预览方向坐标）
+     * @param roiWidth  识别区域宽度
+     * @param roiHeight 识别区域高度
+     * @param releaser  释放回调，可为null
+     */
+    public Frame(ByteBuffer buffer, FrameMetadata metadata, long timestamp, long sequence,
+                 int roiLeft, int roiTop, int roiWidth, int roiHeight, Releaser releaser) {
+        this(buffer.hasArray() && buffer.arrayOffset() == 0 ? buffer.array() : null, buffer,
+                metadata, timestamp, sequence, roiLeft, roiTop, roiWidth, roiHeight, releaser);
+    }
+
+    private Frame(byte[] data, ByteBuffer buffer, FrameMetadata metadata, long timestamp, long sequence,
+                  int roiLeft, int roiTop, int roiWidth, int roiHeight, Releaser releaser) {
+        this.data = data;
+        this.buffer = buffer;
+        this.metadata = metadata;
+        this.timestamp = timestamp;
+        this.sequence = sequence;
+        // 识别区域限制在图像范围内，区域为空时使用整幅图像
+        int uprightWidth = metadata.getUprightWidth();
+        int uprightHeight = metadata.getUprightHeight();
+        int left = Math.max(roiLeft, 0);
+        int top = Math.max(roiTop, 0);
+        int right = Math.min(roiLeft + roiWidth, uprightWidth);
+        int bottom = Math.min(roiTop + roiHeight, uprightHeight);
+        if (right <= left || bottom <= top) {
+            left = 0;
+            top = 0;
+            right = uprightWidth;
+            bottom = uprightHeight;
+        }
+        this.roiLeft = left;
+        this.roiTop = top;
+        this.roiWidth = right - left;
+        this.roiHeight = bottom - top;
+        // 识别区域换算到原始数据方向
+        int width = metadata.getWidth();
+        int height = metadata.getHeight();
+        switch (metadata.getRotation()) {
+            case 90:
+                this.sensorRoiLeft = top;
+                this.sensorRoiTop = height - right;
+                break;
+            case 180:
+                this.sensorRoiLeft = width - right;
+                this.sensorRoiTop = height - bottom;
+                break;
+            case 270:
+                this.sensorRoiLeft = width - bottom;
+                this.sensorRoiTop = left;
+                break;
+            default:
+                this.sensorRoiLeft = left;
+                this.sensorRoiTop = top;
+                break;
+        }
+        boolean transposed = metadata.getRotation() % 180 != 0;
+        this.sensorRoiWidth = transposed ? roiHeight : roiWidth;
+        this.sensorRoiHeight = transposed ? roiWidth : roiHeight;
+        this.releaser = releaser;
+    }
+
+    /**
+     * @return 堆上的帧数据，数据在直接缓冲区中时为null
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    /**
+     * @return 帧数据所在的ByteBuffer，使用byte[]创建时为null
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * 帧数据是否可以通过getData()直接读取
+     */
+    public boolean hasArray() {
+        return data != null;
+    }
+
+    /**
+     * 使用新的识别区域，共用帧数据，释放回调转移到新的帧上
+     *
+     * @param roiLeft   识别区域左边（预览方向坐标）
+     * @param roiTop    识别区域上边（预览方向坐标）
+     * @param roiWidth  识别区域宽度
+     * @param roiHeight 识别区域高度
+     * @return 新的帧
+     */
+    public Frame withRoi(int roiLeft, int roiTop, int roiWidth, int roiHeight) {
+        Releaser r;
+        synchronized (this) {
+            r = releaser;
+            releaser = null;
+        }
+        return new Frame(data, buffer, metadata, timestamp, sequence, roiLeft, roiTop, roiWidth, roiHeight, r);
+    }
+
+    /**
+     * 使用新的识别区域的视图，共用帧数据（byte[]或ByteBuffer），不负责释放
+     *
+     * @param roiLeft   识别区域左边（预览方向坐标）
+     * @param roiTop    识别区域上边（预览方向坐标）
+     * @param roiWidth  识别区域宽度
+     * @param roiHeight 识别区域高度
+     * @return 新的帧，释放它不会归还缓冲区
+     */
+    public Frame viewRoi(int roiLeft, int roiTop, int roiWidth, int roiHeight) {
+        return new Frame(data, buffer, metadata, timestamp, sequence, roiLeft, roiTop, roiWidth, roiHeight, null);
+    }
+
+    public FrameMetadata getMetadata() {
+        return metadata;
+    }
+
+    public int getWidth() {
+        return metadata.getWidth();
+    }
+
+    public int getHeight() {
+        return metadata.getHeight();
+    }
+
+    public int getRowStride() {
+        return metadata.getRowStride();
+    }
+
+    public int getFormat() {
+        return metadata.getFormat();
+    }
+
+    public int getRotation() {
+        return metadata.getRotation();
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getRoiLeft() {
+        return roiLeft;
+    }
+
+    public int getRoiTop() {
+        return roiTop;
+    }
+
+    public int getRoiWidth() {
+        return roiWidth;
+    }
+
+    public int getRoiHeight() {
+        return roiHeight;
+    }
+
+    /**
+     * 识别区域在原始数据中的左边
+     */
+    public int getSensorRoiLeft() {
+        return sensorRoiLeft;
+    }
+
+    /**
+     * 识别区域在原始数据中的上边
+     */
+    public int getSensorRoiTop() {
+        return sensorRoiTop;
+    }
+
+    /**
+     * 识别区域在原始数据中的宽度
+     */
+    public int getSensorRoiWidth() {
+        return sensorRoiWidth;
+    }
+
+    /**
+     * 识别区域在原始数据中的高度
+     */
+    public int getSensorRoiHeight() {
+        return sensorRoiHeight;
+    }
+
+    /**
+     * 释放帧，重复调用无副作用
+     */
+    public void release() {
+        Releaser r;
+        synchronized (this) {
+            r = releaser;
+            releaser = null;
+        }
+        if (r != null) {
+            r.release(this);
+        }
+    }
+}
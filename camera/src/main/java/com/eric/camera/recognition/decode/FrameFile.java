@@ -0,0 +1,145 @@
+package com.eric.camera.recognition.decode;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 录制的预览帧文件：32字节的头（魔数、版本、格式、宽、高、行宽、旋转角度、保留）后接原始的NV21或Y8数据，
+ * 整数均为大端序。用于保存现场识别失败的帧，离线回放复现
+ */
+public final class FrameFile {
+
+    /**
+     * 文件扩展名
+     */
+    public static final String EXTENSION = ".frame";
+    /*
+     * "YFRM"
+     */
+    private static final int MAGIC = 0x5946524D;
+    private static final int VERSION = 1;
+
+    private FrameFile() {
+    }
+
+    /**
+     * 一帧数据的字节数
+     *
+     * @param metadata 帧信息
+     * @return NV21为Y分量加半分辨率的VU分量，Y8只有Y分量
+     */
+    public static int getDataLength(FrameMetadata metadata) {
+        int luma = metadata.getRowStride() * metadata.getHeight();
+        if (metadata.getFormat() == FrameMetadata.FORMAT_NV21) {
+            return luma + metadata.getRowStride() * ((metadata.getHeight() + 1) / 2);
+        }
+        return luma;
+    }
+
+    /**
+     * 读取一帧，识别区域为整幅图像
+     *
+     * @param file     帧文件
+     * @param sequence 帧序号
+     * @return 不需要释放的帧
+     * @throws IOException 读取失败或文件格式不正确
+     */
+    public static Frame read(File file, long sequence) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return read(in, sequence);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + ": " + file, e);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * 从输入流读取一帧，识别区域为整幅图像，不关闭输入流
+     *
+     * @param input    输入流，如打包在资源中的帧文件
+     * @param sequence 帧序号
+     * @return 不需要释放的帧
+     * @throws IOException 读取失败或格式不正确
+     */
+    public static Frame read(InputStream input, long sequence) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a frame file");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported frame file version " + version);
+        }
+        int format = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        int rowStride = in.readInt();
+        int rotation = in.readInt();
+        in.readInt();
+        if (format != FrameMetadata.FORMAT_NV21 && format != FrameMetadata.FORMAT_Y8) {
+            throw new IOException("unsupported frame format " + format);
+        }
+        if (width <= 0 || height <= 0 || rowStride < width) {
+            throw new IOException("invalid frame size " + width + "x" + height);
+        }
+        FrameMetadata metadata = new FrameMetadata(width, height, rowStride, format, rotation);
+        byte[] data = new byte[getDataLength(metadata)];
+        in.readFully(data);
+        return new Frame(data, metadata, System.nanoTime(), sequence,
+                0, 0, metadata.getUprightWidth(), metadata.getUprightHeight(), null);
+    }
+
+    /**
+     * 保存一帧的完整数据（不只是识别区域），需在帧释放前调用
+     *
+     * @param frame 帧
+     * @param file  目标文件
+     * @throws IOException 写入失败
+     */
+    public static void write(Frame frame, File file) throws IOException {
+        FrameMetadata metadata = frame.getMetadata();
+        int length = getDataLength(metadata);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(metadata.getFormat());
+            out.writeInt(metadata.getWidth());
+            out.writeInt(metadata.getHeight());
+            out.writeInt(metadata.getRowStride());
+            out.writeInt(metadata.getRotation());
+            out.writeInt(0);
+            if (frame.hasArray()) {
+                out.write(frame.getData(), 0, length);
+            } else {
+                // 直接缓冲区的最后一行可能不足rowStride，不足部分补0
+                ByteBuffer buffer = frame.getBuffer().duplicate();
+                buffer.clear();
+                byte[] chunk = new byte[Math.min(length, 8192)];
+                int remaining = length;
+                while (remaining > 0) {
+                    int count = Math.min(chunk.length, remaining);
+                    int available = Math.min(count, buffer.remaining());
+                    buffer.get(chunk, 0, available);
+                    for (int i = available; i < count; i++) {
+                        chunk[i] = 0;
+                    }
+                    out.write(chunk, 0, count);
+                    remaining -= count;
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.eric.camera.recognition.decode;
+
+/**
+ * 预览帧的不变信息，每次配置相机参数时生成一次，避免每帧调用camera.getParameters()
+ */
+public final class FrameMetadata {
+
+    /**
+     * 与ImageFormat.NV21一致
+     */
+    public static final int FORMAT_NV21 = 0x11;
+    /**
+     * 与ImageFormat.Y8一致，只包含Y分量
+     */
+    public static final int FORMAT_Y8 = 0x20203859;
+
+    private final int width;
+    private final int height;
+    private final int rowStride;
+    private final int format;
+    private final int rotation;
+
+    /**
+     * @param width     帧宽度
+     * @param height    帧高度
+     * @param rowStride Y分量每行字节数
+     * @param format    数据格式
+     * @param rotation  帧需要顺时针旋转的角度才能与预览方向一致
+     */
+    public FrameMetadata(int width, int height, int rowStride, int format, int rotation) {
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.format = format;
+        this.rotation = (rotation % 360 + 360) % 360;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * 旋转后（预览方向）的宽度
+     */
+    public int getUprightWidth() {
+        return rotation % 180 == 0 ? width : height;
+    }
+
+    /**
+     * 旋转后（预览方向）的高度
+     */
+    public int getUprightHeight() {
+        return rotation % 180 == 0 ? height : width;
+    }
+}
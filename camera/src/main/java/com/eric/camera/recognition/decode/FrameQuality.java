@@ -0,0 +1,39 @@
+package com.eric.camera.recognition.decode;
+
+/**
+ * 一帧识别区域的质量评分，由FrameQualityGate计算
+ */
+public final class FrameQuality {
+
+    private final double sharpness;
+    private final double contrast;
+    private final double meanLuma;
+
+    /**
+     * @param sharpness 清晰度，拉普拉斯响应的方差
+     * @param contrast  对比度，亮度的标准差
+     * @param meanLuma  平均亮度，0~255
+     */
+    public FrameQuality(double sharpness, double contrast, double meanLuma) {
+        this.sharpness = sharpness;
+        this.contrast = contrast;
+        this.meanLuma = meanLuma;
+    }
+
+    public double getSharpness() {
+        return sharpness;
+    }
+
+    public double getContrast() {
+        return contrast;
+    }
+
+    public double getMeanLuma() {
+        return meanLuma;
+    }
+
+    @Override
+    public String toString() {
+        return "FrameQuality{sharpness=" + sharpness + ", contrast=" + contrast + ", meanLuma=" + meanLuma + '}';
+    }
+}
@@ -0,0 +1,137 @@
+package com.eric.camera.recognition.decode;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 识别前的帧质量门限：在识别区域的Y分量上隔行采样，计算清晰度、对比度和平均亮度，
+ * 模糊、对比度过低或曝光异常的帧直接跳过，不进入识别。
+ * 只读取原始方向的数据，不旋转、不分配内存，可在多个识别线程中共用
+ */
+public class FrameQualityGate {
+
+    /**
+     * 目标采样行数，行间隔按识别区域高度自动计算。行内逐点计算，隔点采样会错过很窄的边缘
+     */
+    private static final int TARGET_ROWS = 64;
+
+    private volatile double mMinSharpness;
+    private volatile double mMinContrast;
+    private volatile double mMinLuma;
+    private volatile double mMaxLuma;
+    private final AtomicLong mMeasuredCount = new AtomicLong();
+    private final AtomicLong mSkippedCount = new AtomicLong();
+
+    /**
+     * 默认门限：清晰度20，对比度12，亮度30~230
+     */
+    public FrameQualityGate() {
+        this(20, 12, 30, 230);
+    }
+
+    /**
+     * @param minSharpness 最低清晰度
+     * @param minContrast  最低对比度
+     * @param minLuma      最低平均亮度
+     * @param maxLuma      最高平均亮度
+     */
+    public FrameQualityGate(double minSharpness, double minContrast, double minLuma, double maxLuma) {
+        setThresholds(minSharpness, minContrast, minLuma, maxLuma);
+    }
+
+    public void setThresholds(double minSharpness, double minContrast, double minLuma, double maxLuma) {
+        mMinSharpness = minSharpness;
+        mMinContrast = minContrast;
+        mMinLuma = minLuma;
+        mMaxLuma = maxLuma;
+    }
+
+    /**
+     * 计算帧识别区域的质量评分
+     *
+     * @param frame 帧
+     * @return 质量评分
+     */
+    public FrameQuality measure(Frame frame) {
+        byte[] data = frame.getData();
+        ByteBuffer buffer = frame.getBuffer();
+        int stride = frame.getRowStride();
+        int left = frame.getSensorRoiLeft();
+        int top = frame.getSensorRoiTop();
+        int width = frame.getSensorRoiWidth();
+        int height = frame.getSensorRoiHeight();
+        int step = Math.max(1, height / TARGET_ROWS);
+        long count = 0;
+        long lumaSum = 0;
+        long lumaSquareSum = 0;
+        long lapSum = 0;
+        long lapSquareSum = 0;
+        // 拉普拉斯需要上下左右各一个像素，跳过识别区域的边缘
+        for (int y = top + 1; y < top + height - 1; y += step) {
+            int row = y * stride;
+            for (int x = left + 1; x < left + width - 1; x++) {
+                int index = row + x;
+                int center = luma(data, buffer, index);
+                int lap = 4 * center - luma(data, buffer, index - 1) - luma(data, buffer, index + 1)
+                        - luma(data, buffer, index - stride) - luma(data, buffer, index + stride);
+                lumaSum += center;
+                lumaSquareSum += center * center;
+                lapSum += lap;
+                lapSquareSum += lap * lap;
+                count++;
+            }
+        }
+        if (count == 0) {
+            return new FrameQuality(0, 0, 0);
+        }
+        double meanLuma = (double) lumaSum / count;
+        double lumaVariance = (double) lumaSquareSum / count - meanLuma * meanLuma;
+        double meanLap = (double) lapSum / count;
+        double lapVariance = (double) lapSquareSum / count - meanLap * meanLap;
+        return new FrameQuality(Math.max(lapVariance, 0), Math.sqrt(Math.max(lumaVariance, 0)), meanLuma);
+    }
+
+    /**
+     * 读取一个像素的亮度，数据在直接缓冲区中时按绝对下标读取
+     */
+    private static int luma(byte[] data, ByteBuffer buffer, int index) {
+        return (data != null ? data[index] : buffer.get(index)) & 0xff;
+    }
+
+    /**
+     * 判断质量是否达到门限
+     *
+     * @param quality 质量评分
+     * @return 是否需要识别
+     */
+    public boolean accept(FrameQuality quality) {
+        mMeasuredCount.incrementAndGet();
+        boolean accepted = quality.getSharpness() >= mMinSharpness
+                && quality.getContrast() >= mMinContrast
+                && quality.getMeanLuma() >= mMinLuma
+                && quality.getMeanLuma() <= mMaxLuma;
+        if (!accepted) {
+            mSkippedCount.incrementAndGet();
+        }
+        return accepted;
+    }
+
+    /**
+     * 经过门限判断的帧数
+     */
+    public long getMeasuredCount() {
+        return mMeasuredCount.get();
+    }
+
+    /**
+     * 被跳过的帧数
+     */
+    public long getSkippedCount() {
+        return mSkippedCount.get();
+    }
+
+    public void resetCounts() {
+        mMeasuredCount.set(0);
+        mSkippedCount.set(0);
+    }
+}
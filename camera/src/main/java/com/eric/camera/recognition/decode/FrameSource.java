@@ -0,0 +1,36 @@
+package com.eric.camera.recognition.decode;
+
+/**
+ * 预览帧来源，如摄像头或录制帧回放。RecognitionScanView通过它按需获取下一帧
+ */
+public interface FrameSource {
+
+    /**
+     * 预览帧回调
+     */
+    interface FrameCallback {
+        /**
+         * 处理完成后需调用frame.release()，回调线程由具体实现说明
+         *
+         * @param frame 预览帧，识别区域为整幅图像
+         */
+        void onFrame(Frame frame);
+    }
+
+    /**
+     * 预览帧信息，收到第一帧前可能为null
+     */
+    FrameMetadata getFrameMetadata();
+
+    /**
+     * 请求下一帧预览数据，只回调一次
+     *
+     * @param callback 为null时取消尚未回调的请求
+     */
+    void requestFrame(FrameCallback callback);
+
+    /**
+     * 停止提供帧，释放所有资源
+     */
+    void close();
+}
@@ -0,0 +1,153 @@
+package com.eric.camera.recognition.decode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 基于图像的运动估计：把识别区域分成GRID x GRID个块，比较相邻两帧每块的平均亮度，
+ * 去掉整体亮度变化（曝光调整）后的平均差值作为运动量。不依赖加速度传感器，反映的是画面而不是手机的运动。
+ * 非线程安全，需要按帧到达的顺序在同一线程调用
+ */
+public class MotionEstimator {
+
+    /**
+     * 每个方向的块数
+     */
+    private static final int GRID = 16;
+    /**
+     * 每个块每个方向的采样点数
+     */
+    private static final int BLOCK_SAMPLES = 4;
+
+    private float mThreshold;
+    private int mRequiredStableFrames;
+    private int[] mPrevious = new int[GRID * GRID];
+    private int[] mCurrent = new int[GRID * GRID];
+    private boolean hasPrevious = false;
+    private int mLastLeft;
+    private int mLastTop;
+    private int mLastWidth;
+    private int mLastHeight;
+    private float mMotion = Float.POSITIVE_INFINITY;
+    private int mStableFrames = 0;
+
+    /**
+     * 运动量不超过6且连续1次判断为静止
+     */
+    public MotionEstimator() {
+        this(6f, 1);
+    }
+
+    /**
+     * @param threshold            运动量门限，亮度差值，0~255
+     * @param requiredStableFrames 连续多少次运动量不超过门限才算静止
+     */
+    public MotionEstimator(float threshold, int requiredStableFrames) {
+        mThreshold = threshold;
+        mRequiredStableFrames = Math.max(1, requiredStableFrames);
+    }
+
+    public void setThreshold(float threshold) {
+        mThreshold = threshold;
+    }
+
+    /**
+     * 加入一帧，与上一帧比较
+     *
+     * @param frame 帧
+     * @return 与上一帧之间的运动量，没有可比较的上一帧时为Float.POSITIVE_INFINITY
+     */
+    public float update(Frame frame) {
+        int left = frame.getSensorRoiLeft();
+        int top = frame.getSensorRoiTop();
+        int width = frame.getSensorRoiWidth();
+        int height = frame.getSensorRoiHeight();
+        if (width < GRID * BLOCK_SAMPLES || height < GRID * BLOCK_SAMPLES) {
+            reset();
+            return mMotion;
+        }
+        sampleBlocks(frame, left, top, width, height, mCurrent);
+        boolean sameRoi = left == mLastLeft && top == mLastTop && width == mLastWidth && height == mLastHeight;
+        if (hasPrevious && sameRoi) {
+            mMotion = difference(mPrevious, mCurrent);
+        } else {
+            // 识别区域变化后的第一帧无法比较
+            mMotion = Float.POSITIVE_INFINITY;
+        }
+        mStableFrames = mMotion <= mThreshold ? mStableFrames + 1 : 0;
+        int[] swap = mPrevious;
+        mPrevious = mCurrent;
+        mCurrent = swap;
+        hasPrevious = true;
+        mLastLeft = left;
+        mLastTop = top;
+        mLastWidth = width;
+        mLastHeight = height;
+        return mMotion;
+    }
+
+    /**
+     * 最近一次的运动量
+     */
+    public float getMotion() {
+        return mMotion;
+    }
+
+    /**
+     * 画面是否静止
+     */
+    public boolean isStable() {
+        return mStableFrames >= mRequiredStableFrames;
+    }
+
+    /**
+     * 清空上一帧，重新开始识别或切换相机时调用
+     */
+    public void reset() {
+        hasPrevious = false;
+        mMotion = Float.POSITIVE_INFINITY;
+        mStableFrames = 0;
+    }
+
+    /**
+     * 计算每个块的采样亮度之和
+     */
+    private static void sampleBlocks(Frame frame, int left, int top, int width, int height, int[] out) {
+        byte[] data = frame.getData();
+        ByteBuffer buffer = frame.getBuffer();
+        int stride = frame.getRowStride();
+        int blockWidth = width / GRID;
+        int blockHeight = height / GRID;
+        int stepX = Math.max(1, blockWidth / BLOCK_SAMPLES);
+        int stepY = Math.max(1, blockHeight / BLOCK_SAMPLES);
+        for (int by = 0; by < GRID; by++) {
+            for (int bx = 0; bx < GRID; bx++) {
+                int sum = 0;
+                int y = top + by * blockHeight + stepY / 2;
+                for (int sy = 0; sy < BLOCK_SAMPLES; sy++, y += stepY) {
+                    int index = y * stride + left + bx * blockWidth + stepX / 2;
+                    for (int sx = 0; sx < BLOCK_SAMPLES; sx++, index += stepX) {
+                        sum += (data != null ? data[index] : buffer.get(index)) & 0xff;
+                    }
+                }
+                out[by * GRID + bx] = sum;
+            }
+        }
+    }
+
+    /**
+     * 去掉整体亮度变化后每块平均亮度差的绝对值的均值
+     */
+    private static float difference(int[] previous, int[] current) {
+        int samples = BLOCK_SAMPLES * BLOCK_SAMPLES;
+        long total = 0;
+        for (int i = 0; i < previous.length; i++) {
+            total += current[i] - previous[i];
+        }
+        float offset = (float) total / previous.length;
+        float sum = 0;
+        for (int i = 0; i < previous.length; i++) {
+            sum += Math.abs(current[i] - previous[i] - offset);
+        }
+        return sum / previous.length / samples;
+    }
+}
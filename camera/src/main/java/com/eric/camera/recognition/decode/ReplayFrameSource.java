@@ -0,0 +1,251 @@
+package com.eric.camera.recognition.decode;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 回放目录中录制的帧文件（FrameFile格式，按文件名排序），按固定帧率或尽快提供，
+ * 不需要摄像头即可复现识别问题和测量识别耗时。requestFrame在回放线程回调
+ */
+public class ReplayFrameSource implements FrameSource {
+
+    private final File[] mFiles;
+    private final Frame[] mPreloaded;
+    private long mIntervalNanos = 0;
+    private boolean isLoop = false;
+    private int mIndex = 0;
+    private long mNextFrameNanos = 0;
+    private long mSequence = 0;
+    private volatile FrameMetadata mFrameMetadata;
+    private FrameCallback mPendingCallback;
+    private Thread mReplayThread;
+    private boolean isClosed = false;
+    /*
+     * 回放线程连续一遍都没有读到帧，不再回放
+     */
+    private boolean isUnreadable = false;
+
+    /**
+     * @param directory 帧文件所在目录
+     * @throws IOException 目录不存在、没有帧文件或预读失败
+     */
+    public ReplayFrameSource(File directory) throws IOException {
+        this(directory, false);
+    }
+
+    /**
+     * @param directory 帧文件所在目录
+     * @param preload   是否预先读入全部帧，测量识别耗时时避免计入读文件的时间
+     * @throws IOException 目录不存在、没有帧文件或预读失败
+     */
+    public ReplayFrameSource(File directory, boolean preload) throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().endsWith(FrameFile.EXTENSION);
+            }
+        });
+        if (files == null || files.length == 0) {
+            throw new IOException("no frame files in " + directory);
+        }
+        Arrays.sort(files);
+        mFiles = files;
+        mPreloaded = preload ? new Frame[files.length] : null;
+        if (preload) {
+            for (int i = 0; i < files.length; i++) {
+                mPreloaded[i] = FrameFile.read(files[i], i);
+            }
+        }
+    }
+
+    /**
+     * 设置回放帧率
+     *
+     * @param framesPerSecond 每秒帧数，不大于0时尽快回放
+     */
+    public synchronized void setFrameRate(float framesPerSecond) {
+        mIntervalNanos = framesPerSecond > 0 ? (long) (1000000000L / framesPerSecond) : 0;
+    }
+
+    /**
+     * 设置是否循环回放，默认回放一遍后结束
+     *
+     * @param loop
+     */
+    public synchronized void setLoop(boolean loop) {
+        isLoop = loop;
+    }
+
+    public int getFrameCount() {
+        return mFiles.length;
+    }
+
+    /**
+     * 列出目录中的帧文件，按文件名排序
+     */
+    public List<File> getFiles() {
+        return new ArrayList<>(Arrays.asList(mFiles));
+    }
+
+    /**
+     * 是否已回放完毕（循环回放时不会结束，除非所有帧文件都读取失败）
+     */
+    public synchronized boolean isFinished() {
+        return isClosed || isUnreadable || (!isLoop && mIndex >= mFiles.length);
+    }
+
+    /**
+     * 从头开始回放
+     */
+    public synchronized void rewind() {
+        mIndex = 0;
+        mNextFrameNanos = 0;
+        isUnreadable = false;
+    }
+
+    @Override
+    public FrameMetadata getFrameMetadata() {
+        return mFrameMetadata;
+    }
+
+    /**
+     * 在调用线程取出下一帧，按帧率等待到该帧的时间
+     *
+     * @return 下一帧，识别区域为整幅图像；回放完毕时为null
+     * @throws IOException 读取帧文件失败
+     */
+    public Frame nextFrame() throws IOException {
+        int index;
+        long waitNanos;
+        synchronized (this) {
+            if (isFinished()) {
+                return null;
+            }
+            if (mIndex >= mFiles.length) {
+                mIndex = 0;
+            }
+            index = mIndex++;
+            long now = System.nanoTime();
+            if (mNextFrameNanos == 0 || mIntervalNanos == 0) {
+                mNextFrameNanos = now;
+            }
+            waitNanos = mNextFrameNanos - now;
+            // 请求晚于预定时间时不补帧，与摄像头只提供最新一帧一致
+            mNextFrameNanos = Math.max(mNextFrameNanos, now) + mIntervalNanos;
+        }
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1000000L, (int) (waitNanos % 1000000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        Frame frame = loadFrame(index);
+        mFrameMetadata = frame.getMetadata();
+        return frame;
+    }
+
+    /**
+     * 在回放线程取出下一帧后回调，回放完毕后不再回调
+     */
+    @Override
+    public synchronized void requestFrame(FrameCallback callback) {
+        if (isClosed) {
+            return;
+        }
+        mPendingCallback = callback;
+        if (callback != null && mReplayThread == null) {
+            mReplayThread = new Thread(mReplayLoop, "ReplayFrameSource");
+            mReplayThread.setDaemon(true);
+            mReplayThread.start();
+        }
+        notifyAll();
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            isClosed = true;
+            mPendingCallback = null;
+            thread = mReplayThread;
+            mReplayThread = null;
+            notifyAll();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private Frame loadFrame(int index) throws IOException {
+        long sequence;
+        synchronized (this) {
+            sequence = mSequence++;
+        }
+        if (mPreloaded != null) {
+            Frame frame = mPreloaded[index];
+            return new Frame(frame.getData(), frame.getMetadata(), System.nanoTime(), sequence,
+                    frame.getRoiLeft(), frame.getRoiTop(), frame.getRoiWidth(), frame.getRoiHeight(), null);
+        }
+        return FrameFile.read(mFiles[index], sequence);
+    }
+
+    private final Runnable mReplayLoop = new Runnable() {
+        @Override
+        public void run() {
+            // 连续读取失败的帧数，达到文件数时说明一遍下来没有可用的帧
+            int failures = 0;
+            while (true) {
+                synchronized (ReplayFrameSource.this) {
+                    while (!isClosed && mPendingCallback == null) {
+                        try {
+                            ReplayFrameSource.this.wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    if (isClosed) {
+                        return;
+                    }
+                }
+                Frame frame;
+                try {
+                    frame = nextFrame();
+                    failures = 0;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    frame = null;
+                    failures++;
+                }
+                FrameCallback callback;
+                synchronized (ReplayFrameSource.this) {
+                    if (failures >= mFiles.length) {
+                        // 循环回放时避免一直重试读不出的文件
+                        isUnreadable = true;
+                    }
+                    if (frame == null) {
+                        if (isFinished()) {
+                            // 回放完毕，结束回放线程
+                            mReplayThread = null;
+                            return;
+                        }
+                        // 读取失败的帧跳过，请求保留给下一帧
+                        continue;
+                    }
+                    callback = mPendingCallback;
+                    mPendingCallback = null;
+                }
+                if (callback != null) {
+                    callback.onFrame(frame);
+                } else {
+                    frame.release();
+                }
+            }
+        }
+    };
+}
@@ -0,0 +1,115 @@
+package com.eric.camera.recognition.decode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 连续帧投票：最近N个识别结果中有K个相同才确认，用于过滤模糊帧中误读的一维码。
+ * 带有强校验的码制（二维码等）直接确认。非线程安全，在主线程使用
+ */
+public class ResultVoter {
+
+    /**
+     * 默认直接确认的码制，均带有Reed-Solomon纠错
+     */
+    public static final List<String> DEFAULT_TRUSTED_FORMATS = Collections.unmodifiableList(Arrays.asList(
+            "QR_CODE", "DATA_MATRIX", "AZTEC", "PDF_417", "MAXICODE"));
+
+    private final int mRequired;
+    private final String[] mCandidates;
+    private final Set<String> mTrustedFormats;
+    private int mNext = 0;
+    private int mCount = 0;
+
+    /**
+     * 最近3个结果中有2个相同才确认
+     */
+    public ResultVoter() {
+        this(2, 3, DEFAULT_TRUSTED_FORMATS);
+    }
+
+    /**
+     * @param required       需要相同的结果数K
+     * @param window         参与投票的最近结果数N
+     * @param trustedFormats 直接确认的码制名称，为null时不直接确认任何码制
+     */
+    public ResultVoter(int required, int window, List<String> trustedFormats) {
+        if (required < 1 || window < required) {
+            throw new IllegalArgumentException("required must be in [1, window]");
+        }
+        mRequired = required;
+        mCandidates = new String[window];
+        mTrustedFormats = trustedFormats == null ? Collections.<String>emptySet() : new HashSet<>(trustedFormats);
+    }
+
+    /**
+     * 加入一个识别结果
+     *
+     * @param result 识别结果，失败的结果不参与投票
+     * @return 达成一致时返回该结果，否则返回null
+     */
+    public DecodeResult vote(DecodeResult result) {
+        if (result == null || !result.isSuccess()) {
+            return null;
+        }
+        if (isTrusted(result)) {
+            return result;
+        }
+        String key = keyOf(result);
+        mCandidates[mNext] = key;
+        mNext = (mNext + 1) % mCandidates.length;
+        if (mCount < mCandidates.length) {
+            mCount++;
+        }
+        int agree = 0;
+        for (int i = 0; i < mCount; i++) {
+            if (key.equals(mCandidates[i])) {
+                agree++;
+            }
+        }
+        return agree >= mRequired ? result : null;
+    }
+
+    /**
+     * 清空候选结果，开始新的一轮识别时调用
+     */
+    public void reset() {
+        Arrays.fill(mCandidates, null);
+        mNext = 0;
+        mCount = 0;
+    }
+
+    /**
+     * 结果中的每个码都是直接确认的码制
+     */
+    private boolean isTrusted(DecodeResult result) {
+        for (DecodeResult item : result.getResults()) {
+            if (item.isSuccess() && !mTrustedFormats.contains(item.getFormat())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 码制和内容相同才算同一结果，多码结果与顺序无关地按全部结果比较
+     */
+    private static String keyOf(DecodeResult result) {
+        List<String> keys = new ArrayList<>();
+        for (DecodeResult item : result.getResults()) {
+            if (item.isSuccess()) {
+                keys.add(item.getFormat() + ':' + item.getText());
+            }
+        }
+        Collections.sort(keys);
+        StringBuilder builder = new StringBuilder();
+        for (String key : keys) {
+            builder.append(key).append('\n');
+        }
+        return builder.toString();
+    }
+}
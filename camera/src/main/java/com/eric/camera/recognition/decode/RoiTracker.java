@@ -0,0 +1,136 @@
+package com.eric.camera.recognition.decode;
+
+/**
+ * 识别区域跟踪：记住上一次识别到（或定位到）条码的位置，之后的帧只识别条码周围加边距的小窗口，
+ * 连续多次识别失败后恢复识别整个扫描框。坐标均为预览方向的帧坐标。可在多个识别线程中共用
+ */
+public class RoiTracker {
+
+    private final float mPadding;
+    private final int mMaxMisses;
+    private final int mMinSize;
+    private int mBaseLeft;
+    private int mBaseTop;
+    private int mBaseRight;
+    private int mBaseBottom;
+    private int mLeft;
+    private int mTop;
+    private int mRight;
+    private int mBottom;
+    private boolean hasWindow = false;
+    private int mMisses = 0;
+
+    /**
+     * 边距为条码长边的一半，连续失败3次后恢复整个扫描框，窗口最小64像素
+     */
+    public RoiTracker() {
+        this(0.5f, 3, 64);
+    }
+
+    /**
+     * @param padding   窗口每边的边距，条码长边的倍数
+     * @param maxMisses 连续失败多少次后恢复整个扫描框
+     * @param minSize   窗口最小边长
+     */
+    public RoiTracker(float padding, int maxMisses, int minSize) {
+        mPadding = padding;
+        mMaxMisses = Math.max(1, maxMisses);
+        mMinSize = minSize;
+    }
+
+    /**
+     * 按跟踪窗口缩小帧的识别区域
+     *
+     * @param frame 帧
+     * @return 识别区域为跟踪窗口的帧，共用帧数据且不负责释放；没有跟踪窗口或扫描框已变化时为null
+     */
+    public synchronized Frame track(Frame frame) {
+        if (!hasWindow) {
+            return null;
+        }
+        if (!isSameBase(frame)) {
+            hasWindow = false;
+            return null;
+        }
+        return frame.viewRoi(mLeft, mTop, mRight - mLeft, mBottom - mTop);
+    }
+
+    /**
+     * 识别到或定位到条码
+     *
+     * @param frame  原始帧，跟踪窗口限制在它的识别区域内
+     * @param left   条码外接矩形左边（帧坐标）
+     * @param top    条码外接矩形上边
+     * @param right  条码外接矩形右边
+     * @param bottom 条码外接矩形下边
+     * @param found  是否识别成功，只定位到时仍计为一次失败
+     */
+    public synchronized void update(Frame frame, float left, float top, float right, float bottom, boolean found) {
+        int baseLeft = frame.getRoiLeft();
+        int baseTop = frame.getRoiTop();
+        int baseRight = baseLeft + frame.getRoiWidth();
+        int baseBottom = baseTop + frame.getRoiHeight();
+        float pad = Math.max(right - left, bottom - top) * mPadding;
+        float centerX = (left + right) / 2;
+        float centerY = (top + bottom) / 2;
+        float halfWidth = Math.max((right - left) / 2 + pad, mMinSize / 2f);
+        float halfHeight = Math.max((bottom - top) / 2 + pad, mMinSize / 2f);
+        int windowLeft = Math.max(baseLeft, (int) (centerX - halfWidth));
+        int windowTop = Math.max(baseTop, (int) (centerY - halfHeight));
+        int windowRight = Math.min(baseRight, (int) Math.ceil(centerX + halfWidth));
+        int windowBottom = Math.min(baseBottom, (int) Math.ceil(centerY + halfHeight));
+        if (found) {
+            mMisses = 0;
+        } else if (!countMiss()) {
+            return;
+        }
+        if (windowRight <= windowLeft || windowBottom <= windowTop) {
+            return;
+        }
+        mBaseLeft = baseLeft;
+        mBaseTop = baseTop;
+        mBaseRight = baseRight;
+        mBaseBottom = baseBottom;
+        mLeft = windowLeft;
+        mTop = windowTop;
+        mRight = windowRight;
+        mBottom = windowBottom;
+        hasWindow = true;
+    }
+
+    /**
+     * 跟踪窗口中没有识别到条码
+     */
+    public synchronized void miss() {
+        countMiss();
+    }
+
+    public synchronized boolean hasWindow() {
+        return hasWindow;
+    }
+
+    public synchronized void reset() {
+        hasWindow = false;
+        mMisses = 0;
+    }
+
+    /**
+     * 失败次数加1，达到上限时放弃跟踪窗口
+     *
+     * @return 是否仍在跟踪
+     */
+    private boolean countMiss() {
+        if (++mMisses >= mMaxMisses) {
+            hasWindow = false;
+            mMisses = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isSameBase(Frame frame) {
+        return frame.getRoiLeft() == mBaseLeft && frame.getRoiTop() == mBaseTop
+                && frame.getRoiLeft() + frame.getRoiWidth() == mBaseRight
+                && frame.getRoiTop() + frame.getRoiHeight() == mBaseBottom;
+    }
+}
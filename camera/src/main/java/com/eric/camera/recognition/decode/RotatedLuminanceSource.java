@@ -0,0 +1,187 @@
+package com.eric.camera.recognition.decode;
+
+import com.google.zxing.LuminanceSource;
+
+/**
+ * 旋转视图的LuminanceSource：直接读取相机原始方向的Y数据，按旋转角度实时换算下标，不复制、不旋转整幅图像
+ */
+public class RotatedLuminanceSource extends LuminanceSource {
+
+    private final byte[] yuvData;
+    private final int dataWidth;
+    private final int dataHeight;
+    private final int left;
+    private final int top;
+    private final int sensorWidth;
+    private final int sensorHeight;
+    private final int rotation;
+
+    /**
+     * @param yuvData    相机原始方向的YUV数据
+     * @param dataWidth  原始数据每行字节数
+     * @param dataHeight 原始数据高度
+     * @param left       识别区域在原始数据中的左边
+     * @param top        识别区域在原始数据中的上边
+     * @param width      识别区域在原始数据中的宽度
+     * @param height     识别区域在原始数据中的高度
+     * @param rotation   识别区域需要顺时针旋转的角度，0/90/180/270
+     */
+    public RotatedLuminanceSource(byte[] yuvData, int dataWidth, int dataHeight,
+                                  int left, int top, int width, int height, int rotation) {
+        super(isTransposed(rotation) ? height : width, isTransposed(rotation) ? width : height);
+        if (left < 0 || top < 0 || left + width > dataWidth || top + height > dataHeight) {
+            throw new IllegalArgumentException("Crop rectangle does not fit within image data.");
+        }
+        if (rotation % 90 != 0) {
+            throw new IllegalArgumentException("Rotation must be a multiple of 90: " + rotation);
+        }
+        this.yuvData = yuvData;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.left = left;
+        this.top = top;
+        this.sensorWidth = width;
+        this.sensorHeight = height;
+        this.rotation = (rotation % 360 + 360) % 360;
+    }
+
+    /**
+     * 按帧的识别区域（预览方向坐标）创建，识别区域换算到原始方向后直接读取帧数据。
+     * 数据在ByteBuffer中的帧使用ByteBufferLuminanceSource.fromFrame
+     *
+     * @param frame 帧
+     * @return 预览方向的识别区域
+     */
+    public static RotatedLuminanceSource fromFrame(Frame frame) {
+        if (!frame.hasArray()) {
+            throw new IllegalArgumentException("Frame data is not an array, use ByteBufferLuminanceSource");
+        }
+        return new RotatedLuminanceSource(frame.getData(), frame.getRowStride(), frame.getHeight(),
+                frame.getSensorRoiLeft(), frame.getSensorRoiTop(),
+                frame.getSensorRoiWidth(), frame.getSensorRoiHeight(), frame.getRotation());
+    }
+
+    private static boolean isTransposed(int rotation) {
+        return ((rotation % 360 + 360) % 360) % 180 != 0;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        getRow(y, row, 0);
+        return row;
+    }
+
+    /**
+     * 将视图中的第y行写入调用者的缓冲，不分配内存
+     *
+     * @param y      行号
+     * @param dest   目标缓冲，从offset起至少getWidth()字节
+     * @param offset 写入位置
+     */
+    public void getRow(int y, byte[] dest, int offset) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        copyRow(y, dest, offset);
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        return getMatrix(null);
+    }
+
+    /**
+     * 将整个视图写入调用者的缓冲，缓冲不足时才分配
+     *
+     * @param matrix 目标缓冲，可为null
+     * @return 写入的缓冲，紧密排列的getWidth() * getHeight()字节
+     */
+    public byte[] getMatrix(byte[] matrix) {
+        int width = getWidth();
+        int height = getHeight();
+        if (matrix == null || matrix.length < width * height) {
+            matrix = new byte[width * height];
+        }
+        for (int y = 0; y < height; y++) {
+            copyRow(y, matrix, y * width);
+        }
+        return matrix;
+    }
+
+    /**
+     * 将视图中的第y行写入dest，同一行在原始数据中的下标是等差的，不旋转时整行复制
+     */
+    private void copyRow(int y, byte[] dest, int offset) {
+        int width = getWidth();
+        int index = indexOf(0, y);
+        int step = width > 1 ? indexOf(1, y) - index : 0;
+        if (step == 1) {
+            System.arraycopy(yuvData, index, dest, offset, width);
+            return;
+        }
+        for (int x = 0; x < width; x++) {
+            dest[offset + x] = yuvData[index];
+            index += step;
+        }
+    }
+
+    /**
+     * 视图坐标(x, y)对应的原始数据下标
+     */
+    private int indexOf(int x, int y) {
+        int sx;
+        int sy;
+        switch (rotation) {
+            case 90:
+                sx = y;
+                sy = sensorHeight - 1 - x;
+                break;
+            case 180:
+                sx = sensorWidth - 1 - x;
+                sy = sensorHeight - 1 - y;
+                break;
+            case 270:
+                sx = sensorWidth - 1 - y;
+                sy = x;
+                break;
+            default:
+                sx = x;
+                sy = y;
+                break;
+        }
+        return (top + sy) * dataWidth + left + sx;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int cropLeft, int cropTop, int cropWidth, int cropHeight) {
+        // 视图中的矩形换算回原始数据中的矩形
+        int a = indexOf(cropLeft, cropTop);
+        int b = indexOf(cropLeft + cropWidth - 1, cropTop + cropHeight - 1);
+        int ax = a % dataWidth;
+        int ay = a / dataWidth;
+        int bx = b % dataWidth;
+        int by = b / dataWidth;
+        return new RotatedLuminanceSource(yuvData, dataWidth, dataHeight,
+                Math.min(ax, bx), Math.min(ay, by), Math.abs(ax - bx) + 1, Math.abs(ay - by) + 1, rotation);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new RotatedLuminanceSource(yuvData, dataWidth, dataHeight,
+                left, top, sensorWidth, sensorHeight, rotation + 270);
+    }
+}
@@ -0,0 +1,24 @@
+package com.eric.camera.recognition.decode;
+
+/**
+ * 按线程复用的字节缓冲区，每个识别线程各自持有一块，只在需要更大空间时重新分配
+ */
+public class ThreadLocalBuffer {
+
+    private final ThreadLocal<byte[]> mBuffer = new ThreadLocal<>();
+
+    /**
+     * 获取至少size字节的缓冲区，返回的数组长度可能大于size
+     *
+     * @param size 所需字节数
+     * @return 当前线程的缓冲区
+     */
+    public byte[] obtain(int size) {
+        byte[] buffer = mBuffer.get();
+        if (buffer == null || buffer.length < size) {
+            buffer = new byte[size];
+            mBuffer.set(buffer);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,243 @@
+package com.eric.camera.recognition.decode;
+
+import java.nio.ByteBuffer;
+
+/**
+ * YUV预览数据旋转，只处理识别所需的Y分量
+ */
+public final class YuvRotator {
+
+    /*
+     * 识别区域旋转输出缓冲，每个识别线程复用一块
+     */
+    private static final ThreadLocalBuffer ROTATE_BUFFER = new ThreadLocalBuffer();
+    /*
+     * 识别区域缩小输出缓冲，每个线程复用一块
+     */
+    private static final ThreadLocalBuffer SCALE_BUFFER = new ThreadLocalBuffer();
+    /*
+     * 直接缓冲区中识别区域的复制缓冲，每个线程复用一块
+     */
+    private static final ThreadLocalBuffer COPY_BUFFER = new ThreadLocalBuffer();
+
+    private YuvRotator() {
+    }
+
+    /**
+     * 整帧Y分量顺时针旋转90度
+     *
+     * @param src    原始数据
+     * @param width  原始宽度
+     * @param height 原始高度
+     * @param out    输出缓冲，至少width * height字节，旋转后宽为height、高为width
+     */
+    public static void rotateY90(byte[] src, int width, int height, byte[] out) {
+        rotateY90Crop(src, width, height, 0, 0, height, width, out);
+    }
+
+    /**
+     * 只旋转识别区域：left/top/cropWidth/cropHeight是旋转后坐标系中的矩形，
+     * 输出为紧密排列的cropWidth * cropHeight的Y数据
+     *
+     * @param src        原始数据
+     * @param width      原始宽度
+     * @param height     原始高度
+     * @param left       旋转后矩形左边
+     * @param top        旋转后矩形上边
+     * @param cropWidth  旋转后矩形宽度，不超过height - left
+     * @param cropHeight 旋转后矩形高度，不超过width - top
+     * @param out        输出缓冲，至少cropWidth * cropHeight字节
+     */
+    public static void rotateY90Crop(byte[] src, int width, int height, int left, int top, int cropWidth, int cropHeight, byte[] out) {
+        rotateYCrop(src, width, width, height, 90, left, top, cropWidth, cropHeight, out);
+    }
+
+    /**
+     * 按任意90度倍数旋转识别区域，left/top/cropWidth/cropHeight是旋转后坐标系中的矩形
+     *
+     * @param src       原始数据
+     * @param rowStride 原始数据每行字节数
+     * @param width     原始宽度
+     * @param height    原始高度
+     * @param rotation  顺时针旋转角度，0/90/180/270
+     * @param out       输出缓冲，至少cropWidth * cropHeight字节
+     */
+    public static void rotateYCrop(byte[] src, int rowStride, int width, int height, int rotation,
+                                   int left, int top, int cropWidth, int cropHeight, byte[] out) {
+        int start = mapStart(rowStride, width, height, rotation, left, top);
+        int dx = mapDx(rowStride, rotation);
+        int dy = mapDy(rowStride, rotation);
+        int outIndex = 0;
+        for (int y = 0; y < cropHeight; y++) {
+            int srcIndex = start + y * dy;
+            for (int x = 0; x < cropWidth; x++) {
+                out[outIndex++] = src[srcIndex];
+                srcIndex += dx;
+            }
+        }
+    }
+
+    /**
+     * 旋转识别区域的同时按factor * factor的方块取平均缩小，输出为紧密排列的Y数据
+     *
+     * @param factor 缩小倍数
+     * @param out    输出缓冲，至少(cropWidth / factor) * (cropHeight / factor)字节
+     */
+    public static void rotateScaleYCrop(byte[] src, int rowStride, int width, int height, int rotation,
+                                        int left, int top, int cropWidth, int cropHeight, int factor, byte[] out) {
+        int start = mapStart(rowStride, width, height, rotation, left, top);
+        int dx = mapDx(rowStride, rotation);
+        int dy = mapDy(rowStride, rotation);
+        int outWidth = cropWidth / factor;
+        int outHeight = cropHeight / factor;
+        int area = factor * factor;
+        int outIndex = 0;
+        for (int y = 0; y < outHeight; y++) {
+            int rowStart = start + y * factor * dy;
+            for (int x = 0; x < outWidth; x++) {
+                int blockStart = rowStart + x * factor * dx;
+                int sum = 0;
+                for (int j = 0; j < factor; j++) {
+                    int srcIndex = blockStart + j * dy;
+                    for (int i = 0; i < factor; i++) {
+                        sum += src[srcIndex] & 0xff;
+                        srcIndex += dx;
+                    }
+                }
+                out[outIndex++] = (byte) (sum / area);
+            }
+        }
+    }
+
+    /**
+     * 旋转后坐标(x, y)对应的原始下标为 start + x * dx + y * dy，此处为(left, top)处的start
+     */
+    private static int mapStart(int rowStride, int width, int height, int rotation, int left, int top) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                return (height - 1 - left) * rowStride + top;
+            case 180:
+                return (height - 1 - top) * rowStride + width - 1 - left;
+            case 270:
+                return left * rowStride + width - 1 - top;
+            default:
+                return top * rowStride + left;
+        }
+    }
+
+    private static int mapDx(int rowStride, int rotation) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                return -rowStride;
+            case 180:
+                return -1;
+            case 270:
+                return rowStride;
+            default:
+                return 1;
+        }
+    }
+
+    private static int mapDy(int rowStride, int rotation) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                return 1;
+            case 180:
+                return -rowStride;
+            case 270:
+                return -1;
+            default:
+                return rowStride;
+        }
+    }
+
+    /**
+     * 将帧的识别区域旋转到预览方向，输出到当前线程复用的缓冲中。
+     * 返回的帧宽高即识别区域大小、旋转角度为0、不需要释放，下次调用后内容失效
+     *
+     * @param frame 原始帧
+     * @return 只包含识别区域的帧
+     */
+    public static Frame rotateRoi(Frame frame) {
+        int cropWidth = frame.getRoiWidth();
+        int cropHeight = frame.getRoiHeight();
+        byte[] out = ROTATE_BUFFER.obtain(cropWidth * cropHeight);
+        if (!frame.hasArray()) {
+            // 直接缓冲区按旋转视图逐行读取，一次完成复制和旋转
+            ByteBufferLuminanceSource.fromFrame(frame).getMatrix(out);
+            FrameMetadata metadata = new FrameMetadata(cropWidth, cropHeight, cropWidth, FrameMetadata.FORMAT_Y8, 0);
+            return new Frame(out, metadata, frame.getTimestamp(), frame.getSequence(), 0, 0, cropWidth, cropHeight, null);
+        }
+        rotateYCrop(frame.getData(), frame.getRowStride(), frame.getWidth(), frame.getHeight(), frame.getRotation(),
+                frame.getRoiLeft(), frame.getRoiTop(), cropWidth, cropHeight, out);
+        FrameMetadata metadata = new FrameMetadata(cropWidth, cropHeight, cropWidth, FrameMetadata.FORMAT_Y8, 0);
+        return new Frame(out, metadata, frame.getTimestamp(), frame.getSequence(), 0, 0, cropWidth, cropHeight, null);
+    }
+
+    /**
+     * 将帧的识别区域旋转到预览方向并缩小factor倍，输出到当前线程复用的缓冲中。
+     * 返回的帧旋转角度为0、不需要释放，下次调用后内容失效
+     *
+     * @param frame  原始帧
+     * @param factor 缩小倍数
+     * @return 缩小后的识别区域
+     */
+    public static Frame rotateScaleRoi(Frame frame, int factor) {
+        if (!frame.hasArray()) {
+            frame = copyRoi(frame);
+        }
+        if (frame.getRoiWidth() < factor || frame.getRoiHeight() < factor) {
+            return rotateRoi(frame);
+        }
+        int outWidth = frame.getRoiWidth() / factor;
+        int outHeight = frame.getRoiHeight() / factor;
+        byte[] out = SCALE_BUFFER.obtain(outWidth * outHeight);
+        rotateScaleYCrop(frame.getData(), frame.getRowStride(), frame.getWidth(), frame.getHeight(), frame.getRotation(),
+                frame.getRoiLeft(), frame.getRoiTop(), frame.getRoiWidth(), frame.getRoiHeight(), factor, out);
+        FrameMetadata metadata = new FrameMetadata(outWidth, outHeight, outWidth, FrameMetadata.FORMAT_Y8, 0);
+        return new Frame(out, metadata, frame.getTimestamp(), frame.getSequence(), 0, 0, outWidth, outHeight, null);
+    }
+
+    /**
+     * 按原始方向把识别区域的Y分量复制到当前线程复用的缓冲中，不旋转。
+     * 用于数据在直接缓冲区中的帧缩小识别区域前，只复制识别区域而不是整帧
+     *
+     * @param frame 帧
+     * @return 原始方向的Y8帧，旋转角度不变，识别区域为整幅图像，不需要释放
+     */
+    public static Frame copyRoi(Frame frame) {
+        return copyRoi(frame, COPY_BUFFER.obtain(frame.getSensorRoiWidth() * frame.getSensorRoiHeight()));
+    }
+
+    /**
+     * 按原始方向把识别区域的Y分量复制到调用者提供的缓冲中，不旋转。
+     * 用于需要在其他线程继续使用识别区域的场景，如多策略并行识别
+     *
+     * @param frame 帧
+     * @param out   输出缓冲，至少为识别区域的宽 * 高字节
+     * @return 原始方向的Y8帧，旋转角度不变，识别区域为整幅图像，不需要释放
+     */
+    public static Frame copyRoi(Frame frame, byte[] out) {
+        int left = frame.getSensorRoiLeft();
+        int top = frame.getSensorRoiTop();
+        int width = frame.getSensorRoiWidth();
+        int height = frame.getSensorRoiHeight();
+        int stride = frame.getRowStride();
+        if (frame.hasArray()) {
+            byte[] data = frame.getData();
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(data, (top + y) * stride + left, out, y * width, width);
+            }
+        } else {
+            // duplicate后修改position不影响其他线程读取同一个缓冲区
+            ByteBuffer src = frame.getBuffer().duplicate();
+            for (int y = 0; y < height; y++) {
+                src.position((top + y) * stride + left);
+                src.get(out, y * width, width);
+            }
+        }
+        FrameMetadata metadata = new FrameMetadata(width, height, width, FrameMetadata.FORMAT_Y8, frame.getRotation());
+        return new Frame(out, metadata, frame.getTimestamp(), frame.getSequence(),
+                0, 0, metadata.getUprightWidth(), metadata.getUprightHeight(), null);
+    }
+}
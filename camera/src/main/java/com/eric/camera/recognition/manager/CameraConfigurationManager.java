@@ -1,7 +1,9 @@
 package com.eric.camera.recognition.manager;
 
 import android.content.Context;
+import android.graphics.ImageFormat;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.hardware.Camera;
 import android.view.Display;
 import android.view.Surface;
@@ -9,7 +11,9 @@ import android.view.WindowManager;
 
 import com.eric.camera.recognition.utils.RecognitionUtils;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -18,22 +22,50 @@ public class CameraConfigurationManager {
 
     private static final int TEN_DESIRED_ZOOM = 27;
     private static final Pattern COMMA_PATTERN = Pattern.compile(",");
+    /*
+     * 对焦、测光区域的权重，只有一个区域时权重不影响结果
+     */
+    private static final int AREA_WEIGHT = 1000;
     private final Context mContext;
     private Point mScreenResolution;
     private Point mCameraResolution;
     private Point mPreviewResolution;
+    private int mDisplayOrientation;
+    private String mFocusMode;
+    private Rect mFocusArea;
+    private PreviewSizePolicy mPreviewSizePolicy = new PreviewSizePolicy();
+    private int mScanBoxWidth;
+    private int[] mPreviewFpsRange;
 
     public CameraConfigurationManager(Context context) {
         mContext = context;
     }
 
+    /**
+     * 设置预览尺寸和帧率范围的选择策略，在initFromCameraParameters之前调用
+     *
+     * @param previewSizePolicy 选择策略，为null时使用默认策略
+     */
+    public void setPreviewSizePolicy(PreviewSizePolicy previewSizePolicy) {
+        mPreviewSizePolicy = previewSizePolicy != null ? previewSizePolicy : new PreviewSizePolicy();
+    }
+
+    public PreviewSizePolicy getPreviewSizePolicy() {
+        return mPreviewSizePolicy;
+    }
+
+    /**
+     * 设置扫描框宽度，用于计算扫描框内的预览像素，在initFromCameraParameters之前调用
+     *
+     * @param scanBoxWidth 扫描框宽度（屏幕像素），不大于0时选择与屏幕尺寸最接近的预览尺寸
+     */
+    public void setScanBoxWidth(int scanBoxWidth) {
+        mScanBoxWidth = scanBoxWidth;
+    }
+
     public void initFromCameraParameters(Camera camera) {
         Camera.Parameters parameters = camera.getParameters();
 
-        if (CameraConfigurationManager.autoFocusAble(camera)) {
-            parameters.setFocusMode(Camera.Parameters.FOCUS_MODE_AUTO);
-        }
-
         mScreenResolution = RecognitionUtils.getScreenResolution(mContext);
         Point screenResolutionForCamera = new Point();
         screenResolutionForCamera.x = mScreenResolution.x;
@@ -48,6 +80,7 @@ public class CameraConfigurationManager {
         }
 
         mPreviewResolution = getPreviewResolution(parameters, screenResolutionForCamera);
+        mPreviewFpsRange = selectFpsRange(parameters.getSupportedPreviewFpsRange());
 
         if (orientation == RecognitionUtils.ORIENTATION_PORTRAIT) {
             mCameraResolution = new Point(mPreviewResolution.y, mPreviewResolution.x);
@@ -66,15 +99,121 @@ public class CameraConfigurationManager {
         return mCameraResolution;
     }
 
+    /**
+     * 获取协商后的预览尺寸（相机坐标系，宽大于高）
+     *
+     * @return 预览尺寸
+     */
+    public Point getPreviewResolution() {
+        return mPreviewResolution;
+    }
+
+    /**
+     * 获取协商后的预览帧率范围，单位与Camera.Parameters相同（每秒帧数 * 1000）
+     *
+     * @return {最低, 最高}，不支持时为null
+     */
+    public int[] getPreviewFpsRange() {
+        return mPreviewFpsRange == null ? null : mPreviewFpsRange.clone();
+    }
+
+    /**
+     * 按协商后的预览尺寸计算一帧NV21数据所需的字节数，用于setPreviewCallbackWithBuffer
+     *
+     * @return 缓冲区大小，尚未初始化时返回0
+     */
+    public int getPreviewBufferSize() {
+        if (mPreviewResolution == null) {
+            return 0;
+        }
+        return mPreviewResolution.x * mPreviewResolution.y * ImageFormat.getBitsPerPixel(ImageFormat.NV21) / 8;
+    }
+
     public void setDesiredCameraParameters(Camera camera) {
         Camera.Parameters parameters = camera.getParameters();
         parameters.setPreviewSize(mPreviewResolution.x, mPreviewResolution.y);
         setZoom(parameters);
+        // 优先连续对焦，镜头随画面自行对焦，不支持时使用自动对焦由FocusScheduler触发
+        mFocusMode = findSettableValue(parameters.getSupportedFocusModes(),
+                Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE, Camera.Parameters.FOCUS_MODE_AUTO);
+        if (mFocusMode != null) {
+            parameters.setFocusMode(mFocusMode);
+        }
+        setAreas(parameters, mFocusArea);
+        if (mPreviewFpsRange != null) {
+            parameters.setPreviewFpsRange(mPreviewFpsRange[Camera.Parameters.PREVIEW_FPS_MIN_INDEX],
+                    mPreviewFpsRange[Camera.Parameters.PREVIEW_FPS_MAX_INDEX]);
+        }
 
-        camera.setDisplayOrientation(getDisplayOrientation());
+        mDisplayOrientation = getDisplayOrientation();
+        camera.setDisplayOrientation(mDisplayOrientation);
         camera.setParameters(parameters);
     }
 
+    /**
+     * 最近一次设置参数时是否设置了可对焦的模式，不支持时为定焦镜头
+     */
+    public boolean isAutoFocusSupported() {
+        return mFocusMode != null;
+    }
+
+    /**
+     * 最近一次设置参数时是否使用了连续对焦
+     */
+    public boolean isContinuousFocus() {
+        return Camera.Parameters.FOCUS_MODE_CONTINUOUS_PICTURE.equals(mFocusMode);
+    }
+
+    /**
+     * 设置对焦和测光区域，重新设置预览参数时仍然生效
+     *
+     * @param camera 为null时只保存，下次设置预览参数时生效
+     * @param area   相机区域坐标（传感器方向，-1000~1000），为null时恢复整个画面
+     * @return 是否设置成功
+     */
+    public boolean setFocusArea(Camera camera, Rect area) {
+        mFocusArea = area == null ? null : new Rect(area);
+        if (camera == null) {
+            return true;
+        }
+        try {
+            Camera.Parameters parameters = camera.getParameters();
+            if (!setAreas(parameters, mFocusArea)) {
+                return false;
+            }
+            camera.setParameters(parameters);
+            return true;
+        } catch (Exception e) {
+            // 部分机型设置区域时框架层解析参数会抛异常，不影响预览
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    public Rect getFocusArea() {
+        return mFocusArea == null ? null : new Rect(mFocusArea);
+    }
+
+    /**
+     * 设置支持的对焦、测光区域
+     *
+     * @return 是否支持其中之一
+     */
+    private static boolean setAreas(Camera.Parameters parameters, Rect area) {
+        List<Camera.Area> areas = area == null ? null
+                : Collections.singletonList(new Camera.Area(area, AREA_WEIGHT));
+        boolean supported = false;
+        if (parameters.getMaxNumFocusAreas() > 0) {
+            parameters.setFocusAreas(areas);
+            supported = true;
+        }
+        if (parameters.getMaxNumMeteringAreas() > 0) {
+            parameters.setMeteringAreas(areas);
+            supported = true;
+        }
+        return supported;
+    }
+
     public void openFlashlight(Camera camera) {
         doSetTorch(camera, true);
     }
@@ -111,6 +250,15 @@ public class CameraConfigurationManager {
         return result;
     }
 
+    /**
+     * 获取最近一次设置参数时的预览旋转角度，避免每帧重新查询CameraInfo
+     *
+     * @return 预览旋转角度
+     */
+    public int getPreviewDisplayOrientation() {
+        return mDisplayOrientation;
+    }
+
     public int getDisplayOrientation() {
         Camera.CameraInfo info = new Camera.CameraInfo();
         Camera.getCameraInfo(Camera.CameraInfo.CAMERA_FACING_BACK, info);
@@ -144,41 +292,42 @@ public class CameraConfigurationManager {
         return result;
     }
 
-    private static Point getPreviewResolution(Camera.Parameters parameters, Point screenResolution) {
-        Point previewResolution =
-                findBestPreviewSizeValue(parameters.getSupportedPreviewSizes(), screenResolution);
+    /**
+     * 按扫描框内需要的像素选择预览尺寸
+     *
+     * @param screenResolution 相机坐标系的屏幕尺寸（宽大于高）
+     */
+    private Point getPreviewResolution(Camera.Parameters parameters, Point screenResolution) {
+        List<Point> sizes = new ArrayList<>();
+        List<Camera.Size> supportSizeList = parameters.getSupportedPreviewSizes();
+        if (supportSizeList != null) {
+            for (Camera.Size size : supportSizeList) {
+                sizes.add(new Point(size.width, size.height));
+            }
+        }
+        Point previewResolution = mPreviewSizePolicy.selectPreviewSize(sizes,
+                mScreenResolution.x, mScreenResolution.y, mScanBoxWidth);
         if (previewResolution == null) {
             previewResolution = new Point((screenResolution.x >> 3) << 3, (screenResolution.y >> 3) << 3);
         }
         return previewResolution;
     }
 
-    private static Point findBestPreviewSizeValue(List<Camera.Size> supportSizeList, Point screenResolution) {
-        int bestX = 0;
-        int bestY = 0;
-        int diff = Integer.MAX_VALUE;
-        for (Camera.Size previewSize : supportSizeList) {
-
-            int newX = previewSize.width;
-            int newY = previewSize.height;
-
-            int newDiff = Math.abs(newX - screenResolution.x) + Math.abs(newY - screenResolution.y);
-            if (newDiff == 0) {
-                bestX = newX;
-                bestY = newY;
+    /**
+     * 选择帧率范围，部分机型返回的单位是每秒帧数而不是乘以1000
+     */
+    private int[] selectFpsRange(List<int[]> ranges) {
+        if (ranges == null || ranges.isEmpty()) {
+            return null;
+        }
+        int unit = 1;
+        for (int[] range : ranges) {
+            if (range[Camera.Parameters.PREVIEW_FPS_MAX_INDEX] >= 1000) {
+                unit = 1000;
                 break;
-            } else if (newDiff < diff) {
-                bestX = newX;
-                bestY = newY;
-                diff = newDiff;
             }
-
-        }
-
-        if (bestX > 0 && bestY > 0) {
-            return new Point(bestX, bestY);
         }
-        return null;
+        return mPreviewSizePolicy.selectFpsRange(ranges, unit);
     }
 
     private static int findBestMotZoomValue(CharSequence stringValues, int tenDesiredZoom) {
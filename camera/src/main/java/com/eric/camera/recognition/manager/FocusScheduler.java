@@ -0,0 +1,306 @@
+package com.eric.camera.recognition.manager;
+
+/**
+ * 对焦调度：预览期间所有的对焦请求都经过这里，同一时间只有一次对焦扫描，不会重叠调用autoFocus卡住预览。
+ * 支持连续对焦（CONTINUOUS_PICTURE）时由相机自行对焦，否则开始预览时对焦一次；
+ * 之后在画面由运动变为静止、连续多帧识别失败或外部请求时主动对焦，两次对焦之间至少间隔一段时间。
+ * 镜头移动中拍到的帧是模糊的，识别流程通过isFocusing跳过。在主线程使用
+ */
+public class FocusScheduler {
+
+    /**
+     * 对焦状态
+     */
+    public enum State {
+        /**
+         * 未预览
+         */
+        IDLE,
+        /**
+         * 连续对焦，镜头静止
+         */
+        CONTINUOUS,
+        /**
+         * 连续对焦正在移动镜头
+         */
+        PASSIVE_SCAN,
+        /**
+         * 主动触发的对焦扫描中
+         */
+        ACTIVE_SCAN,
+        /**
+         * 主动对焦已结束，焦点锁定到下一次对焦，只用于不支持连续对焦的模式
+         */
+        LOCKED
+    }
+
+    /**
+     * 执行对焦的相机，在主线程调用
+     */
+    public interface FocusDriver {
+
+        /**
+         * 开始一次对焦扫描，结束后调用onAutoFocus
+         *
+         * @return 是否已开始
+         */
+        boolean startFocus();
+
+        /**
+         * 取消对焦扫描并解除焦点锁定，连续对焦模式下恢复连续对焦
+         */
+        void cancelFocus();
+    }
+
+    /*
+     * 连续多少帧识别失败后主动对焦
+     */
+    private static final int DEFAULT_FAILURES_BEFORE_FOCUS = 10;
+    /*
+     * 两次主动对焦之间的最短间隔，毫秒
+     */
+    private static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000;
+    /*
+     * 对焦结果迟迟没有回调时视为结束，避免一直跳过帧，毫秒
+     */
+    private static final long SCAN_TIMEOUT_MILLIS = 3000;
+
+    private final FocusDriver mDriver;
+    private State mState = State.IDLE;
+    private boolean isContinuous = false;
+    private boolean isSceneStable = true;
+    /*
+     * 是否有等待画面静止或间隔足够后执行的对焦
+     */
+    private boolean isFocusPending = false;
+    private int mFailures = 0;
+    private int mFailuresBeforeFocus = DEFAULT_FAILURES_BEFORE_FOCUS;
+    private long mMinIntervalMillis = DEFAULT_MIN_INTERVAL_MILLIS;
+    private long mScanStartMillis;
+    private long mLastScanEndMillis;
+
+    public FocusScheduler(FocusDriver driver) {
+        mDriver = driver;
+    }
+
+    /**
+     * 设置连续多少帧识别失败后主动对焦
+     *
+     * @param failures 帧数，不小于1
+     */
+    public void setFailuresBeforeFocus(int failures) {
+        mFailuresBeforeFocus = Math.max(1, failures);
+    }
+
+    public int getFailuresBeforeFocus() {
+        return mFailuresBeforeFocus;
+    }
+
+    /**
+     * 设置两次主动对焦之间的最短间隔
+     *
+     * @param minIntervalMillis 毫秒
+     */
+    public void setMinIntervalMillis(long minIntervalMillis) {
+        mMinIntervalMillis = Math.max(0, minIntervalMillis);
+    }
+
+    public long getMinIntervalMillis() {
+        return mMinIntervalMillis;
+    }
+
+    public State getState() {
+        return mState;
+    }
+
+    public boolean isSceneStable() {
+        return isSceneStable;
+    }
+
+    /**
+     * 开始预览后调用
+     *
+     * @param continuous 相机是否使用连续对焦
+     */
+    public void start(boolean continuous) {
+        isContinuous = continuous;
+        isFocusPending = false;
+        mFailures = 0;
+        mLastScanEndMillis = now() - mMinIntervalMillis;
+        if (continuous) {
+            mState = State.CONTINUOUS;
+        } else {
+            // 固定焦点的模式下开始预览时先对焦一次
+            mState = State.LOCKED;
+            startScan();
+        }
+    }
+
+    /**
+     * 停止预览后调用，进行中的对焦由相机随预览一起取消
+     */
+    public void stop() {
+        mState = State.IDLE;
+        isFocusPending = false;
+        mFailures = 0;
+    }
+
+    /**
+     * 镜头是否在移动，此时拍到的帧不必识别
+     */
+    public boolean isFocusing() {
+        checkTimeout();
+        return mState == State.ACTIVE_SCAN || mState == State.PASSIVE_SCAN;
+    }
+
+    /**
+     * 请求一次对焦：正在对焦时忽略，画面运动中或距上次对焦太近时推迟执行
+     */
+    public void requestFocus() {
+        checkTimeout();
+        if (mState == State.IDLE || mState == State.ACTIVE_SCAN) {
+            return;
+        }
+        if (mState == State.PASSIVE_SCAN || !isSceneStable
+                || now() - mLastScanEndMillis < mMinIntervalMillis) {
+            isFocusPending = true;
+            return;
+        }
+        startScan();
+    }
+
+    /**
+     * 立即对焦，不等待画面静止和最短间隔，用于手动对焦
+     *
+     * @return 是否已开始，正在对焦时返回false
+     */
+    public boolean focusNow() {
+        checkTimeout();
+        if (mState == State.IDLE || mState == State.ACTIVE_SCAN) {
+            return false;
+        }
+        startScan();
+        return mState == State.ACTIVE_SCAN;
+    }
+
+    /**
+     * 主动对焦结束
+     *
+     * @param success 是否对焦成功
+     */
+    public void onAutoFocus(boolean success) {
+        if (mState != State.ACTIVE_SCAN) {
+            // 已取消或超时
+            return;
+        }
+        finishScan();
+    }
+
+    /**
+     * 连续对焦开始或停止移动镜头
+     *
+     * @param moving 是否在移动
+     */
+    public void onFocusMoving(boolean moving) {
+        if (moving && mState == State.CONTINUOUS) {
+            mState = State.PASSIVE_SCAN;
+            mScanStartMillis = now();
+        } else if (!moving && mState == State.PASSIVE_SCAN) {
+            // 相机刚自行对过焦，推迟的对焦不再需要
+            mState = State.CONTINUOUS;
+            isFocusPending = false;
+            mFailures = 0;
+        }
+    }
+
+    /**
+     * 画面运动状态变化：运动中取消对焦扫描并解除焦点锁定，由运动变为静止时对焦
+     *
+     * @param stable 画面是否静止
+     */
+    public void onSceneStabilityChanged(boolean stable) {
+        if (isSceneStable == stable) {
+            return;
+        }
+        isSceneStable = stable;
+        if (mState == State.IDLE) {
+            return;
+        }
+        if (!stable) {
+            if (mState == State.ACTIVE_SCAN) {
+                mDriver.cancelFocus();
+                mState = isContinuous ? State.CONTINUOUS : State.LOCKED;
+            }
+            return;
+        }
+        requestFocus();
+    }
+
+    /**
+     * 一帧识别结束，被跳过的帧不用调用。连续失败达到次数时请求对焦，并执行之前推迟的对焦
+     *
+     * @param success 是否识别成功
+     */
+    public void onDecodeResult(boolean success) {
+        if (mState == State.IDLE) {
+            return;
+        }
+        if (success) {
+            mFailures = 0;
+            return;
+        }
+        if (++mFailures >= mFailuresBeforeFocus) {
+            mFailures = 0;
+            requestFocus();
+        } else if (isFocusPending) {
+            requestFocus();
+        }
+    }
+
+    private void startScan() {
+        isFocusPending = false;
+        if (mDriver.startFocus()) {
+            mState = State.ACTIVE_SCAN;
+            mScanStartMillis = now();
+        } else {
+            // 相机还没准备好，间隔足够后重试
+            isFocusPending = true;
+            mLastScanEndMillis = now();
+        }
+    }
+
+    /**
+     * 连续对焦模式下主动对焦结束后取消对焦解除锁定，恢复连续对焦，否则焦点一直锁定到画面运动
+     */
+    private void finishScan() {
+        mLastScanEndMillis = now();
+        mFailures = 0;
+        if (isContinuous) {
+            mDriver.cancelFocus();
+            mState = State.CONTINUOUS;
+        } else {
+            mState = State.LOCKED;
+        }
+    }
+
+    private void checkTimeout() {
+        if (mState != State.ACTIVE_SCAN && mState != State.PASSIVE_SCAN) {
+            return;
+        }
+        if (now() - mScanStartMillis < SCAN_TIMEOUT_MILLIS) {
+            return;
+        }
+        if (mState == State.ACTIVE_SCAN) {
+            if (!isContinuous) {
+                mDriver.cancelFocus();
+            }
+            finishScan();
+        } else {
+            mState = State.CONTINUOUS;
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
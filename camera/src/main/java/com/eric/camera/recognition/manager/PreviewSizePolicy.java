@@ -0,0 +1,213 @@
+package com.eric.camera.recognition.manager;
+
+import android.graphics.Point;
+
+import java.util.List;
+
+/**
+ * 按识别开销选择预览尺寸和帧率范围。预览尺寸越大，复制、旋转和识别越慢，而识别只需要条码每个模块有足够的像素：
+ * 按预期的条码模块数、条码占扫描框宽度的比例和每模块像素数算出扫描框内需要的预览像素，
+ * 选择宽高比与屏幕接近、满足要求的最小尺寸，都不满足时选择最大的尺寸。
+ * 帧率范围优先达到识别需要的最高帧率，最低帧率尽量接近期望值：最低帧率限制了最长曝光时间，
+ * 太低时暗光下手抖造成的模糊帧增多，太高时暗光下噪点多
+ */
+public class PreviewSizePolicy {
+
+    private int mExpectedModules;
+    private float mCodeFraction;
+    private float mPixelsPerModule;
+    /*
+     * 预览宽高比与屏幕宽高比允许的相对差值
+     */
+    private float mMaxAspectDistortion = 0.15f;
+    private int mMinFps = 15;
+    private int mMaxFps = 30;
+
+    /**
+     * 预期EAN-13（95个模块）占扫描框宽度的80%，每模块3个像素
+     */
+    public PreviewSizePolicy() {
+        this(95, 0.8f, 3f);
+    }
+
+    /**
+     * @param expectedModules 条码在扫描框宽度方向的模块数，如EAN-13为95，版本3的二维码为29
+     * @param codeFraction    条码占扫描框宽度的比例，0~1
+     * @param pixelsPerModule 每个模块需要的预览像素数
+     */
+    public PreviewSizePolicy(int expectedModules, float codeFraction, float pixelsPerModule) {
+        setCodeSize(expectedModules, codeFraction, pixelsPerModule);
+    }
+
+    /**
+     * 设置预期的条码大小和需要的像素密度
+     *
+     * @param expectedModules 条码在扫描框宽度方向的模块数
+     * @param codeFraction    条码占扫描框宽度的比例，0~1
+     * @param pixelsPerModule 每个模块需要的预览像素数
+     */
+    public void setCodeSize(int expectedModules, float codeFraction, float pixelsPerModule) {
+        if (expectedModules <= 0 || codeFraction <= 0 || codeFraction > 1 || pixelsPerModule <= 0) {
+            throw new IllegalArgumentException("modules and density must be positive, fraction must be in (0, 1]");
+        }
+        mExpectedModules = expectedModules;
+        mCodeFraction = codeFraction;
+        mPixelsPerModule = pixelsPerModule;
+    }
+
+    public int getExpectedModules() {
+        return mExpectedModules;
+    }
+
+    public float getCodeFraction() {
+        return mCodeFraction;
+    }
+
+    public float getPixelsPerModule() {
+        return mPixelsPerModule;
+    }
+
+    /**
+     * 设置预览宽高比与屏幕宽高比允许的相对差值，差值越大预览被裁掉的部分越多
+     *
+     * @param maxAspectDistortion 相对差值
+     */
+    public void setMaxAspectDistortion(float maxAspectDistortion) {
+        mMaxAspectDistortion = maxAspectDistortion;
+    }
+
+    public float getMaxAspectDistortion() {
+        return mMaxAspectDistortion;
+    }
+
+    /**
+     * 设置期望的帧率范围
+     *
+     * @param minFps 期望的最低帧率，限制最长曝光时间
+     * @param maxFps 识别需要的最高帧率
+     */
+    public void setFpsRange(int minFps, int maxFps) {
+        if (minFps <= 0 || maxFps < minFps) {
+            throw new IllegalArgumentException("fps must satisfy 0 < minFps <= maxFps");
+        }
+        mMinFps = minFps;
+        mMaxFps = maxFps;
+    }
+
+    public int getMinFps() {
+        return mMinFps;
+    }
+
+    public int getMaxFps() {
+        return mMaxFps;
+    }
+
+    /**
+     * 扫描框宽度方向需要的预览像素数
+     */
+    public int getRequiredBoxPixels() {
+        return (int) Math.ceil(mExpectedModules * mPixelsPerModule / mCodeFraction);
+    }
+
+    /**
+     * 选择预览尺寸
+     *
+     * @param sizes      支持的预览尺寸，相机坐标系（宽大于高）
+     * @param viewWidth  预览视图宽度（显示方向），通常为屏幕宽度
+     * @param viewHeight 预览视图高度（显示方向）
+     * @param boxWidth   扫描框宽度（显示方向像素），不大于0时选择与视图尺寸最接近的尺寸
+     * @return 选中的尺寸，相机坐标系，sizes为空时为null
+     */
+    public Point selectPreviewSize(List<Point> sizes, int viewWidth, int viewHeight, int boxWidth) {
+        if (sizes == null || sizes.isEmpty() || viewWidth <= 0 || viewHeight <= 0) {
+            return null;
+        }
+        boolean portrait = viewWidth < viewHeight;
+        float viewAspect = viewWidth / (float) viewHeight;
+        // 没有宽高比足够接近的尺寸时，只在最接近的一组宽高比中选择
+        float minDistortion = Float.MAX_VALUE;
+        for (Point size : sizes) {
+            minDistortion = Math.min(minDistortion, aspectDistortion(size, portrait, viewAspect));
+        }
+        float maxDistortion = Math.max(mMaxAspectDistortion, minDistortion + 0.01f);
+        int required = getRequiredBoxPixels();
+        Point best = null;
+        long bestScore = 0;
+        for (Point size : sizes) {
+            if (aspectDistortion(size, portrait, viewAspect) > maxDistortion) {
+                continue;
+            }
+            int uprightWidth = portrait ? size.y : size.x;
+            int uprightHeight = portrait ? size.x : size.y;
+            long score;
+            if (boxWidth <= 0) {
+                // 扫描框未知时与视图尺寸最接近
+                score = -(Math.abs(uprightWidth - viewWidth) + Math.abs(uprightHeight - viewHeight));
+            } else {
+                // 预览铺满视图，较短的一边决定缩放比例，扫描框内的像素按该比例换算
+                float scale = Math.min(uprightWidth / (float) viewWidth, uprightHeight / (float) viewHeight);
+                long area = (long) size.x * size.y;
+                if (boxWidth * scale >= required) {
+                    // 满足要求的尺寸中面积越小越好，总是优于不满足的尺寸
+                    score = Long.MAX_VALUE / 2 - area;
+                } else {
+                    score = area;
+                }
+            }
+            if (best == null || score > bestScore) {
+                best = size;
+                bestScore = score;
+            }
+        }
+        return best == null ? null : new Point(best);
+    }
+
+    private static float aspectDistortion(Point size, boolean portrait, float viewAspect) {
+        float aspect = portrait ? size.y / (float) size.x : size.x / (float) size.y;
+        return Math.abs(aspect - viewAspect) / viewAspect;
+    }
+
+    /**
+     * 选择帧率范围：优先最高帧率不低于期望的最高帧率，再选最低帧率最接近期望值的，最后选最高帧率较低的，
+     * 超过识别需要的帧率只会增加功耗
+     *
+     * @param ranges 支持的帧率范围，每项为{最低, 最高}
+     * @param unit   每帧/秒对应的数值，Camera1为1000，Camera2为1
+     * @return 选中的范围，ranges为空时为null
+     */
+    public int[] selectFpsRange(List<int[]> ranges, int unit) {
+        if (ranges == null || ranges.isEmpty()) {
+            return null;
+        }
+        int desiredMin = mMinFps * unit;
+        int desiredMax = mMaxFps * unit;
+        int[] best = null;
+        for (int[] range : ranges) {
+            if (best == null || isBetterFpsRange(range, best, desiredMin, desiredMax)) {
+                best = range;
+            }
+        }
+        return best == null ? null : new int[]{best[0], best[1]};
+    }
+
+    private static boolean isBetterFpsRange(int[] range, int[] best, int desiredMin, int desiredMax) {
+        boolean reaches = range[1] >= desiredMax;
+        boolean bestReaches = best[1] >= desiredMax;
+        if (reaches != bestReaches) {
+            return reaches;
+        }
+        if (!reaches && range[1] != best[1]) {
+            return range[1] > best[1];
+        }
+        int minDiff = Math.abs(range[0] - desiredMin);
+        int bestMinDiff = Math.abs(best[0] - desiredMin);
+        if (minDiff != bestMinDiff) {
+            return minDiff < bestMinDiff;
+        }
+        if (range[0] != best[0]) {
+            // 同样接近时曝光时间短的模糊更少
+            return range[0] > best[0];
+        }
+        return range[1] < best[1];
+    }
+}
@@ -0,0 +1,161 @@
+package com.eric.camera.recognition.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁的固定桶耗时直方图：1微秒以下为一个桶，之后每个2倍区间分为8个桶（相对误差约9%），上限约68秒。
+ * 记录只有几次原子加，不分配内存，可在多个线程中同时记录
+ */
+public class LatencyHistogram {
+
+    /*
+     * 每个2倍区间的桶数为2^SUB_BUCKET_BITS
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /*
+     * 第一个2倍区间从2^MIN_EXPONENT纳秒（约1微秒）开始
+     */
+    private static final int MIN_EXPONENT = 10;
+    /*
+     * 最后一个2倍区间到2^MAX_EXPONENT纳秒（约68秒），更大的值计入最后一个桶
+     */
+    private static final int MAX_EXPONENT = 36;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS + 1;
+
+    private final AtomicLongArray mCounts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mTotalNanos = new AtomicLong();
+    private final AtomicLong mMaxNanos = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 纳秒，小于0时按0记录
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mCounts.incrementAndGet(bucketIndex(nanos));
+        mTotalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = mMaxNanos.get()) && !mMaxNanos.compareAndSet(max, nanos)) {
+            // 其他线程更新了最大值，重试
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts.set(i, 0);
+        }
+        mTotalNanos.set(0);
+        mMaxNanos.set(0);
+    }
+
+    /**
+     * 复制当前计数，与记录并发时各个桶不保证是同一时刻的值
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mCounts.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, mTotalNanos.get(), mMaxNanos.get());
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < (1L << MIN_EXPONENT)) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub + 1;
+    }
+
+    /**
+     * 桶的上界（不含）
+     */
+    static long bucketUpperBound(int index) {
+        if (index == 0) {
+            return 1L << MIN_EXPONENT;
+        }
+        int exponent = (index - 1) / SUB_BUCKETS + MIN_EXPONENT;
+        int sub = (index - 1) % SUB_BUCKETS;
+        return (1L << exponent) + ((long) (sub + 1) << (exponent - SUB_BUCKET_BITS));
+    }
+
+    /**
+     * 直方图某一时刻的副本
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * 分位数的估计值，取所在桶的上界（不超过最大值）
+         *
+         * @param percentile 0到100
+         * @return 纳秒，没有记录时为0
+         */
+        public long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public long getP50Nanos() {
+            return getPercentileNanos(50);
+        }
+
+        public long getP95Nanos() {
+            return getPercentileNanos(95);
+        }
+
+        public long getP99Nanos() {
+            return getPercentileNanos(99);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "count=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms", count,
+                    getMeanNanos() / 1e6, getP50Nanos() / 1e6, getP95Nanos() / 1e6, getP99Nanos() / 1e6, maxNanos / 1e6);
+        }
+    }
+}
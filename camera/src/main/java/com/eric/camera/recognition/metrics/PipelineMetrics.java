@@ -0,0 +1,208 @@
+package com.eric.camera.recognition.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 识别流程各阶段的耗时直方图和帧计数。默认关闭，关闭时每次记录只有一次volatile读，可以在正式版本中保留。
+ * 可随时调用snapshot()读取，也可通过addListener订阅RecognitionScanView定期发布的快照
+ */
+public class PipelineMetrics {
+
+    /**
+     * 识别流程的阶段
+     */
+    public enum Stage {
+        /**
+         * 帧到达后在队列中等待识别线程的时间
+         */
+        QUEUE,
+        /**
+         * 帧质量判断和旋转识别区域的时间
+         */
+        ROTATE,
+        /**
+         * ZXing识别的时间
+         */
+        DECODE,
+        /**
+         * 识别结果从识别线程发出到主线程收到的时间
+         */
+        DELIVERY,
+        /**
+         * 回调ProcessDataResultListener的时间
+         */
+        CALLBACK,
+        /**
+         * 从帧到达到主线程处理完识别结果的总时间
+         */
+        TOTAL
+    }
+
+    /**
+     * 帧计数
+     */
+    public enum Counter {
+        /**
+         * 提交识别的帧
+         */
+        SUBMITTED,
+        /**
+         * 被队列丢弃或识别结果已过期的帧
+         */
+        DROPPED,
+        /**
+         * 画面运动中、对焦中或帧质量不达标而没有识别的帧
+         */
+        SKIPPED,
+        /**
+         * 识别失败的帧
+         */
+        FAILED,
+        /**
+         * 识别成功的帧
+         */
+        SUCCEEDED
+    }
+
+    /**
+     * 快照订阅
+     */
+    public interface Listener {
+        void onMetrics(Snapshot snapshot);
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private volatile boolean isEnabled = false;
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLongArray mCounters = new AtomicLongArray(COUNTERS.length);
+    private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void setEnabled(boolean enabled) {
+        isEnabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * 记录一个阶段的耗时，关闭时忽略
+     *
+     * @param stage 阶段
+     * @param nanos 纳秒
+     */
+    public void record(Stage stage, long nanos) {
+        if (isEnabled) {
+            mHistograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * 计数加1，关闭时忽略
+     */
+    public void increment(Counter counter) {
+        if (isEnabled) {
+            mCounters.incrementAndGet(counter.ordinal());
+        }
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : mHistograms) {
+            histogram.reset();
+        }
+        for (int i = 0; i < COUNTERS.length; i++) {
+            mCounters.set(i, 0);
+        }
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> histograms = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES) {
+            histograms.put(stage, mHistograms[stage.ordinal()].snapshot());
+        }
+        Map<Counter, Long> counters = new EnumMap<>(Counter.class);
+        for (Counter counter : COUNTERS) {
+            counters.put(counter, mCounters.get(counter.ordinal()));
+        }
+        return new Snapshot(System.nanoTime(), histograms, counters);
+    }
+
+    public void addListener(Listener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    public boolean hasListeners() {
+        return !mListeners.isEmpty();
+    }
+
+    /**
+     * 生成快照并通知所有订阅者，在调用线程回调
+     */
+    public void publish() {
+        if (mListeners.isEmpty()) {
+            return;
+        }
+        Snapshot snapshot = snapshot();
+        for (Listener listener : mListeners) {
+            listener.onMetrics(snapshot);
+        }
+    }
+
+    /**
+     * 某一时刻的全部统计
+     */
+    public static final class Snapshot {
+        private final long timestamp;
+        private final Map<Stage, LatencyHistogram.Snapshot> histograms;
+        private final Map<Counter, Long> counters;
+
+        Snapshot(long timestamp, Map<Stage, LatencyHistogram.Snapshot> histograms, Map<Counter, Long> counters) {
+            this.timestamp = timestamp;
+            this.histograms = histograms;
+            this.counters = counters;
+        }
+
+        /**
+         * 生成快照的时间（System.nanoTime）
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public LatencyHistogram.Snapshot getHistogram(Stage stage) {
+            return histograms.get(stage);
+        }
+
+        public long getCount(Counter counter) {
+            return counters.get(counter);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (Counter counter : COUNTERS) {
+                builder.append(counter.name().toLowerCase(Locale.US)).append('=').append(counters.get(counter)).append(' ');
+            }
+            for (Stage stage : STAGES) {
+                builder.append('\n').append(stage.name().toLowerCase(Locale.US)).append(": ").append(histograms.get(stage));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.eric.camera.recognition.thread;
+
+import java.util.ArrayDeque;
+
+/**
+ * 预览帧缓冲池，配合 Camera.setPreviewCallbackWithBuffer 使用，避免每帧分配新的 byte[]
+ */
+public class PreviewBufferPool {
+
+    /*
+     * 默认缓冲数量：一块交给相机，一块正在识别，一块等待识别
+     */
+    public static final int DEFAULT_BUFFER_COUNT = 3;
+
+    private final ArrayDeque<byte[]> mFreeBuffers = new ArrayDeque<>();
+    private final int mMaxBufferCount;
+    private int mBufferSize;
+
+    public PreviewBufferPool() {
+        this(DEFAULT_BUFFER_COUNT);
+    }
+
+    public PreviewBufferPool(int maxBufferCount) {
+        mMaxBufferCount = maxBufferCount;
+    }
+
+    /**
+     * 设置单个缓冲区大小，大小变化时丢弃旧的缓冲
+     *
+     * @param bufferSize 预览帧字节数
+     */
+    public synchronized void setBufferSize(int bufferSize) {
+        if (mBufferSize != bufferSize) {
+            mBufferSize = bufferSize;
+            mFreeBuffers.clear();
+        }
+    }
+
+    public synchronized int getBufferSize() {
+        return mBufferSize;
+    }
+
+    /**
+     * 取出一个缓冲区，池为空时才会分配新的
+     *
+     * @return 缓冲区，未设置大小时返回null
+     */
+    public synchronized byte[] acquire() {
+        if (mBufferSize <= 0) {
+            return null;
+        }
+        byte[] buffer = mFreeBuffers.poll();
+        if (buffer == null) {
+            buffer = new byte[mBufferSize];
+        }
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，大小不匹配或池已满时直接丢弃
+     *
+     * @param buffer 缓冲区
+     */
+    public synchronized void release(byte[] buffer) {
+        if (buffer == null || buffer.length != mBufferSize) {
+            return;
+        }
+        if (mFreeBuffers.size() < mMaxBufferCount) {
+            mFreeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 清空缓冲池
+     */
+    public synchronized void clear() {
+        mFreeBuffers.clear();
+    }
+}
@@ -0,0 +1,172 @@
+package com.eric.camera.recognition.thread;
+
+import java.util.ArrayDeque;
+
+/**
+ * 预览帧识别执行器：常驻的识别线程 + 有界队列，替代每帧新建线程
+ */
+public class PreviewDecodeExecutor {
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃队列中最旧的帧
+         */
+        DROP_OLDEST,
+        /**
+         * 只保留最新的一帧，丢弃所有等待中的帧
+         */
+        KEEP_NEWEST_ONLY,
+        /**
+         * 丢弃新提交的帧
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * 识别任务，被丢弃时会回调discard用于释放资源
+     */
+    public interface DecodeTask extends Runnable {
+        void discard();
+    }
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1;
+
+    private final Object mLock = new Object();
+    private final ArrayDeque<DecodeTask> mQueue;
+    private final int mQueueCapacity;
+    private final OverflowPolicy mOverflowPolicy;
+    private final Thread[] mWorkers;
+    private boolean isStarted = false;
+    private boolean isShutdown = false;
+
+    public PreviewDecodeExecutor() {
+        this(1, DEFAULT_QUEUE_CAPACITY, OverflowPolicy.KEEP_NEWEST_ONLY);
+    }
+
+    /**
+     * @param workerCount   识别线程数
+     * @param queueCapacity 等待队列容量
+     * @param policy        队列满时的处理策略
+     */
+    public PreviewDecodeExecutor(int workerCount, int queueCapacity, OverflowPolicy policy) {
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("workerCount and queueCapacity must be positive");
+        }
+        mWorkers = new Thread[workerCount];
+        mQueueCapacity = queueCapacity;
+        mOverflowPolicy = policy == null ? OverflowPolicy.KEEP_NEWEST_ONLY : policy;
+        mQueue = new ArrayDeque<>(queueCapacity);
+    }
+
+    public int getWorkerCount() {
+        return mWorkers.length;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return mOverflowPolicy;
+    }
+
+    /**
+     * 提交识别任务，按队列策略可能丢弃旧任务或当前任务
+     *
+     * @param task 识别任务
+     * @return 当前任务是否进入队列
+     */
+    public boolean submit(DecodeTask task) {
+        synchronized (mLock) {
+            if (isShutdown) {
+                task.discard();
+                return false;
+            }
+            startWorkersLocked();
+            switch (mOverflowPolicy) {
+                case KEEP_NEWEST_ONLY:
+                    discardAllLocked();
+                    break;
+                case DROP_OLDEST:
+                    while (mQueue.size() >= mQueueCapacity) {
+                        mQueue.poll().discard();
+                    }
+                    break;
+                case DROP_NEWEST:
+                    if (mQueue.size() >= mQueueCapacity) {
+                        task.discard();
+                        return false;
+                    }
+                    break;
+            }
+            mQueue.offer(task);
+            mLock.notify();
+            return true;
+        }
+    }
+
+    /**
+     * 丢弃所有等待中的任务，执行中的任务不受影响
+     */
+    public void clear() {
+        synchronized (mLock) {
+            discardAllLocked();
+        }
+    }
+
+    /**
+     * 停止识别线程，执行器不可再使用
+     */
+    public void shutdown() {
+        synchronized (mLock) {
+            isShutdown = true;
+            discardAllLocked();
+            mLock.notifyAll();
+        }
+    }
+
+    private void discardAllLocked() {
+        DecodeTask task;
+        while ((task = mQueue.poll()) != null) {
+            task.discard();
+        }
+    }
+
+    private void startWorkersLocked() {
+        if (isStarted) {
+            return;
+        }
+        isStarted = true;
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new Thread(mWorkerRunnable, "PreviewDecode-" + i);
+            mWorkers[i].setDaemon(true);
+            mWorkers[i].start();
+        }
+    }
+
+    private final Runnable mWorkerRunnable = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                DecodeTask task;
+                synchronized (mLock) {
+                    while (mQueue.isEmpty() && !isShutdown) {
+                        try {
+                            mLock.wait();
+                        } catch (InterruptedException e) {
+                            // 忽略中断，由shutdown负责退出
+                        }
+                    }
+                    if (isShutdown) {
+                        return;
+                    }
+                    task = mQueue.poll();
+                }
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    };
+}
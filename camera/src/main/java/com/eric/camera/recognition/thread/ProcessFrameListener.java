@@ -0,0 +1,18 @@
+package com.eric.camera.recognition.thread;
+
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+
+/**
+ * 处理预览帧（ProcessPreviewDataListener的第二版），帧中携带尺寸、行宽、格式、旋转角度、时间戳、序号和识别区域
+ */
+public interface ProcessFrameListener {
+
+    /**
+     * 识别一帧数据，帧由调用方负责释放，实现中不要持有帧数据
+     *
+     * @param frame 预览帧，ROTATE_MODE_SENSOR时旋转角度可能不为0
+     * @return 识别结果，识别失败可返回null
+     */
+    DecodeResult processFrame(Frame frame);
+}
@@ -0,0 +1,39 @@
+package com.eric.camera.recognition.thread;
+
+import android.graphics.Rect;
+
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.YuvRotator;
+
+/**
+ * 将旧的ProcessPreviewDataListener适配为ProcessFrameListener，旋转过的帧会先转到预览方向，
+ * 数据在直接缓冲区中的帧先把识别区域复制到数组
+ */
+public class ProcessPreviewDataListenerAdapter implements ProcessFrameListener {
+
+    private final ProcessPreviewDataListener listener;
+
+    public ProcessPreviewDataListenerAdapter(ProcessPreviewDataListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public DecodeResult processFrame(Frame frame) {
+        int width;
+        if (frame.getRotation() != 0) {
+            frame = YuvRotator.rotateRoi(frame);
+            width = frame.getWidth();
+        } else if (!frame.hasArray()) {
+            frame = YuvRotator.copyRoi(frame);
+            width = frame.getWidth();
+        } else {
+            // 旧接口按宽度换算行偏移，行间有填充时以行跨度为宽度
+            width = frame.getRowStride();
+        }
+        Rect rect = new Rect(frame.getRoiLeft(), frame.getRoiTop(),
+                frame.getRoiLeft() + frame.getRoiWidth(), frame.getRoiTop() + frame.getRoiHeight());
+        String result = listener.processData(frame.getData(), width, frame.getHeight(), rect);
+        return new DecodeResult(result, null);
+    }
+}
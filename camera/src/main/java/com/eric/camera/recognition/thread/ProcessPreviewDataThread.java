@@ -5,22 +5,71 @@ import android.graphics.Rect;
 import android.hardware.Camera;
 import android.os.Handler;
 
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.eric.camera.recognition.decode.FrameQuality;
+import com.eric.camera.recognition.decode.FrameQualityGate;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.eric.camera.recognition.metrics.PipelineMetrics;
 import com.eric.camera.recognition.utils.RecognitionUtils;
 
 /**
- * 处理预览数据
+ * 处理预览数据，由PreviewDecodeExecutor的识别线程执行
  */
-public class ProcessPreviewDataThread extends Thread {
+public class ProcessPreviewDataThread implements PreviewDecodeExecutor.DecodeTask {
 
     public static final int ProcessDataWhat = 0x01;
+
+    /**
+     * 识别结果回调，在识别线程调用，用于没有Handler的场景（如离线回放）
+     */
+    public interface ResultCallback {
+        void onResult(int spotId, DecodeResult result);
+    }
+
+    /**
+     * 先将识别区域旋转到预览方向再识别
+     */
+    public static final int ROTATE_MODE_COPY = 0;
+    /**
+     * 不旋转数据，由识别器按帧的旋转角度读取识别区域
+     */
+    public static final int ROTATE_MODE_SENSOR = 1;
     private Context context;
+    private Frame mFrame;
     private byte[] mData;
     private Camera camera;
     private Rect previewRect;
     private Handler mHandler;
-    private ProcessPreviewDataListener processPreviewDataListener;
+    private ResultCallback resultCallback;
+    private ProcessFrameListener processFrameListener;
+    private int spotId;
+    private int rotateMode = ROTATE_MODE_COPY;
+    private FrameQualityGate frameQualityGate;
+    private FrameQuality frameQuality;
+    private boolean skipped = false;
+    private long startNanos;
+    private long frameTimestamp;
+    private PipelineMetrics pipelineMetrics;
 
+    /**
+     * @param context  上下文
+     * @param frame    预览帧，处理完成或被丢弃后释放
+     * @param mHandler 接收识别结果
+     */
+    public ProcessPreviewDataThread(Context context, Frame frame, Handler mHandler) {
+        this.context = context;
+        this.mFrame = frame;
+        this.mHandler = mHandler;
+    }
 
+    /**
+     * 旧的构造方法，每帧都需要调用camera.getParameters()获取预览尺寸
+     *
+     * @deprecated 使用 {@link #ProcessPreviewDataThread(Context, Frame, Handler)}
+     */
+    @Deprecated
     public ProcessPreviewDataThread(Context context, byte[] data, Camera camera, Rect previewRect, Handler mHandler) {
         this.context = context;
         this.mData = data;
@@ -30,50 +79,148 @@ public class ProcessPreviewDataThread extends Thread {
     }
 
     public void setProcessPreviewDataListener(ProcessPreviewDataListener processPreviewDataListener) {
-        this.processPreviewDataListener = processPreviewDataListener;
+        setProcessFrameListener(processPreviewDataListener == null ? null : new ProcessPreviewDataListenerAdapter(processPreviewDataListener));
+    }
+
+    public void setProcessFrameListener(ProcessFrameListener processFrameListener) {
+        this.processFrameListener = processFrameListener;
+    }
+
+    /**
+     * 设置识别批次，结果消息通过arg1带回，用于丢弃过期结果
+     *
+     * @param spotId 识别批次
+     */
+    public void setSpotId(int spotId) {
+        this.spotId = spotId;
+    }
+
+    /**
+     * 设置预览数据的旋转方式
+     *
+     * @param rotateMode ROTATE_MODE_COPY 或 ROTATE_MODE_SENSOR
+     */
+    public void setRotateMode(int rotateMode) {
+        this.rotateMode = rotateMode;
+    }
+
+    /**
+     * 设置帧质量门限，质量不达标的帧不识别，直接返回带评分的失败结果
+     *
+     * @param frameQualityGate 为null时不判断帧质量
+     */
+    public void setFrameQualityGate(FrameQualityGate frameQualityGate) {
+        this.frameQualityGate = frameQualityGate;
+    }
+
+    /**
+     * 设置识别结果回调，与Handler同时设置时两者都会收到结果
+     *
+     * @param resultCallback 识别结果回调
+     */
+    public void setResultCallback(ResultCallback resultCallback) {
+        this.resultCallback = resultCallback;
+    }
+
+    /**
+     * 设置流程统计，记录排队、旋转和识别耗时以及被丢弃的帧
+     *
+     * @param pipelineMetrics 可为null
+     */
+    public void setPipelineMetrics(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @Override
+    public void discard() {
+        if (pipelineMetrics != null) {
+            pipelineMetrics.increment(PipelineMetrics.Counter.DROPPED);
+        }
+        if (mFrame != null) {
+            mFrame.release();
+        }
     }
 
     @Override
     public void run() {
-        Camera.Parameters parameters = camera.getParameters();
-        Camera.Size size = parameters.getPreviewSize();
-        int width = size.width;
-        int height = size.height;
-
-        byte[] data = mData;
-
-        if (RecognitionUtils.getOrientation(context) == RecognitionUtils.ORIENTATION_PORTRAIT) {
-            data = new byte[mData.length];
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    data[x * height + height - y - 1] = mData[x + y * width];
+        startNanos = System.nanoTime();
+        Frame frame = mFrame != null ? mFrame : createLegacyFrame();
+        frameTimestamp = frame.getTimestamp();
+        boolean timed = pipelineMetrics != null && pipelineMetrics.isEnabled();
+        if (timed) {
+            pipelineMetrics.record(PipelineMetrics.Stage.QUEUE, startNanos - frameTimestamp);
+        }
+        try {
+            if (processFrameListener == null) {
+                sendResult(null);
+                return;
+            }
+            long rotateStart = timed ? System.nanoTime() : 0;
+            if (frameQualityGate != null) {
+                // 在原始数据上判断，质量不达标时连旋转也省掉
+                frameQuality = frameQualityGate.measure(frame);
+                if (!frameQualityGate.accept(frameQuality)) {
+                    skipped = true;
+                    sendResult(null);
+                    return;
                 }
             }
-            int tmp = width;
-            width = height;
-            height = tmp;
-        }
-        if (processPreviewDataListener != null) {
-            processData(data, width, height);
-        } else {
-            sendResult("");
+            Frame target = frame;
+            if (rotateMode == ROTATE_MODE_COPY && frame.getRotation() != 0) {
+                // 只旋转识别区域，旋转后原始数据不再使用，尽早归还
+                target = YuvRotator.rotateRoi(frame);
+                frame.release();
+            }
+            if (timed) {
+                pipelineMetrics.record(PipelineMetrics.Stage.ROTATE, System.nanoTime() - rotateStart);
+            }
+            processFrame(target, timed);
+        } finally {
+            frame.release();
         }
     }
 
-    public void processData(byte[] data, int width, int height) {
+    /**
+     * 旧的构造方式：从camera读取预览尺寸，竖屏时按90度旋转
+     */
+    private Frame createLegacyFrame() {
+        Camera.Size size = camera.getParameters().getPreviewSize();
+        int rotation = RecognitionUtils.getOrientation(context) == RecognitionUtils.ORIENTATION_PORTRAIT ? 90 : 0;
+        FrameMetadata metadata = new FrameMetadata(size.width, size.height, size.width, FrameMetadata.FORMAT_NV21, rotation);
+        Rect rect = previewRect != null ? previewRect : new Rect();
+        return new Frame(mData, metadata, System.nanoTime(), 0, rect.left, rect.top, rect.width(), rect.height(), null);
+    }
+
+    private void processFrame(Frame frame, boolean timed) {
+        DecodeResult result;
+        long decodeStart = timed ? System.nanoTime() : 0;
         try {
-            String result = processPreviewDataListener.processData(data, width, height, previewRect);
-            sendResult(result);
+            result = processFrameListener.processFrame(frame);
         } catch (Exception e) {
             e.printStackTrace();
-            sendResult("");
+            result = null;
         }
+        if (timed) {
+            pipelineMetrics.record(PipelineMetrics.Stage.DECODE, System.nanoTime() - decodeStart);
+        }
+        sendResult(result);
     }
 
-    private void sendResult(String result) {
+    private void sendResult(DecodeResult result) {
         if (result == null) {
-            result = "";
+            result = new DecodeResult(null, null);
+        }
+        long now = System.nanoTime();
+        // 识别耗时和是否跳过供ScanScheduler调整频率，时间戳只在开启统计时使用
+        result = result.withFrameStats(frameQuality, skipped, now - startNanos);
+        if (pipelineMetrics != null && pipelineMetrics.isEnabled()) {
+            result = result.withTimestamps(frameTimestamp, now);
+        }
+        if (resultCallback != null) {
+            resultCallback.onResult(spotId, result);
+        }
+        if (mHandler != null) {
+            mHandler.obtainMessage(ProcessDataWhat, spotId, 0, result).sendToTarget();
         }
-        mHandler.obtainMessage(ProcessDataWhat, result).sendToTarget();
     }
 }
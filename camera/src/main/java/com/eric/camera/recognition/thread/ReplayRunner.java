@@ -0,0 +1,103 @@
+package com.eric.camera.recognition.thread;
+
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameQualityGate;
+import com.eric.camera.recognition.decode.ReplayFrameSource;
+
+import java.io.IOException;
+
+/**
+ * 离线回放：从ReplayFrameSource逐帧取出，在当前线程经ProcessPreviewDataThread识别，
+ * 旋转、帧质量门限和识别逻辑与RecognitionScanView相同，不需要摄像头和Handler，结果可重复
+ */
+public class ReplayRunner {
+
+    /**
+     * 每帧的识别结果
+     */
+    public interface Listener {
+        /**
+         * @param sequence 帧序号
+         * @param result   识别结果，包含帧质量和识别耗时
+         */
+        void onResult(long sequence, DecodeResult result);
+    }
+
+    private final ReplayFrameSource mSource;
+    private final ProcessFrameListener mProcessFrameListener;
+    private int mRotateMode = ProcessPreviewDataThread.ROTATE_MODE_COPY;
+    private FrameQualityGate mFrameQualityGate;
+    private boolean hasRoi = false;
+    private int mRoiLeft;
+    private int mRoiTop;
+    private int mRoiWidth;
+    private int mRoiHeight;
+
+    /**
+     * @param source               录制帧来源
+     * @param processFrameListener 识别逻辑，如ZxingFrameProcessor
+     */
+    public ReplayRunner(ReplayFrameSource source, ProcessFrameListener processFrameListener) {
+        mSource = source;
+        mProcessFrameListener = processFrameListener;
+    }
+
+    /**
+     * @param rotateMode ProcessPreviewDataThread.ROTATE_MODE_COPY 或 ProcessPreviewDataThread.ROTATE_MODE_SENSOR
+     */
+    public void setRotateMode(int rotateMode) {
+        mRotateMode = rotateMode;
+    }
+
+    /**
+     * @param frameQualityGate 为null时每帧都识别
+     */
+    public void setFrameQualityGate(FrameQualityGate frameQualityGate) {
+        mFrameQualityGate = frameQualityGate;
+    }
+
+    /**
+     * 设置识别区域（预览方向坐标），相当于扫描框，默认识别整幅图像
+     */
+    public void setRoi(int left, int top, int width, int height) {
+        hasRoi = true;
+        mRoiLeft = left;
+        mRoiTop = top;
+        mRoiWidth = width;
+        mRoiHeight = height;
+    }
+
+    /**
+     * 回放全部帧，循环回放时不会结束
+     *
+     * @param listener 每帧的识别结果，在当前线程回调
+     * @return 识别的帧数
+     * @throws IOException 读取帧文件失败
+     */
+    public int run(final Listener listener) throws IOException {
+        int count = 0;
+        Frame frame;
+        while ((frame = mSource.nextFrame()) != null) {
+            if (hasRoi) {
+                frame = frame.withRoi(mRoiLeft, mRoiTop, mRoiWidth, mRoiHeight);
+            }
+            final long sequence = frame.getSequence();
+            ProcessPreviewDataThread task = new ProcessPreviewDataThread(null, frame, null);
+            task.setProcessFrameListener(mProcessFrameListener);
+            task.setRotateMode(mRotateMode);
+            task.setFrameQualityGate(mFrameQualityGate);
+            task.setResultCallback(new ProcessPreviewDataThread.ResultCallback() {
+                @Override
+                public void onResult(int spotId, DecodeResult result) {
+                    if (listener != null) {
+                        listener.onResult(sequence, result);
+                    }
+                }
+            });
+            task.run();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,121 @@
+package com.eric.camera.recognition.thread;
+
+/**
+ * 自适应识别调度：按实测识别耗时、最近的成功率和画面状态计算提交一帧后多久请求下一帧，
+ * 替代固定的500毫秒。画面稳定时间隔约等于识别耗时，识别线程空闲时正好拿到新的一帧；
+ * 画面不稳定或连续失败时逐渐放慢，间隔始终限制在最小和最大频率之间。在主线程使用
+ */
+public class ScanScheduler {
+
+    /*
+     * 识别耗时和成功率的指数平均系数
+     */
+    private static final float SMOOTHING = 0.2f;
+    /*
+     * 画面不稳定（运动或帧质量不达标）时的间隔倍数
+     */
+    private static final float UNSTEADY_FACTOR = 2f;
+    /*
+     * 连续失败达到该次数时间隔放慢到最大（乘以1 + MAX_BACKOFF）
+     */
+    private static final int BACKOFF_FAILURES = 30;
+    private static final float MAX_BACKOFF = 3f;
+    /*
+     * 还没有测到识别耗时时使用的估计值
+     */
+    private static final float INITIAL_DECODE_MILLIS = 100f;
+
+    private long mMinIntervalMillis;
+    private long mMaxIntervalMillis;
+    private float mDecodeMillis = INITIAL_DECODE_MILLIS;
+    private float mSuccessRate = 0f;
+    private int mFailures = 0;
+    private boolean isSteady = true;
+
+    /**
+     * 最快每秒30次，最慢每秒2次（即原来的固定间隔）
+     */
+    public ScanScheduler() {
+        this(2f, 30f);
+    }
+
+    /**
+     * @param minRate 最低识别频率，次/秒
+     * @param maxRate 最高识别频率，次/秒
+     */
+    public ScanScheduler(float minRate, float maxRate) {
+        setRateBounds(minRate, maxRate);
+    }
+
+    /**
+     * 设置识别频率范围
+     *
+     * @param minRate 最低识别频率，次/秒
+     * @param maxRate 最高识别频率，次/秒
+     */
+    public void setRateBounds(float minRate, float maxRate) {
+        if (minRate <= 0 || maxRate < minRate) {
+            throw new IllegalArgumentException("rates must satisfy 0 < minRate <= maxRate");
+        }
+        mMinIntervalMillis = (long) (1000f / maxRate);
+        mMaxIntervalMillis = (long) (1000f / minRate);
+    }
+
+    public long getMinIntervalMillis() {
+        return mMinIntervalMillis;
+    }
+
+    public long getMaxIntervalMillis() {
+        return mMaxIntervalMillis;
+    }
+
+    /**
+     * 一帧识别结束
+     *
+     * @param decodeTimeNanos 识别耗时，帧被跳过时不计入平均耗时
+     * @param success         是否识别成功
+     * @param steady          画面是否稳定：运动估计判断为静止且帧质量达标
+     * @param skipped         是否因帧质量不达标跳过了识别
+     */
+    public void onFrameProcessed(long decodeTimeNanos, boolean success, boolean steady, boolean skipped) {
+        if (!skipped && decodeTimeNanos > 0) {
+            mDecodeMillis += SMOOTHING * (decodeTimeNanos / 1000000f - mDecodeMillis);
+        }
+        mSuccessRate += SMOOTHING * ((success ? 1f : 0f) - mSuccessRate);
+        mFailures = success ? 0 : mFailures + 1;
+        isSteady = steady;
+    }
+
+    /**
+     * 重新开始识别时调用，保留识别耗时，清空失败次数
+     */
+    public void reset() {
+        mFailures = 0;
+        isSteady = true;
+    }
+
+    /**
+     * 提交一帧后请求下一帧之前的等待时间
+     *
+     * @return 毫秒
+     */
+    public long nextDelayMillis() {
+        float interval = mDecodeMillis;
+        if (!isSteady) {
+            interval *= UNSTEADY_FACTOR;
+        }
+        // 扫描框中可能没有条码，最近成功率越低放慢得越多，省电
+        float backoff = Math.min(mFailures, BACKOFF_FAILURES) / (float) BACKOFF_FAILURES
+                * MAX_BACKOFF * (1f - mSuccessRate);
+        interval *= 1f + backoff;
+        return Math.max(mMinIntervalMillis, Math.min(mMaxIntervalMillis, (long) interval));
+    }
+
+    public float getAverageDecodeMillis() {
+        return mDecodeMillis;
+    }
+
+    public float getSuccessRate() {
+        return mSuccessRate;
+    }
+}
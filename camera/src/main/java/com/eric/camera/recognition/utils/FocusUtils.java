@@ -3,8 +3,11 @@
  */
 package com.eric.camera.recognition.utils;
 
+import com.eric.camera.recognition.manager.FocusScheduler;
+
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -34,20 +37,49 @@ public class FocusUtils {
     }
 
     /**
-     * 创建一个定时对焦的timer任务
+     * 获取线程池，用于多策略并行识别等需要Executor的场景
+     *
+     * @return 线程池
+     */
+    public static Executor getExecutor() {
+        return fixedThreadPool;
+    }
+
+    /**
+     * 创建一个定时对焦的timer任务。每次定时向FocusScheduler请求对焦，由它决定是否执行对焦代码，
+     * 两次对焦之间至少间隔{@link FocusScheduler#getMinIntervalMillis()}
      *
      * @param runnable 对焦代码
      * @return Timer Timer对象，用来终止自动对焦
+     * @deprecated 预览视图已通过{@link FocusScheduler}调度对焦，
+     * 使用RecognitionScanView.getFocusScheduler()请求对焦
      */
-    public static Timer createAutoFocusTimerTask(final Runnable runnable) {
+    @Deprecated
+    public static synchronized Timer createAutoFocusTimerTask(final Runnable runnable) {
         if (timerFocus != null) {
             return timerFocus;
         }
+        final FocusScheduler scheduler = new FocusScheduler(new FocusScheduler.FocusDriver() {
+            @Override
+            public boolean startFocus() {
+                runnable.run();
+                return true;
+            }
+
+            @Override
+            public void cancelFocus() {
+            }
+        });
+        // 对焦代码没有结束回调，执行完即视为结束，不锁定焦点
+        scheduler.start(true);
         timerFocus = new Timer();
         TimerTask task = new TimerTask() {
             @Override
             public void run() {
-                runnable.run();
+                scheduler.requestFocus();
+                if (scheduler.getState() == FocusScheduler.State.ACTIVE_SCAN) {
+                    scheduler.onAutoFocus(true);
+                }
             }
         };
         timerFocus.scheduleAtFixedRate(task, 0, cameraScanInterval);
@@ -57,13 +89,14 @@ public class FocusUtils {
     /**
      * 终止自动对焦任务，实际调用了cancel方法并且清空对象
      * 但是无法终止执行中的任务，需额外处理
+     *
+     * @deprecated 见{@link #createAutoFocusTimerTask(Runnable)}
      */
-    public static void cancelAutoFocusTimer() {
+    @Deprecated
+    public static synchronized void cancelAutoFocusTimer() {
         if (timerFocus != null) {
             timerFocus.cancel();
             timerFocus = null;
         }
     }
-
-
 }
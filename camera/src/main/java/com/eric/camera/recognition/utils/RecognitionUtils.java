@@ -6,6 +6,7 @@ import android.graphics.Canvas;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Point;
+import android.graphics.Rect;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffColorFilter;
 import android.util.TypedValue;
@@ -33,6 +34,81 @@ public class RecognitionUtils {
         return screenResolution;
     }
 
+    /**
+     * 将预览视图方向的矩形换算为相机原始方向（传感器方向）的矩形
+     *
+     * @param viewRect     预览视图方向的矩形
+     * @param rotation     预览旋转角度，即CameraConfigurationManager.getDisplayOrientation()
+     * @param sensorWidth  原始预览宽度
+     * @param sensorHeight 原始预览高度
+     * @return 原始方向的矩形
+     */
+    public static Rect mapRectToSensor(Rect viewRect, int rotation, int sensorWidth, int sensorHeight) {
+        switch ((rotation % 360 + 360) % 360) {
+            case 90:
+                return new Rect(viewRect.top, sensorHeight - viewRect.right, viewRect.bottom, sensorHeight - viewRect.left);
+            case 180:
+                return new Rect(sensorWidth - viewRect.right, sensorHeight - viewRect.bottom, sensorWidth - viewRect.left, sensorHeight - viewRect.top);
+            case 270:
+                return new Rect(sensorWidth - viewRect.bottom, viewRect.left, sensorWidth - viewRect.top, viewRect.right);
+            default:
+                return new Rect(viewRect);
+        }
+    }
+
+    /**
+     * 将预览视图中的矩形换算为相机对焦、测光区域的坐标：传感器方向，左上角(-1000, -1000)，右下角(1000, 1000)
+     *
+     * @param viewRect   预览视图坐标系的矩形
+     * @param viewWidth  预览视图宽度
+     * @param viewHeight 预览视图高度
+     * @param rotation   预览旋转角度，即CameraConfigurationManager.getDisplayOrientation()
+     * @return 相机区域坐标的矩形，超出画面的部分已去掉，与画面不相交时为null
+     */
+    public static Rect mapRectToCameraArea(Rect viewRect, int viewWidth, int viewHeight, int rotation) {
+        boolean swap = (rotation % 180 + 180) % 180 == 90;
+        int sensorWidth = swap ? viewHeight : viewWidth;
+        int sensorHeight = swap ? viewWidth : viewHeight;
+        if (sensorWidth <= 0 || sensorHeight <= 0) {
+            return null;
+        }
+        Rect sensorRect = mapRectToSensor(viewRect, rotation, sensorWidth, sensorHeight);
+        Rect area = new Rect(toCameraArea(sensorRect.left, sensorWidth), toCameraArea(sensorRect.top, sensorHeight),
+                toCameraArea(sensorRect.right, sensorWidth), toCameraArea(sensorRect.bottom, sensorHeight));
+        return area.isEmpty() ? null : area;
+    }
+
+    /**
+     * 将相机区域坐标（-1000~1000）换算为传感器有效像素区域的坐标，用于Camera2的对焦、测光区域。
+     * 预览图像是按预览宽高比居中裁剪的有效像素区域
+     *
+     * @param area          相机区域坐标的矩形
+     * @param arrayWidth    有效像素区域宽度，即SENSOR_INFO_ACTIVE_ARRAY_SIZE的宽度
+     * @param arrayHeight   有效像素区域高度
+     * @param previewWidth  预览宽度（传感器方向）
+     * @param previewHeight 预览高度（传感器方向）
+     * @return 相对有效像素区域左上角的矩形
+     */
+    public static Rect mapCameraAreaToActiveArray(Rect area, int arrayWidth, int arrayHeight,
+                                                  int previewWidth, int previewHeight) {
+        int cropWidth = arrayWidth;
+        int cropHeight = arrayHeight;
+        if ((long) arrayWidth * previewHeight > (long) arrayHeight * previewWidth) {
+            cropWidth = (int) ((long) arrayHeight * previewWidth / previewHeight);
+        } else {
+            cropHeight = (int) ((long) arrayWidth * previewHeight / previewWidth);
+        }
+        int left = (arrayWidth - cropWidth) / 2;
+        int top = (arrayHeight - cropHeight) / 2;
+        return new Rect(left + (area.left + 1000) * cropWidth / 2000, top + (area.top + 1000) * cropHeight / 2000,
+                left + (area.right + 1000) * cropWidth / 2000, top + (area.bottom + 1000) * cropHeight / 2000);
+    }
+
+    private static int toCameraArea(int value, int size) {
+        int area = (int) ((long) value * 2000 / size) - 1000;
+        return Math.max(-1000, Math.min(1000, area));
+    }
+
     public static int dp2px(Context context, float dpValue) {
         return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dpValue, context.getResources().getDisplayMetrics());
     }
@@ -0,0 +1,15 @@
+package com.eric.camera.recognition.view;
+
+import java.util.List;
+
+/**
+ * 多码识别结果回调，开启多码识别时同一帧中的全部结果一次性回调
+ */
+public interface MultiProcessDataResultListener extends ProcessDataResultListener {
+    /**
+     * 处理同一帧中识别到的全部结果，已去重
+     *
+     * @param results
+     */
+    void onProcessMultiDataSuccess(List<String> results);
+}
@@ -42,6 +42,8 @@ public class RecognitionScanBoxView extends View {
     private boolean isQrCodeStyle = false;
     private boolean mIsScanLineShow = true;
 
+    private OnPreviewRectChangeListener mOnPreviewRectChangeListener;
+
     public RecognitionScanBoxView(Context context, @Nullable AttributeSet attrs) {
         super(context, attrs);
         init(context);
@@ -117,6 +119,15 @@ public class RecognitionScanBoxView extends View {
         return mFramingRect;
     }
 
+    /**
+     * 设置扫描框位置变化的监听
+     *
+     * @param listener 为null时取消
+     */
+    public void setOnPreviewRectChangeListener(OnPreviewRectChangeListener listener) {
+        mOnPreviewRectChangeListener = listener;
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
         if (mFramingRect == null) {
@@ -292,7 +303,14 @@ public class RecognitionScanBoxView extends View {
 
     private void calFramingRect() {
         int leftOffset = (getWidth() - mRectWidth) / 2;
-        mFramingRect = new Rect(leftOffset, mTopOffset, leftOffset + mRectWidth, mTopOffset + mRectHeight);
+        Rect framingRect = new Rect(leftOffset, mTopOffset, leftOffset + mRectWidth, mTopOffset + mRectHeight);
+        if (framingRect.equals(mFramingRect)) {
+            return;
+        }
+        mFramingRect = framingRect;
+        if (mOnPreviewRectChangeListener != null) {
+            mOnPreviewRectChangeListener.onPreviewRectChanged(framingRect);
+        }
 
     }
 
@@ -338,4 +356,15 @@ public class RecognitionScanBoxView extends View {
             screenMaxWidth = 0;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 扫描框位置变化监听
+     */
+    public interface OnPreviewRectChangeListener {
+
+        /**
+         * @param previewRect 新的扫描框，本视图坐标系
+         */
+        void onPreviewRectChanged(Rect previewRect);
+    }
+}
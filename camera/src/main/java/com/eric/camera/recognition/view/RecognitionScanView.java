@@ -4,27 +4,130 @@ import android.content.Context;
 import android.graphics.Rect;
 import android.hardware.Camera;
 import android.os.Handler;
+import android.os.Looper;
 import android.os.Message;
 import android.util.AttributeSet;
 import android.widget.RelativeLayout;
 
 import com.eric.camera.R;
+import com.eric.camera.recognition.camera.Camera2Backend;
+import com.eric.camera.recognition.camera.CameraBackend;
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.eric.camera.recognition.decode.FrameQuality;
+import com.eric.camera.recognition.decode.FrameQualityGate;
+import com.eric.camera.recognition.decode.FrameSource;
+import com.eric.camera.recognition.decode.MotionEstimator;
+import com.eric.camera.recognition.decode.ResultVoter;
+import com.eric.camera.recognition.manager.FocusScheduler;
+import com.eric.camera.recognition.manager.PreviewSizePolicy;
+import com.eric.camera.recognition.manager.SensorControlerManager;
+import com.eric.camera.recognition.metrics.PipelineMetrics;
+import com.eric.camera.recognition.thread.PreviewBufferPool;
+import com.eric.camera.recognition.thread.PreviewDecodeExecutor;
+import com.eric.camera.recognition.thread.ProcessFrameListener;
 import com.eric.camera.recognition.thread.ProcessPreviewDataListener;
+import com.eric.camera.recognition.thread.ProcessPreviewDataListenerAdapter;
 import com.eric.camera.recognition.thread.ProcessPreviewDataThread;
+import com.eric.camera.recognition.thread.ScanScheduler;
 import com.eric.camera.recognition.utils.RecognitionUtils;
 
+import java.lang.reflect.Method;
+
 
 /**
  * 摄像头扫描框Layout
  */
-public abstract class RecognitionScanView extends RelativeLayout implements Camera.PreviewCallback, ProcessPreviewDataListener {
+public abstract class RecognitionScanView extends RelativeLayout implements Camera.PreviewCallback, ProcessPreviewDataListener, ProcessFrameListener {
+    /*
+     * 识别期间发布流程统计的间隔，毫秒
+     */
+    private static final long METRICS_PUBLISH_INTERVAL = 1000;
     protected Camera mCamera;
     protected RecognitionSurfaceView mPreview;
     protected RecognitionScanBoxView mCameraPreviewBoxView;
     protected ProcessDataResultListener listener;
     protected Handler mHandler;
     protected boolean isStartSpot = false;
-    private ProcessPreviewDataThread thread;
+    private PreviewDecodeExecutor mDecodeExecutor = new PreviewDecodeExecutor();
+    /*
+     * 识别批次，识别成功或停止识别后递增，用于丢弃过期的识别结果
+     */
+    private int mSpotId = 0;
+    /*
+     * 是否使用预览缓冲池（setPreviewCallbackWithBuffer）获取预览帧
+     */
+    private boolean isPreviewBufferEnabled = true;
+    /*
+     * 是否已请求下一帧预览数据
+     */
+    private boolean isPreviewFrameRequested = false;
+    /*
+     * 预览数据旋转方式
+     */
+    private int mRotateMode = ProcessPreviewDataThread.ROTATE_MODE_COPY;
+    /*
+     * 帧序号
+     */
+    private long mFrameSequence = 0;
+    /*
+     * 连续帧投票，为null时识别成功立即回调
+     */
+    private ResultVoter mResultVoter;
+    /*
+     * 帧质量门限，为null时每帧都识别
+     */
+    private FrameQualityGate mFrameQualityGate;
+    /*
+     * 运动估计，为null时不判断画面是否静止
+     */
+    private MotionEstimator mMotionEstimator;
+    /*
+     * 识别调度，为null时每次提交后固定等待500毫秒再请求下一帧
+     */
+    private ScanScheduler mScanScheduler = new ScanScheduler();
+    /*
+     * 是否优先使用Camera2，设备不支持时仍使用Camera1
+     */
+    private boolean isCamera2Enabled = false;
+    /*
+     * 预览尺寸和帧率范围的选择策略
+     */
+    private PreviewSizePolicy mPreviewSizePolicy = new PreviewSizePolicy();
+    /*
+     * 当前使用的相机后端，使用Camera1时为null
+     */
+    private CameraBackend mCameraBackend;
+    /*
+     * 代替摄像头的帧来源，如回放录制的帧
+     */
+    private FrameSource mFrameSource;
+    /*
+     * 流程统计，默认关闭
+     */
+    private final PipelineMetrics mPipelineMetrics = new PipelineMetrics();
+    /*
+     * 是否正在定期发布流程统计
+     */
+    private boolean isMetricsPublishing = false;
+    /*
+     * 加速度传感器，不为null时手机由移动变为静止后请求对焦
+     */
+    private SensorControlerManager mSensorControler;
+    /*
+     * 是否按扫描框设置对焦和测光区域
+     */
+    private boolean isScanBoxFocusAreaEnabled = true;
+    /*
+     * 最近一次设置的对焦区域，预览视图坐标系
+     */
+    private Rect mFocusViewRect;
+    /*
+     * 子类是否覆盖了旧的getProcessDataThread，第一次提交识别时检查
+     */
+    private Boolean isLegacyFactoryOverridden;
+    private final ProcessFrameListener mLegacyListenerAdapter = new ProcessPreviewDataListenerAdapter(this);
 
     public RecognitionScanView(Context context, AttributeSet attributeSet) {
         this(context, attributeSet, 0);
@@ -44,12 +147,70 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
 
     private void handleMsg(Message msg) {
         if (msg.what == ProcessPreviewDataThread.ProcessDataWhat) {
-            String result = (String) msg.obj;
-            if (result != null && !result.isEmpty() && listener != null) {
-                listener.onProcessDataSuccess(result);
-            } else {
-                startSpot();
+            if (!isStartSpot || msg.arg1 != mSpotId) {
+                // 过期的识别结果
+                mPipelineMetrics.increment(PipelineMetrics.Counter.DROPPED);
+                return;
+            }
+            DecodeResult result = (DecodeResult) msg.obj;
+            recordResultMetrics(result);
+            if (result != null && result.getQuality() != null) {
+                onFrameQuality(result.getQuality());
+            }
+            if (result != null && mScanScheduler != null) {
+                boolean steady = !result.isSkipped() && (mMotionEstimator == null || mMotionEstimator.isStable());
+                mScanScheduler.onFrameProcessed(result.getDecodeTimeNanos(), result.isSuccess(), steady, result.isSkipped());
+            }
+            if (result != null && !result.isSkipped() && mFrameSource == null) {
+                // 连续识别失败时对焦
+                mPreview.getFocusScheduler().onDecodeResult(result.isSuccess());
+            }
+            if (mResultVoter != null) {
+                // 未达成一致时继续识别，下一帧已在提交识别时预约
+                result = mResultVoter.vote(result);
+            }
+            if (result != null && result.isSuccess() && listener != null) {
+                finishSpot();
+                boolean timed = mPipelineMetrics.isEnabled();
+                long callbackStart = timed ? System.nanoTime() : 0;
+                if (result.isMultiple() && listener instanceof MultiProcessDataResultListener) {
+                    ((MultiProcessDataResultListener) listener).onProcessMultiDataSuccess(result.getTexts());
+                } else {
+                    listener.onProcessDataSuccess(result.getText());
+                }
+                if (timed) {
+                    long now = System.nanoTime();
+                    mPipelineMetrics.record(PipelineMetrics.Stage.CALLBACK, now - callbackStart);
+                    if (result.getFrameTimestamp() != 0) {
+                        mPipelineMetrics.record(PipelineMetrics.Stage.TOTAL, now - result.getFrameTimestamp());
+                    }
+                }
             }
+            // 识别失败时下一帧已在提交识别时预约，无需重新开始
+        }
+    }
+
+    /**
+     * 统计识别线程发来的一帧结果：传递耗时、跳过/失败/成功计数，以及失败帧的总耗时
+     */
+    private void recordResultMetrics(DecodeResult result) {
+        if (!mPipelineMetrics.isEnabled() || result == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (result.getSentNanos() != 0) {
+            mPipelineMetrics.record(PipelineMetrics.Stage.DELIVERY, now - result.getSentNanos());
+        }
+        if (result.isSkipped()) {
+            mPipelineMetrics.increment(PipelineMetrics.Counter.SKIPPED);
+        } else if (result.isSuccess()) {
+            mPipelineMetrics.increment(PipelineMetrics.Counter.SUCCEEDED);
+        } else {
+            mPipelineMetrics.increment(PipelineMetrics.Counter.FAILED);
+        }
+        if ((!result.isSuccess() || listener == null) && result.getFrameTimestamp() != 0) {
+            // 成功且有回调时在回调结束后统计
+            mPipelineMetrics.record(PipelineMetrics.Stage.TOTAL, now - result.getFrameTimestamp());
         }
     }
 
@@ -62,6 +223,52 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         layoutParams.addRule(RelativeLayout.ALIGN_TOP, mPreview.getId());
         layoutParams.addRule(RelativeLayout.ALIGN_BOTTOM, mPreview.getId());
         addView(mCameraPreviewBoxView, layoutParams);
+        mCameraPreviewBoxView.setOnPreviewRectChangeListener(new RecognitionScanBoxView.OnPreviewRectChangeListener() {
+            @Override
+            public void onPreviewRectChanged(Rect previewRect) {
+                updateFocusArea();
+            }
+        });
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (changed) {
+            updateFocusArea();
+        }
+    }
+
+    /**
+     * 设置是否按扫描框设置对焦和测光区域，关闭后对焦和测光使用整个画面
+     *
+     * @param scanBoxFocusAreaEnabled
+     */
+    public void setScanBoxFocusAreaEnabled(boolean scanBoxFocusAreaEnabled) {
+        isScanBoxFocusAreaEnabled = scanBoxFocusAreaEnabled;
+        updateFocusArea();
+    }
+
+    public boolean isScanBoxFocusAreaEnabled() {
+        return isScanBoxFocusAreaEnabled;
+    }
+
+    /**
+     * 把扫描框换算到预览视图坐标系作为对焦和测光区域，扫描框背景较亮时框内的条码不会欠曝
+     */
+    private void updateFocusArea() {
+        Rect rect = isScanBoxFocusAreaEnabled ? mCameraPreviewBoxView.getPreviewRect() : null;
+        Rect viewRect = null;
+        if (rect != null && !rect.isEmpty()) {
+            viewRect = new Rect(rect);
+            viewRect.offset(mCameraPreviewBoxView.getLeft() - mPreview.getLeft(),
+                    mCameraPreviewBoxView.getTop() - mPreview.getTop());
+        }
+        if (viewRect == null ? mFocusViewRect == null : viewRect.equals(mFocusViewRect)) {
+            return;
+        }
+        mFocusViewRect = viewRect;
+        mPreview.setFocusArea(viewRect);
     }
 
     public RecognitionScanBoxView getScanBoxView() {
@@ -72,6 +279,230 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         this.listener = listener;
     }
 
+    /**
+     * 是否使用预览缓冲池获取预览帧
+     *
+     * @return
+     */
+    public boolean isPreviewBufferEnabled() {
+        return isPreviewBufferEnabled;
+    }
+
+    /**
+     * 设置是否使用预览缓冲池获取预览帧，关闭后每次识别使用setOneShotPreviewCallback
+     *
+     * @param previewBufferEnabled
+     */
+    public void setPreviewBufferEnabled(boolean previewBufferEnabled) {
+        isPreviewBufferEnabled = previewBufferEnabled;
+    }
+
+    /**
+     * 设置预览数据旋转方式，便于对比两种方式的识别率和耗时
+     *
+     * @param rotateMode ProcessPreviewDataThread.ROTATE_MODE_COPY 或 ProcessPreviewDataThread.ROTATE_MODE_SENSOR（只重写processData时仍会先旋转识别区域）
+     */
+    public void setRotateMode(int rotateMode) {
+        mRotateMode = rotateMode;
+    }
+
+    public int getRotateMode() {
+        return mRotateMode;
+    }
+
+    /**
+     * 设置识别执行器，可指定识别线程数、队列容量和队列满时的处理策略
+     *
+     * @param decodeExecutor
+     */
+    public void setDecodeExecutor(PreviewDecodeExecutor decodeExecutor) {
+        if (decodeExecutor == null || decodeExecutor == mDecodeExecutor) {
+            return;
+        }
+        mDecodeExecutor.shutdown();
+        mDecodeExecutor = decodeExecutor;
+    }
+
+    /**
+     * 设置连续帧投票，一维码需要连续多帧识别结果一致才回调，二维码等强校验码制直接回调
+     *
+     * @param resultVoter 为null时关闭投票，识别成功立即回调
+     */
+    public void setResultVoter(ResultVoter resultVoter) {
+        mResultVoter = resultVoter;
+    }
+
+    public ResultVoter getResultVoter() {
+        return mResultVoter;
+    }
+
+    /**
+     * 设置帧质量门限，模糊、对比度过低或曝光异常的帧不识别
+     *
+     * @param frameQualityGate 为null时每帧都识别
+     */
+    public void setFrameQualityGate(FrameQualityGate frameQualityGate) {
+        mFrameQualityGate = frameQualityGate;
+    }
+
+    public FrameQualityGate getFrameQualityGate() {
+        return mFrameQualityGate;
+    }
+
+    /**
+     * 设置运动估计，画面静止后才识别，同时在画面由运动变为静止时触发对焦
+     *
+     * @param motionEstimator 为null时每帧都识别
+     */
+    public void setMotionEstimator(MotionEstimator motionEstimator) {
+        mMotionEstimator = motionEstimator;
+        if (motionEstimator == null) {
+            mPreview.onSceneStabilityChanged(true);
+        }
+    }
+
+    public MotionEstimator getMotionEstimator() {
+        return mMotionEstimator;
+    }
+
+    /**
+     * 设置识别调度，按识别耗时、成功率和画面状态决定下一帧的请求时间，可通过setRateBounds限制识别频率
+     *
+     * @param scanScheduler 为null时每次提交后固定等待500毫秒
+     */
+    public void setScanScheduler(ScanScheduler scanScheduler) {
+        mScanScheduler = scanScheduler;
+    }
+
+    public ScanScheduler getScanScheduler() {
+        return mScanScheduler;
+    }
+
+    /**
+     * 对焦调度：优先连续对焦，画面由运动变为静止或连续多帧识别失败时主动对焦，对焦中的帧不识别
+     *
+     * @return 对焦调度
+     */
+    public FocusScheduler getFocusScheduler() {
+        return mPreview.getFocusScheduler();
+    }
+
+    /**
+     * 设置是否用加速度传感器判断手机由移动变为静止并请求对焦，与运动估计可同时使用
+     *
+     * @param sensorFocusEnabled
+     */
+    public void setSensorFocusEnabled(boolean sensorFocusEnabled) {
+        if (sensorFocusEnabled == (mSensorControler != null)) {
+            return;
+        }
+        if (sensorFocusEnabled) {
+            mSensorControler = SensorControlerManager.getInstance(getContext());
+            mSensorControler.setCameraFocusListener(new SensorControlerManager.CameraFocusListener() {
+                @Override
+                public void onFocus() {
+                    mPreview.getFocusScheduler().requestFocus();
+                }
+            });
+            if (mCamera != null || mCameraBackend != null) {
+                mSensorControler.onStart();
+            }
+        } else {
+            mSensorControler.onStop();
+            mSensorControler.setCameraFocusListener(null);
+            mSensorControler = null;
+        }
+    }
+
+    public boolean isSensorFocusEnabled() {
+        return mSensorControler != null;
+    }
+
+    /**
+     * 设置是否优先使用Camera2：预览帧直接从ImageReader的Y分量缓冲区识别，不复制整帧。
+     * 下次打开摄像头时生效，设备不支持时仍使用Camera1
+     *
+     * @param camera2Enabled
+     */
+    public void setCamera2Enabled(boolean camera2Enabled) {
+        isCamera2Enabled = camera2Enabled;
+    }
+
+    public boolean isCamera2Enabled() {
+        return isCamera2Enabled;
+    }
+
+    /**
+     * 设置预览尺寸和帧率范围的选择策略：按预期条码大小和每模块像素数选择扫描框内像素足够的最小预览尺寸，
+     * 减少复制、旋转和识别的开销。下次打开摄像头时生效
+     *
+     * @param previewSizePolicy 为null时使用默认策略
+     */
+    public void setPreviewSizePolicy(PreviewSizePolicy previewSizePolicy) {
+        mPreviewSizePolicy = previewSizePolicy != null ? previewSizePolicy : new PreviewSizePolicy();
+    }
+
+    public PreviewSizePolicy getPreviewSizePolicy() {
+        return mPreviewSizePolicy;
+    }
+
+    /**
+     * 当前使用的相机后端，使用Camera1或未打开时为null
+     */
+    public CameraBackend getCameraBackend() {
+        return mCameraBackend;
+    }
+
+    /**
+     * 设置代替摄像头的帧来源，如ReplayFrameSource回放录制的帧，帧经过与摄像头相同的运动估计、识别和投票流程。
+     * 设置后不再打开摄像头，已打开的摄像头仍然预览但不再用于识别
+     *
+     * @param frameSource 为null时恢复使用摄像头
+     */
+    public void setFrameSource(FrameSource frameSource) {
+        if (mFrameSource != null && mFrameSource != frameSource) {
+            mFrameSource.requestFrame(null);
+        }
+        mFrameSource = frameSource;
+    }
+
+    public FrameSource getFrameSource() {
+        return mFrameSource;
+    }
+
+    /**
+     * 当前用于识别的帧来源，使用Camera1时为null
+     */
+    private FrameSource currentFrameSource() {
+        return mFrameSource != null ? mFrameSource : mCameraBackend;
+    }
+
+    /**
+     * 摄像头是否已打开，设置了帧来源时视为已打开
+     */
+    protected boolean isCameraOpen() {
+        return mCamera != null || mCameraBackend != null || mFrameSource != null;
+    }
+
+    /**
+     * 流程统计：帧到达、排队、旋转、识别、结果传递和回调各阶段的耗时直方图，以及提交、丢弃、跳过、失败和成功的帧数。
+     * 默认关闭，通过getPipelineMetrics().setEnabled(true)开启；可随时读取snapshot()，
+     * 也可addListener订阅，识别期间每秒在主线程发布一次
+     *
+     * @return 流程统计
+     */
+    public PipelineMetrics getPipelineMetrics() {
+        return mPipelineMetrics;
+    }
+
+    /**
+     * 收到当前识别批次中一帧的质量评分，在主线程回调，开启帧质量门限后每帧都会回调
+     *
+     * @param quality 帧质量评分
+     */
+    protected void onFrameQuality(FrameQuality quality) {
+    }
+
     /**
      * 打开后置摄像头开始预览，但是并未开始识别
      */
@@ -85,15 +516,74 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
      * @param cameraFacing
      */
     private void startCamera(int cameraFacing) {
-        if (mCamera != null) {
+        if (isCameraOpen()) {
             return;
         }
+        if (isCamera2Enabled && Camera2Backend.isSupported(getContext())) {
+            Camera2Backend backend = new Camera2Backend(getContext());
+            backend.setPreviewSizePolicy(mPreviewSizePolicy, getPreviewBoxWidth());
+            if (backend.open(cameraFacing)) {
+                backend.setErrorCallback(new CameraBackendErrorCallback(backend, cameraFacing));
+                mCameraBackend = backend;
+                mPreview.setCameraBackend(backend);
+                startSensorFocus();
+                return;
+            }
+        }
+        startLegacyCamera(cameraFacing);
+    }
+
+    /**
+     * 用Camera1打开指定摄像头
+     *
+     * @return 是否找到该朝向的摄像头
+     */
+    private boolean startLegacyCamera(int cameraFacing) {
+        mPreview.setPreviewSizePolicy(mPreviewSizePolicy, getPreviewBoxWidth());
         Camera.CameraInfo cameraInfo = new Camera.CameraInfo();
         for (int cameraId = 0; cameraId < Camera.getNumberOfCameras(); cameraId++) {
             Camera.getCameraInfo(cameraId, cameraInfo);
             if (cameraInfo.facing == cameraFacing) {
                 startCameraById(cameraId);
-                break;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int getPreviewBoxWidth() {
+        Rect box = mCameraPreviewBoxView.getPreviewRect();
+        return box != null ? box.width() : 0;
+    }
+
+    /**
+     * Camera2异步打开或预览出错：还没有出过预览时改用Camera1，否则通知摄像头出错
+     */
+    private class CameraBackendErrorCallback implements CameraBackend.ErrorCallback {
+        private final CameraBackend mBackend;
+        private final int mCameraFacing;
+
+        CameraBackendErrorCallback(CameraBackend backend, int cameraFacing) {
+            mBackend = backend;
+            mCameraFacing = cameraFacing;
+        }
+
+        @Override
+        public void onError(int error, boolean previewStarted) {
+            if (mCameraBackend != mBackend) {
+                // 已经关闭或换了摄像头
+                return;
+            }
+            closeCameraBackend();
+            if (!previewStarted && startLegacyCamera(mCameraFacing)) {
+                if (mCamera != null && isStartSpot && mFrameSource == null) {
+                    // 之前向Camera2请求的帧不会再回调
+                    requestPreviewFrame();
+                }
+                return;
+            }
+            if (listener != null) {
+                listener.onCameraError();
             }
         }
     }
@@ -102,6 +592,7 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         try {
             mCamera = Camera.open(cameraId);
             mPreview.setCamera(mCamera);
+            startSensorFocus();
         } catch (Exception e) {
             if (listener != null) {
                 listener.onCameraError();
@@ -109,10 +600,20 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         }
     }
 
+    private void startSensorFocus() {
+        if (mSensorControler != null) {
+            mSensorControler.onStart();
+        }
+    }
+
     /**
      * 关闭摄像头预览，并且隐藏扫描框
      */
     public void stopCamera() {
+        if (mSensorControler != null) {
+            mSensorControler.onStop();
+        }
+        closeCameraBackend();
         try {
             if (mCamera != null) {
                 mPreview.stopCameraPreview();
@@ -125,6 +626,15 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         mCamera = null;
     }
 
+    private void closeCameraBackend() {
+        if (mCameraBackend != null) {
+            mPreview.stopCameraPreview();
+            mPreview.setCameraBackend(null);
+            mCameraBackend.close();
+            mCameraBackend = null;
+        }
+    }
+
     /**
      * 延迟0.5秒后开始识别
      */
@@ -139,10 +649,11 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
      */
     public void startSpotDelay(int delay) {
         isStartSpot = true;
+        startMetricsPublishing();
 
         startCamera();
         if (delay == 0) {
-            mCamera.setOneShotPreviewCallback(RecognitionScanView.this);
+            requestPreviewFrame();
             return;
         }
         // 开始前先移除之前的任务
@@ -158,8 +669,14 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
     public void stopSpot() {
         cancelProcessDataTask();
 
+        mSpotId++;
+        resetSpotState();
         isStartSpot = false;
+        isPreviewFrameRequested = false;
 
+        if (currentFrameSource() != null) {
+            currentFrameSource().requestFrame(null);
+        }
         if (mCamera != null) {
             try {
                 mCamera.setOneShotPreviewCallback(null);
@@ -169,6 +686,7 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         if (mHandler != null) {
             mHandler.removeCallbacks(mOneShotPreviewCallbackTask);
         }
+        stopMetricsPublishing();
     }
 
 
@@ -200,18 +718,70 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
      * 销毁
      */
     public void onDestroy() {
+        mDecodeExecutor.shutdown();
         mHandler = null;
         listener = null;
         mOneShotPreviewCallbackTask = null;
     }
 
+    /**
+     * 清空投票、运动估计和识别调度中上一批次的状态
+     */
+    private void resetSpotState() {
+        if (mResultVoter != null) {
+            mResultVoter.reset();
+        }
+        if (mMotionEstimator != null) {
+            mMotionEstimator.reset();
+        }
+        if (mScanScheduler != null) {
+            mScanScheduler.reset();
+        }
+    }
+
+    private void startMetricsPublishing() {
+        // 每帧识别都会调用，开启统计并订阅后下一帧开始定期发布
+        if (isMetricsPublishing || mHandler == null
+                || !mPipelineMetrics.isEnabled() || !mPipelineMetrics.hasListeners()) {
+            return;
+        }
+        isMetricsPublishing = true;
+        mHandler.postDelayed(mPublishMetricsTask, METRICS_PUBLISH_INTERVAL);
+    }
+
+    /**
+     * 停止识别时再发布一次，订阅者能拿到本次识别的完整统计
+     */
+    private void stopMetricsPublishing() {
+        if (!isMetricsPublishing) {
+            return;
+        }
+        isMetricsPublishing = false;
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mPublishMetricsTask);
+        }
+        if (mPipelineMetrics.isEnabled()) {
+            mPipelineMetrics.publish();
+        }
+    }
+
     /**
      * 取消数据处理任务
      */
     protected void cancelProcessDataTask() {
-        if (thread != null) {
-            thread.interrupt();
-            thread = null;
+        mDecodeExecutor.clear();
+    }
+
+    /**
+     * 识别成功，丢弃尚未处理的帧和已预约的下一帧
+     */
+    private void finishSpot() {
+        mSpotId++;
+        resetSpotState();
+        cancelProcessDataTask();
+        isPreviewFrameRequested = false;
+        if (mHandler != null) {
+            mHandler.removeCallbacks(mOneShotPreviewCallbackTask);
         }
     }
 
@@ -234,30 +804,189 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
         mCameraPreviewBoxView.setQrCodeStyle(isQrCodeStyle);
     }
 
+    /**
+     * 请求下一帧预览数据，开启缓冲池时从池中取出一块缓冲交给相机填充
+     */
+    private void requestPreviewFrame() {
+        FrameSource frameSource = currentFrameSource();
+        if (frameSource != null) {
+            isPreviewFrameRequested = true;
+            frameSource.requestFrame(mFrameSourceCallback);
+            return;
+        }
+        if (mCamera == null) {
+            return;
+        }
+        isPreviewFrameRequested = true;
+        if (isPreviewBufferEnabled) {
+            byte[] buffer = mPreview.getPreviewBufferPool().acquire();
+            if (buffer != null) {
+                mCamera.setPreviewCallbackWithBuffer(RecognitionScanView.this);
+                mCamera.addCallbackBuffer(buffer);
+                return;
+            }
+        }
+        mCamera.setOneShotPreviewCallback(RecognitionScanView.this);
+    }
+
     @Override
     public void onPreviewFrame(byte[] data, final Camera camera) {
-        if (isStartSpot) {
+        if (isStartSpot && isPreviewFrameRequested) {
+            isPreviewFrameRequested = false;
             onResultPreview(data, camera);
+        } else {
+            mPreview.getPreviewBufferPool().release(data);
         }
     }
 
     protected void onResultPreview(byte[] data, Camera camera) {
-        cancelProcessDataTask();
-        thread = getProcessDataThread(getContext(), data, camera, getScanBoxView().getPreviewRect(), mHandler);
-        thread.setProcessPreviewDataListener(this);
-        thread.start();
+        FrameMetadata metadata = mPreview.getFrameMetadata();
+        if (metadata == null) {
+            mPreview.getPreviewBufferPool().release(data);
+            startSpot();
+            return;
+        }
+        Rect rect = getScanBoxView().getPreviewRect();
+        if (rect == null) {
+            rect = new Rect();
+        }
+        Frame.Releaser releaser = isPreviewBufferEnabled ? mPreviewBufferReleaser : null;
+        Frame frame = new Frame(data, metadata, System.nanoTime(), mFrameSequence++,
+                rect.left, rect.top, rect.width(), rect.height(), releaser);
+        submitFrame(frame);
     }
 
+    /**
+     * 运动估计后提交识别，并预约下一帧
+     *
+     * @param frame 识别区域为扫描框的帧
+     */
+    private void submitFrame(Frame frame) {
+        if (mMotionEstimator != null) {
+            mMotionEstimator.update(frame);
+            boolean stable = mMotionEstimator.isStable();
+            mPreview.onSceneStabilityChanged(stable);
+            if (!stable) {
+                mPipelineMetrics.increment(PipelineMetrics.Counter.SKIPPED);
+                // 运动中的帧不识别，运动估计很快，直接请求下一帧
+                frame.release();
+                requestPreviewFrame();
+                return;
+            }
+        }
+        if (mFrameSource == null && mPreview.isFocusing()) {
+            // 镜头移动中拍到的帧是模糊的，不识别，等待对焦结束
+            mPipelineMetrics.increment(PipelineMetrics.Counter.SKIPPED);
+            frame.release();
+            requestPreviewFrame();
+            return;
+        }
+        ProcessPreviewDataThread task;
+        if (mFrameSource == null && mCamera != null && frame.hasArray() && isLegacyFactoryOverridden()) {
+            // 子类覆盖了旧的工厂方法时仍然调用，数据交给任务后不再归还缓冲池
+            Rect rect = new Rect(frame.getRoiLeft(), frame.getRoiTop(),
+                    frame.getRoiLeft() + frame.getRoiWidth(), frame.getRoiTop() + frame.getRoiHeight());
+            task = getProcessDataThread(getContext(), frame.getData(), mCamera, rect, mHandler);
+        } else {
+            task = getProcessDataThread(getContext(), frame, mHandler);
+        }
+        task.setProcessFrameListener(this);
+        task.setSpotId(mSpotId);
+        task.setRotateMode(mRotateMode);
+        task.setFrameQualityGate(mFrameQualityGate);
+        task.setPipelineMetrics(mPipelineMetrics);
+        mPipelineMetrics.increment(PipelineMetrics.Counter.SUBMITTED);
+        mDecodeExecutor.submit(task);
+        // 识别当前帧的同时预约下一帧
+        startSpotDelay(mScanScheduler != null ? (int) mScanScheduler.nextDelayMillis() : 500);
+    }
+
+    public ProcessPreviewDataThread getProcessDataThread(Context context, Frame frame, Handler mHandler) {
+        return new ProcessPreviewDataThread(context, frame, mHandler);
+    }
+
+    /**
+     * 旧的工厂方法。子类覆盖时，Camera1预览帧仍通过它创建识别任务，但每帧都要读取相机参数，
+     * 且帧缓冲不再复用；相机为Camera2或帧来自FrameSource时不会调用
+     *
+     * @deprecated 使用 {@link #getProcessDataThread(Context, Frame, Handler)}
+     */
+    @Deprecated
     public ProcessPreviewDataThread getProcessDataThread(Context context, byte[] data, Camera camera, Rect previewRect, Handler mHandler) {
-        return new ProcessPreviewDataThread(getContext(), data, camera, getScanBoxView().getPreviewRect(), mHandler);
+        return new ProcessPreviewDataThread(context, data, camera, previewRect, mHandler);
+    }
+
+    private boolean isLegacyFactoryOverridden() {
+        if (isLegacyFactoryOverridden == null) {
+            try {
+                Method method = getClass().getMethod("getProcessDataThread",
+                        Context.class, byte[].class, Camera.class, Rect.class, Handler.class);
+                isLegacyFactoryOverridden = method.getDeclaringClass() != RecognitionScanView.class;
+            } catch (NoSuchMethodException e) {
+                isLegacyFactoryOverridden = false;
+            }
+        }
+        return isLegacyFactoryOverridden;
     }
 
+    private final Frame.Releaser mPreviewBufferReleaser = new Frame.Releaser() {
+        @Override
+        public void release(Frame frame) {
+            mPreview.getPreviewBufferPool().release(frame.getData());
+        }
+    };
+
+    private final FrameSource.FrameCallback mFrameSourceCallback = new FrameSource.FrameCallback() {
+        @Override
+        public void onFrame(final Frame frame) {
+            if (Looper.myLooper() != Looper.getMainLooper()) {
+                // 回放等帧来源在自己的线程回调，切换到主线程
+                Handler handler = mHandler;
+                if (handler == null || !handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onFrame(frame);
+                    }
+                })) {
+                    frame.release();
+                }
+                return;
+            }
+            if (!isStartSpot || !isPreviewFrameRequested || currentFrameSource() == null) {
+                frame.release();
+                return;
+            }
+            isPreviewFrameRequested = false;
+            Rect rect = getScanBoxView().getPreviewRect();
+            if (rect == null) {
+                rect = new Rect();
+            }
+            submitFrame(frame.withRoi(rect.left, rect.top, rect.width(), rect.height()));
+        }
+    };
+
+    private final Runnable mPublishMetricsTask = new Runnable() {
+        @Override
+        public void run() {
+            if (!isMetricsPublishing || mHandler == null) {
+                return;
+            }
+            if (!mPipelineMetrics.isEnabled() || !mPipelineMetrics.hasListeners()) {
+                // 关闭统计或取消订阅后不再定期唤醒主线程
+                isMetricsPublishing = false;
+                return;
+            }
+            mPipelineMetrics.publish();
+            mHandler.postDelayed(this, METRICS_PUBLISH_INTERVAL);
+        }
+    };
+
     private Runnable mOneShotPreviewCallbackTask = new Runnable() {
         @Override
         public void run() {
-            if (mCamera != null && isStartSpot) {
+            if (isCameraOpen() && isStartSpot) {
                 try {
-                    mCamera.setOneShotPreviewCallback(RecognitionScanView.this);
+                    requestPreviewFrame();
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
@@ -269,4 +998,12 @@ public abstract class RecognitionScanView extends RelativeLayout implements Came
     public String processData(byte[] data, int width, int height, Rect previewRect) {
         return null;
     }
+
+    /**
+     * 默认通过适配器调用processData，子类可直接重写处理帧
+     */
+    @Override
+    public DecodeResult processFrame(Frame frame) {
+        return mLegacyListenerAdapter.processFrame(frame);
+    }
 }
\ No newline at end of file
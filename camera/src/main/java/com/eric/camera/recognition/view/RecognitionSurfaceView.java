@@ -10,8 +10,13 @@ import android.util.Log;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
+import com.eric.camera.recognition.camera.CameraBackend;
+import com.eric.camera.recognition.decode.FrameMetadata;
 import com.eric.camera.recognition.manager.CameraConfigurationManager;
-import com.eric.camera.recognition.utils.FocusUtils;
+import com.eric.camera.recognition.manager.FocusScheduler;
+import com.eric.camera.recognition.manager.PreviewSizePolicy;
+import com.eric.camera.recognition.thread.PreviewBufferPool;
+import com.eric.camera.recognition.utils.RecognitionUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,18 +27,125 @@ import java.util.List;
 public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
     private static final String TAG = RecognitionSurfaceView.class.getSimpleName();
     private Camera mCamera;
+    /*
+     * 相机后端，不为null时代替mCamera负责预览、对焦和闪光灯
+     */
+    private CameraBackend mCameraBackend;
     private boolean mPreviewing = true;
     private boolean mSurfaceCreated = false;
     private CameraConfigurationManager mCameraConfigurationManager;
+    private final PreviewBufferPool mPreviewBufferPool = new PreviewBufferPool();
+    private volatile FrameMetadata mFrameMetadata;
+    /*
+     * 对焦调度，Camera1和相机后端的对焦都由它触发
+     */
+    private final FocusScheduler mFocusScheduler;
+    /*
+     * 手动对焦的回调，对焦结束后调用一次
+     */
+    private Camera.AutoFocusCallback mManualFocusCallback;
+    /*
+     * 对焦和测光区域，本视图坐标系，为null时使用整个画面
+     */
+    private Rect mFocusViewRect;
+    /*
+     * 预览尺寸和帧率范围的选择策略，为null时使用默认策略
+     */
+    private PreviewSizePolicy mPreviewSizePolicy;
+    /*
+     * 扫描框宽度，选择预览尺寸时计算扫描框内的像素
+     */
+    private int mScanBoxWidth;
 
     public RecognitionSurfaceView(Context context) {
         super(context);
+        mFocusScheduler = new FocusScheduler(mFocusDriver);
+    }
+
+    public CameraConfigurationManager getCameraConfigurationManager() {
+        return mCameraConfigurationManager;
+    }
+
+    /**
+     * 对焦调度，可调整触发对焦的失败帧数和最短间隔
+     *
+     * @return 对焦调度
+     */
+    public FocusScheduler getFocusScheduler() {
+        return mFocusScheduler;
+    }
+
+    /**
+     * 镜头是否正在对焦，此时的预览帧是模糊的
+     */
+    public boolean isFocusing() {
+        return mFocusScheduler.isFocusing();
+    }
+
+    /**
+     * 设置对焦和测光区域，通常为扫描框所在的位置，打开预览和视图尺寸变化时重新换算
+     *
+     * @param viewRect 本视图坐标系的矩形，为null时使用整个画面
+     */
+    public void setFocusArea(Rect viewRect) {
+        mFocusViewRect = viewRect == null ? null : new Rect(viewRect);
+        applyFocusArea();
+    }
+
+    /**
+     * 按当前视图尺寸和预览方向把区域换算到相机坐标并设置
+     */
+    private void applyFocusArea() {
+        if (mCameraBackend != null) {
+            mCameraBackend.setFocusArea(mFocusViewRect, getWidth(), getHeight());
+            return;
+        }
+        if (mCamera != null && mCameraConfigurationManager != null) {
+            mCameraConfigurationManager.setFocusArea(mCamera, cameraFocusArea());
+        }
+    }
+
+    /**
+     * Camera1的对焦区域，相机区域坐标
+     */
+    private Rect cameraFocusArea() {
+        if (mFocusViewRect == null) {
+            return null;
+        }
+        return RecognitionUtils.mapRectToCameraArea(mFocusViewRect, getWidth(), getHeight(),
+                mCameraConfigurationManager.getDisplayOrientation());
+    }
+
+    public PreviewBufferPool getPreviewBufferPool() {
+        return mPreviewBufferPool;
+    }
+
+    /**
+     * 获取当前相机配置下的预览帧信息，相机参数设置完成前为null
+     *
+     * @return 预览帧信息
+     */
+    public FrameMetadata getFrameMetadata() {
+        return currentFrameMetadata();
+    }
+
+    /**
+     * 设置预览尺寸和帧率范围的选择策略，下次setCamera时生效
+     *
+     * @param previewSizePolicy 选择策略，为null时使用默认策略
+     * @param scanBoxWidth      扫描框宽度（屏幕像素），不大于0时选择与屏幕尺寸最接近的预览尺寸
+     */
+    public void setPreviewSizePolicy(PreviewSizePolicy previewSizePolicy, int scanBoxWidth) {
+        mPreviewSizePolicy = previewSizePolicy;
+        mScanBoxWidth = scanBoxWidth;
     }
 
     public void setCamera(Camera camera) {
         mCamera = camera;
         if (mCamera != null) {
             mCameraConfigurationManager = new CameraConfigurationManager(getContext());
+            mCameraConfigurationManager.setPreviewSizePolicy(mPreviewSizePolicy);
+            mCameraConfigurationManager.setScanBoxWidth(mScanBoxWidth);
             mCameraConfigurationManager.initFromCameraParameters(mCamera);
 
             getHolder().addCallback(this);
@@ -45,6 +157,39 @@ public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder
         }
     }
 
+    /**
+     * 使用相机后端预览，与setCamera二选一
+     *
+     * @param cameraBackend 已打开的相机后端，为null时取消
+     */
+    public void setCameraBackend(CameraBackend cameraBackend) {
+        if (mCameraBackend != null) {
+            mCameraBackend.setFocusCallback(null);
+        }
+        mCameraBackend = cameraBackend;
+        if (mCameraBackend != null) {
+            mCameraBackend.setFocusCallback(mBackendFocusCallback);
+            applyFocusArea();
+            getHolder().addCallback(this);
+            if (mPreviewing) {
+                requestLayout();
+            } else {
+                showCameraPreview();
+            }
+        }
+    }
+
+    public CameraBackend getCameraBackend() {
+        return mCameraBackend;
+    }
+
+    /**
+     * 获取当前预览帧信息，使用相机后端时由后端提供
+     */
+    private FrameMetadata currentFrameMetadata() {
+        return mCameraBackend != null ? mCameraBackend.getFrameMetadata() : mFrameMetadata;
+    }
+
     @Override
     public void surfaceCreated(SurfaceHolder surfaceHolder) {
         mSurfaceCreated = true;
@@ -71,52 +216,51 @@ public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder
     }
 
     public void showCameraPreview() {
+        if (mCameraBackend != null) {
+            if (mSurfaceCreated) {
+                mPreviewing = true;
+                mCameraBackend.startPreview(getHolder());
+                mFocusScheduler.start(mCameraBackend.isContinuousFocusSupported());
+            }
+            return;
+        }
         if (mCamera != null) {
             try {
                 mPreviewing = true;
                 mCamera.setPreviewDisplay(getHolder());
+                // 与预览参数一起设置
+                mCameraConfigurationManager.setFocusArea(null, cameraFocusArea());
                 mCameraConfigurationManager.setDesiredCameraParameters(mCamera);
+                mPreviewBufferPool.setBufferSize(mCameraConfigurationManager.getPreviewBufferSize());
+                Point previewResolution = mCameraConfigurationManager.getPreviewResolution();
+                mFrameMetadata = new FrameMetadata(previewResolution.x, previewResolution.y, previewResolution.x,
+                        FrameMetadata.FORMAT_NV21, mCameraConfigurationManager.getPreviewDisplayOrientation());
                 mCamera.startPreview();
-                mCamera.autoFocus(autoFocusCB);
+                if (mCameraConfigurationManager.isAutoFocusSupported()) {
+                    boolean continuous = mCameraConfigurationManager.isContinuousFocus();
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+                        mCamera.setAutoFocusMoveCallback(continuous ? mAutoFocusMoveCallback : null);
+                    }
+                    mFocusScheduler.start(continuous);
+                }
             } catch (Exception e) {
                 Log.e(TAG, e.toString(), e);
             }
         }
     }
 
-    private void startAutoFocus() {
-        FocusUtils.createAutoFocusTimerTask(new Runnable() {
-            @Override
-            public void run() {
-                synchronized (RecognitionSurfaceView.this) {
-                    if (mCamera != null) {
-                        try {
-                            mCamera.autoFocus(new Camera.AutoFocusCallback() {
-                                @Override
-                                public void onAutoFocus(boolean success, Camera camera) {
-                                }
-                            });
-                        } catch (Throwable e) {
-                            // startPreview是异步实现，可能在某些机器上前几次调用会autofocus failß
-                        }
-                    }
-                }
-            }
-        });
-    }
-
-    private void cancelAutoFocus() {
-        mCamera.cancelAutoFocus();
-        FocusUtils.cancelAutoFocusTimer();
-    }
-
     public void stopCameraPreview() {
+        mFocusScheduler.stop();
+        mManualFocusCallback = null;
+        if (mCameraBackend != null) {
+            mPreviewing = false;
+            mCameraBackend.stopPreview();
+            return;
+        }
         if (mCamera != null) {
             try {
-                removeCallbacks(doAutoFocus);
-                cancelAutoFocus();
+                mCamera.cancelAutoFocus();
                 mPreviewing = false;
-//                mCamera.cancelAutoFocus();
                 mCamera.setOneShotPreviewCallback(null);
                 mCamera.stopPreview();
             } catch (Exception e) {
@@ -126,23 +270,45 @@ public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder
     }
 
     public void openFlashlight() {
-        if (flashLightAvailable()) {
+        if (mCameraBackend != null) {
+            mCameraBackend.setTorch(true);
+        } else if (flashLightAvailable()) {
             mCameraConfigurationManager.openFlashlight(mCamera);
         }
     }
 
     public void closeFlashlight() {
-        if (flashLightAvailable()) {
+        if (mCameraBackend != null) {
+            mCameraBackend.setTorch(false);
+        } else if (flashLightAvailable()) {
             mCameraConfigurationManager.closeFlashlight(mCamera);
         }
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mFocusViewRect != null) {
+            applyFocusArea();
+        }
+    }
+
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         int width = getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec);
         int height = getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec);
-        if (mCameraConfigurationManager != null && mCameraConfigurationManager.getCameraResolution() != null) {
-            Point cameraResolution = mCameraConfigurationManager.getCameraResolution();
+        Point cameraResolution = null;
+        if (mCameraBackend != null) {
+            cameraResolution = mCameraBackend.getPreviewSize();
+            // 与CameraConfigurationManager相同，竖屏时交换宽高
+            if (cameraResolution != null
+                    && RecognitionUtils.getOrientation(getContext()) == RecognitionUtils.ORIENTATION_PORTRAIT) {
+                cameraResolution = new Point(cameraResolution.y, cameraResolution.x);
+            }
+        } else if (mCameraConfigurationManager != null) {
+            cameraResolution = mCameraConfigurationManager.getCameraResolution();
+        }
+        if (cameraResolution != null) {
             // 取出来的cameraResolution高宽值与屏幕的高宽顺序是相反的
             int cameraPreviewWidth = cameraResolution.x;
             int cameraPreviewHeight = cameraResolution.y;
@@ -162,27 +328,88 @@ public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder
         return mCamera != null && mPreviewing && mSurfaceCreated && getContext().getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_FLASH);
     }
 
-    private Runnable doAutoFocus = new Runnable() {
-        public void run() {
-            if (mCamera != null && mPreviewing && mSurfaceCreated) {
+    /**
+     * 画面运动状态变化，画面从运动变为静止时对焦，运动中取消对焦
+     *
+     * @param stable 画面是否静止
+     */
+    public void onSceneStabilityChanged(boolean stable) {
+        mFocusScheduler.onSceneStabilityChanged(stable);
+    }
+
+    public boolean isSceneStable() {
+        return mFocusScheduler.isSceneStable();
+    }
+
+    private final FocusScheduler.FocusDriver mFocusDriver = new FocusScheduler.FocusDriver() {
+        @Override
+        public boolean startFocus() {
+            if (!mPreviewing || !mSurfaceCreated) {
+                return false;
+            }
+            if (mCameraBackend != null) {
+                return mCameraBackend.triggerAutoFocus();
+            }
+            if (mCamera == null) {
+                return false;
+            }
+            try {
+                mCamera.autoFocus(autoFocusCB);
+                return true;
+            } catch (Exception e) {
+                // startPreview是异步实现，某些机器上前几次调用autoFocus会失败
+                return false;
+            }
+        }
+
+        @Override
+        public void cancelFocus() {
+            mManualFocusCallback = null;
+            if (mCameraBackend != null) {
+                mCameraBackend.cancelAutoFocus();
+                return;
+            }
+            if (mCamera != null) {
                 try {
-                    mCamera.autoFocus(autoFocusCB);
+                    mCamera.cancelAutoFocus();
                 } catch (Exception e) {
+                    Log.e(TAG, e.toString(), e);
                 }
             }
         }
     };
 
-    Camera.AutoFocusCallback autoFocusCB = new Camera.AutoFocusCallback() {
+    private final Camera.AutoFocusCallback autoFocusCB = new Camera.AutoFocusCallback() {
         public void onAutoFocus(boolean success, Camera camera) {
-            if (success) {
-                postDelayed(doAutoFocus, 500);
-            } else {
-                postDelayed(doAutoFocus, 300);
+            // 连续对焦模式下调度器结束对焦时会取消对焦并清掉手动对焦回调，先取出
+            Camera.AutoFocusCallback callback = mManualFocusCallback;
+            mManualFocusCallback = null;
+            mFocusScheduler.onAutoFocus(success);
+            if (callback != null) {
+                callback.onAutoFocus(success, camera);
             }
         }
     };
 
+    private final Camera.AutoFocusMoveCallback mAutoFocusMoveCallback = new Camera.AutoFocusMoveCallback() {
+        @Override
+        public void onAutoFocusMoving(boolean start, Camera camera) {
+            mFocusScheduler.onFocusMoving(start);
+        }
+    };
+
+    private final CameraBackend.FocusCallback mBackendFocusCallback = new CameraBackend.FocusCallback() {
+        @Override
+        public void onFocusMoving(boolean moving) {
+            mFocusScheduler.onFocusMoving(moving);
+        }
+
+        @Override
+        public void onAutoFocus(boolean success) {
+            mFocusScheduler.onAutoFocus(success);
+        }
+    };
+
 
     /**
      * 手动聚焦
@@ -236,13 +463,14 @@ public class RecognitionSurfaceView extends SurfaceView implements SurfaceHolder
         return focus(callback);
     }
 
+    /**
+     * 通过对焦调度立即对焦，正在对焦时不会重复调用autoFocus
+     */
     private boolean focus(Camera.AutoFocusCallback callback) {
-        try {
-            mCamera.autoFocus(callback);
-        } catch (Exception e) {
-            e.printStackTrace();
+        if (!mFocusScheduler.focusNow()) {
             return false;
         }
+        mManualFocusCallback = callback;
         return true;
     }
 
@@ -0,0 +1,145 @@
+package com.eric.camera.recognition.zxing;
+
+import com.eric.camera.recognition.decode.ByteBufferLuminanceSource;
+import com.eric.camera.recognition.decode.RotatedLuminanceSource;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * 二值化使用的缓冲：亮度矩阵、行缓冲、直方图、分块阈值表和按尺寸缓存的BitMatrix。
+ * 每个识别线程持有一份，只在需要更大空间或新的尺寸时分配，稳定扫描时每帧不再分配这些数组。非线程安全
+ */
+public final class BinarizerBuffers {
+
+    /*
+     * 缓存的BitMatrix尺寸数，覆盖金字塔各层、缩小策略和跟踪窗口交替出现的尺寸
+     */
+    private static final int MATRIX_CACHE_SIZE = 4;
+
+    private static final ThreadLocal<BinarizerBuffers> BUFFERS = new ThreadLocal<BinarizerBuffers>() {
+        @Override
+        protected BinarizerBuffers initialValue() {
+            return new BinarizerBuffers();
+        }
+    };
+
+    /*
+     * 裁剪、旋转得到的图像可能与原图同时使用，用另一份缓冲
+     */
+    private static final ThreadLocal<BinarizerBuffers> DERIVED_BUFFERS = new ThreadLocal<BinarizerBuffers>() {
+        @Override
+        protected BinarizerBuffers initialValue() {
+            return new BinarizerBuffers();
+        }
+    };
+
+    private byte[] mLuminances = new byte[0];
+    private byte[] mRow = new byte[0];
+    private final int[] mBuckets = new int[ReusableGlobalHistogramBinarizer.LUMINANCE_BUCKETS];
+    private int[] mBlackPoints = new int[0];
+    private final BitMatrix[] mMatrices = new BitMatrix[MATRIX_CACHE_SIZE];
+    private int mNextMatrix;
+
+    /**
+     * @return 当前线程的缓冲
+     */
+    public static BinarizerBuffers get() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * 裁剪、旋转得到的图像使用的缓冲，与原图的缓冲不同
+     *
+     * @param parent 原图使用的缓冲
+     * @return 当前线程的第二份缓冲，从派生图像再派生时为新分配的缓冲
+     */
+    static BinarizerBuffers derive(BinarizerBuffers parent) {
+        BinarizerBuffers derived = DERIVED_BUFFERS.get();
+        return derived == parent ? new BinarizerBuffers() : derived;
+    }
+
+    /**
+     * 读取整个亮度矩阵到复用的缓冲，支持写入调用者缓冲的LuminanceSource不再分配
+     *
+     * @param source 亮度数据
+     * @return 紧密排列的width * height字节，下次调用后内容失效
+     */
+    byte[] readMatrix(LuminanceSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        byte[] luminances = obtainLuminances(width * height);
+        if (source instanceof ZxingDecoder.CancellableLuminanceSource) {
+            // 并行识别包装的数据源，检查是否已取消后按原始数据源读取
+            source = ((ZxingDecoder.CancellableLuminanceSource) source).unwrap();
+        }
+        if (source instanceof RotatedLuminanceSource) {
+            return ((RotatedLuminanceSource) source).getMatrix(luminances);
+        }
+        if (source instanceof ByteBufferLuminanceSource) {
+            return ((ByteBufferLuminanceSource) source).getMatrix(luminances);
+        }
+        // 其余实现按行读取，getRow会复用传入的行缓冲
+        for (int y = 0; y < height; y++) {
+            byte[] row = readRow(source, y);
+            System.arraycopy(row, 0, luminances, y * width, width);
+        }
+        return luminances;
+    }
+
+    /**
+     * 读取一行到复用的行缓冲
+     *
+     * @return 至少width字节，下次调用后内容失效，不能修改
+     */
+    byte[] readRow(LuminanceSource source, int y) {
+        int width = source.getWidth();
+        if (mRow.length < width) {
+            mRow = new byte[width];
+        }
+        // 有的实现会直接返回内部数组，不能当作自己的缓冲保存
+        return source.getRow(y, mRow);
+    }
+
+    /**
+     * @return 清零后的直方图
+     */
+    int[] obtainBuckets() {
+        for (int i = 0; i < mBuckets.length; i++) {
+            mBuckets[i] = 0;
+        }
+        return mBuckets;
+    }
+
+    /**
+     * @return 至少size个元素的分块阈值表，内容未清零
+     */
+    int[] obtainBlackPoints(int size) {
+        if (mBlackPoints.length < size) {
+            mBlackPoints = new int[size];
+        }
+        return mBlackPoints;
+    }
+
+    /**
+     * 取得指定尺寸的已清零BitMatrix，没有缓存时创建并替换最早的一个
+     */
+    BitMatrix obtainMatrix(int width, int height) {
+        for (BitMatrix matrix : mMatrices) {
+            if (matrix != null && matrix.getWidth() == width && matrix.getHeight() == height) {
+                matrix.clear();
+                return matrix;
+            }
+        }
+        BitMatrix matrix = new BitMatrix(width, height);
+        mMatrices[mNextMatrix] = matrix;
+        mNextMatrix = (mNextMatrix + 1) % mMatrices.length;
+        return matrix;
+    }
+
+    private byte[] obtainLuminances(int size) {
+        if (mLuminances.length < size) {
+            mLuminances = new byte[size];
+        }
+        return mLuminances;
+    }
+}
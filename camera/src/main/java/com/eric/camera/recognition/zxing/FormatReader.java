@@ -0,0 +1,81 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按顺序尝试的一组MultiFormatReader，每组只启用部分码制，创建后可重复使用，非线程安全，由FormatReaderPool分给识别线程独占使用。
+ * 实现Reader以便交给GenericMultipleBarcodeReader，识别参数在创建时确定，decode传入的hints被忽略
+ */
+class FormatReader implements Reader {
+
+    private final List<List<BarcodeFormat>> mGroups;
+    private final Map<DecodeHintType, ?> mBaseHints;
+    private final MultiFormatReader[] mReaders;
+
+    /**
+     * @param groups    每个reader启用的码制，按尝试顺序排列
+     * @param baseHints 其余识别参数
+     */
+    FormatReader(List<List<BarcodeFormat>> groups, Map<DecodeHintType, ?> baseHints) {
+        mGroups = groups;
+        mBaseHints = baseHints;
+        mReaders = new MultiFormatReader[groups.size()];
+        for (int i = 0; i < mReaders.length; i++) {
+            Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+            if (baseHints != null) {
+                hints.putAll(baseHints);
+            }
+            hints.put(DecodeHintType.POSSIBLE_FORMATS, groups.get(i));
+            mReaders[i] = new MultiFormatReader();
+            mReaders[i].setHints(hints);
+        }
+    }
+
+    List<List<BarcodeFormat>> getGroups() {
+        return mGroups;
+    }
+
+    /**
+     * 创建时传入的识别参数，用于判断参数修改后是否过期
+     */
+    Map<DecodeHintType, ?> getBaseHints() {
+        return mBaseHints;
+    }
+
+    @Override
+    public Result decode(BinaryBitmap bitmap, Map<DecodeHintType, ?> hints) throws NotFoundException {
+        return decode(bitmap);
+    }
+
+    @Override
+    public void reset() {
+        for (MultiFormatReader reader : mReaders) {
+            reader.reset();
+        }
+    }
+
+    @Override
+    public Result decode(BinaryBitmap bitmap) throws NotFoundException {
+        for (MultiFormatReader reader : mReaders) {
+            try {
+                return reader.decodeWithState(bitmap);
+            } catch (ReaderException e) {
+                // 尝试下一组
+            } finally {
+                reader.reset();
+            }
+        }
+        throw NotFoundException.getNotFoundInstance();
+    }
+}
@@ -0,0 +1,116 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FormatReader池：按码制分组保存空闲的reader，识别线程每帧取出一个独占使用，识别完归还。
+ * MultiFormatReader不是线程安全的，同一个reader同时只在一个线程中使用，多个识别线程和多策略可以真正并行。
+ * 空闲reader的数量自然等于同时识别的最大线程数，修改识别参数后旧的reader归还时直接丢弃
+ */
+class FormatReaderPool {
+
+    /*
+     * 缓存的码制分组数上限，超过时清空，学习模式下分组会随统计变化
+     */
+    private static final int MAX_GROUPS = 16;
+
+    private final Map<List<List<BarcodeFormat>>, ArrayDeque<FormatReader>> mIdleReaders = new HashMap<>();
+    private int mMaxIdle;
+    private final AtomicInteger mCreatedCount = new AtomicInteger();
+    private Map<DecodeHintType, ?> mHints;
+
+    /**
+     * @param maxIdle 每个码制分组最多保留的空闲reader数
+     */
+    FormatReaderPool(int maxIdle) {
+        mMaxIdle = maxIdle;
+    }
+
+    /**
+     * 清空空闲的reader，之后只接受使用新参数创建的reader
+     *
+     * @param hints 当前的识别参数
+     */
+    synchronized void reset(Map<DecodeHintType, ?> hints) {
+        mHints = hints;
+        mIdleReaders.clear();
+    }
+
+    /**
+     * 取出一个空闲的reader，没有时新建，用完后必须调用release
+     *
+     * @param groups 码制分组
+     * @param hints  识别参数
+     * @return 当前线程独占的reader
+     */
+    FormatReader obtain(List<List<BarcodeFormat>> groups, Map<DecodeHintType, ?> hints) {
+        synchronized (this) {
+            ArrayDeque<FormatReader> idle = mIdleReaders.get(groups);
+            if (idle != null && !idle.isEmpty()) {
+                return idle.pop();
+            }
+        }
+        // 在锁外创建，不阻塞其他线程取用
+        mCreatedCount.incrementAndGet();
+        return new FormatReader(groups, hints);
+    }
+
+    /**
+     * 归还reader，参数已修改或空闲数已满时丢弃
+     */
+    synchronized void release(FormatReader reader) {
+        if (reader.getBaseHints() != mHints) {
+            return;
+        }
+        ArrayDeque<FormatReader> idle = mIdleReaders.get(reader.getGroups());
+        if (idle == null) {
+            if (mIdleReaders.size() >= MAX_GROUPS) {
+                mIdleReaders.clear();
+            }
+            idle = new ArrayDeque<>();
+            mIdleReaders.put(reader.getGroups(), idle);
+        }
+        if (idle.size() < mMaxIdle) {
+            idle.push(reader);
+        }
+    }
+
+    /**
+     * 预先创建reader，避免开始扫描后的前几帧在识别线程中创建，空闲数上限至少提高到count
+     *
+     * @param groups 码制分组
+     * @param hints  识别参数
+     * @param count  需要的空闲reader数，通常为识别线程数
+     */
+    void prepare(List<List<BarcodeFormat>> groups, Map<DecodeHintType, ?> hints, int count) {
+        int existing;
+        synchronized (this) {
+            mMaxIdle = Math.max(mMaxIdle, count);
+            ArrayDeque<FormatReader> idle = mIdleReaders.get(groups);
+            existing = idle == null ? 0 : idle.size();
+        }
+        for (int i = existing; i < count; i++) {
+            mCreatedCount.incrementAndGet();
+            release(new FormatReader(groups, hints));
+        }
+    }
+
+    /**
+     * 累计创建的reader数
+     */
+    int getCreatedCount() {
+        return mCreatedCount.get();
+    }
+
+    synchronized int getIdleCount(List<List<BarcodeFormat>> groups) {
+        ArrayDeque<FormatReader> idle = mIdleReaders.get(groups);
+        return idle == null ? 0 : idle.size();
+    }
+}
@@ -0,0 +1,61 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 按码制统计识别成功次数，用于学习模式下裁剪和排序reader
+ */
+public class FormatStatistics {
+
+    private final int[] mHits = new int[BarcodeFormat.values().length];
+    private int mTotal = 0;
+
+    public synchronized void record(BarcodeFormat format) {
+        mHits[format.ordinal()]++;
+        mTotal++;
+    }
+
+    public synchronized int getHits(BarcodeFormat format) {
+        return mHits[format.ordinal()];
+    }
+
+    public synchronized int getTotal() {
+        return mTotal;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < mHits.length; i++) {
+            mHits[i] = 0;
+        }
+        mTotal = 0;
+    }
+
+    /**
+     * 从候选码制中挑出出现过的码制，按成功次数从多到少排序
+     *
+     * @param candidates 候选码制
+     * @return 排序后的码制，没有命中时为空
+     */
+    public synchronized List<BarcodeFormat> rank(Collection<BarcodeFormat> candidates) {
+        final int[] hits = mHits.clone();
+        List<BarcodeFormat> ranked = new ArrayList<>();
+        for (BarcodeFormat format : candidates) {
+            if (hits[format.ordinal()] > 0) {
+                ranked.add(format);
+            }
+        }
+        Collections.sort(ranked, new Comparator<BarcodeFormat>() {
+            @Override
+            public int compare(BarcodeFormat a, BarcodeFormat b) {
+                return hits[b.ordinal()] - hits[a.ordinal()];
+            }
+        });
+        return ranked;
+    }
+}
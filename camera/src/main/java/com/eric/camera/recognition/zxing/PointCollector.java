@@ -0,0 +1,112 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+
+/**
+ * 收集识别过程中定位到的点（如二维码的定位图案），识别失败时也能知道条码的大致位置。
+ * 只收集调用了begin()的线程上的点，并累计为外接矩形，不分配内存。
+ * 多策略并行识别时也是检测过程中的取消点：其他策略已成功时抛出异常结束当前线程的识别
+ */
+class PointCollector implements ResultPointCallback {
+
+    private static final class Sink {
+        boolean active;
+        float scale;
+        int count;
+        float minX;
+        float minY;
+        float maxX;
+        float maxY;
+        ZxingDecoder.Race race;
+    }
+
+    private final ThreadLocal<Sink> mSinks = new ThreadLocal<Sink>() {
+        @Override
+        protected Sink initialValue() {
+            return new Sink();
+        }
+    };
+    private final ResultPointCallback mDelegate;
+
+    /**
+     * @param delegate 识别参数中原有的回调，可为null
+     */
+    PointCollector(ResultPointCallback delegate) {
+        mDelegate = delegate;
+    }
+
+    @Override
+    public void foundPossibleResultPoint(ResultPoint point) {
+        if (mDelegate != null) {
+            mDelegate.foundPossibleResultPoint(point);
+        }
+        Sink sink = mSinks.get();
+        if (sink.race != null) {
+            sink.race.checkCancelled();
+        }
+        if (!sink.active || point == null) {
+            return;
+        }
+        float x = point.getX() * sink.scale;
+        float y = point.getY() * sink.scale;
+        if (sink.count == 0) {
+            sink.minX = sink.maxX = x;
+            sink.minY = sink.maxY = y;
+        } else {
+            sink.minX = Math.min(sink.minX, x);
+            sink.minY = Math.min(sink.minY, y);
+            sink.maxX = Math.max(sink.maxX, x);
+            sink.maxY = Math.max(sink.maxY, y);
+        }
+        sink.count++;
+    }
+
+    /**
+     * 开始在当前线程收集
+     */
+    void begin() {
+        Sink sink = mSinks.get();
+        sink.active = true;
+        sink.scale = 1;
+        sink.count = 0;
+    }
+
+    /**
+     * 之后收集到的点乘以scale，用于缩小的识别区域
+     */
+    void setScale(float scale) {
+        mSinks.get().scale = scale;
+    }
+
+    /**
+     * 设置当前线程所在的并行识别，null表示不在并行识别中
+     */
+    void setRace(ZxingDecoder.Race race) {
+        mSinks.get().race = race;
+    }
+
+    void end() {
+        mSinks.get().active = false;
+    }
+
+    int getCount() {
+        return mSinks.get().count;
+    }
+
+    float getMinX() {
+        return mSinks.get().minX;
+    }
+
+    float getMinY() {
+        return mSinks.get().minY;
+    }
+
+    float getMaxX() {
+        return mSinks.get().maxX;
+    }
+
+    float getMaxY() {
+        return mSinks.get().maxY;
+    }
+}
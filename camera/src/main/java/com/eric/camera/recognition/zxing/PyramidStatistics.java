@@ -0,0 +1,89 @@
+package com.eric.camera.recognition.zxing;
+
+/**
+ * 分辨率金字塔每一层的尝试和成功次数，用于选择从哪一层开始识别
+ */
+public class PyramidStatistics {
+
+    /**
+     * 每一层的缩小倍数，第0层为原始分辨率
+     */
+    private static final int[] FACTORS = {1, 2, 4};
+    /*
+     * 尝试次数少于该值时仍从这一层开始，先收集数据
+     */
+    private static final int MIN_SAMPLES = 10;
+    /*
+     * 成功率不低于该值时从这一层开始
+     */
+    private static final float MIN_SUCCESS_RATE = 0.3f;
+    /*
+     * 尝试次数达到该值后减半，让统计跟随最近的扫描场景
+     */
+    private static final int DECAY_SAMPLES = 64;
+    /*
+     * 每隔多少帧从最粗的一层开始一次，避免被跳过的层再也得不到数据
+     */
+    private static final int PROBE_INTERVAL = 16;
+
+    private final int[] mAttempts = new int[FACTORS.length];
+    private final int[] mSuccesses = new int[FACTORS.length];
+    private int mFrames = 0;
+
+    public int getLevelCount() {
+        return FACTORS.length;
+    }
+
+    /**
+     * @param level 层
+     * @return 这一层的缩小倍数
+     */
+    public int getFactor(int level) {
+        return FACTORS[level];
+    }
+
+    public synchronized void record(int level, boolean success) {
+        mAttempts[level]++;
+        if (success) {
+            mSuccesses[level]++;
+        }
+        if (mAttempts[level] >= DECAY_SAMPLES) {
+            mAttempts[level] /= 2;
+            mSuccesses[level] /= 2;
+        }
+    }
+
+    public synchronized int getAttempts(int level) {
+        return mAttempts[level];
+    }
+
+    public synchronized int getSuccesses(int level) {
+        return mSuccesses[level];
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < FACTORS.length; i++) {
+            mAttempts[i] = 0;
+            mSuccesses[i] = 0;
+        }
+        mFrames = 0;
+    }
+
+    /**
+     * 选择本帧开始识别的层：从最粗的一层开始，跳过成功率过低的层
+     *
+     * @return 开始的层，失败后依次尝试更精细的层直到第0层
+     */
+    public synchronized int selectStartLevel() {
+        int coarsest = FACTORS.length - 1;
+        if (mFrames++ % PROBE_INTERVAL == 0) {
+            return coarsest;
+        }
+        for (int level = coarsest; level > 0; level--) {
+            if (mAttempts[level] < MIN_SAMPLES || mSuccesses[level] >= mAttempts[level] * MIN_SUCCESS_RATE) {
+                return level;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,155 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * 与zxing的GlobalHistogramBinarizer结果相同，亮度缓冲、直方图和BitMatrix取自BinarizerBuffers，不在每帧分配。
+ * 返回的BitMatrix在同一线程下次二值化相同尺寸时被覆盖，只能在本次识别中使用
+ */
+public class ReusableGlobalHistogramBinarizer extends Binarizer {
+
+    private static final int LUMINANCE_BITS = 5;
+    private static final int LUMINANCE_SHIFT = 8 - LUMINANCE_BITS;
+    static final int LUMINANCE_BUCKETS = 1 << LUMINANCE_BITS;
+
+    private final BinarizerBuffers mBuffers;
+
+    /**
+     * @param source  亮度数据
+     * @param buffers 复用的缓冲，通常为BinarizerBuffers.get()
+     */
+    public ReusableGlobalHistogramBinarizer(LuminanceSource source, BinarizerBuffers buffers) {
+        super(source);
+        mBuffers = buffers;
+    }
+
+    protected BinarizerBuffers getBuffers() {
+        return mBuffers;
+    }
+
+    @Override
+    public BitArray getBlackRow(int y, BitArray row) throws NotFoundException {
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        if (row == null || row.getSize() < width) {
+            row = new BitArray(width);
+        } else {
+            row.clear();
+        }
+        int[] buckets = mBuffers.obtainBuckets();
+        byte[] luminances = mBuffers.readRow(source, y);
+        for (int x = 0; x < width; x++) {
+            buckets[(luminances[x] & 0xff) >> LUMINANCE_SHIFT]++;
+        }
+        int blackPoint = estimateBlackPoint(buckets);
+        if (width < 3) {
+            for (int x = 0; x < width; x++) {
+                if ((luminances[x] & 0xff) < blackPoint) {
+                    row.set(x);
+                }
+            }
+        } else {
+            // 简单的锐化后再比较
+            int left = luminances[0] & 0xff;
+            int center = luminances[1] & 0xff;
+            for (int x = 1; x < width - 1; x++) {
+                int right = luminances[x + 1] & 0xff;
+                if (((center * 4) - left - right) / 2 < blackPoint) {
+                    row.set(x);
+                }
+                left = center;
+                center = right;
+            }
+        }
+        return row;
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        // 只用中间4行的中间3/5估计黑点
+        int[] buckets = mBuffers.obtainBuckets();
+        for (int y = 1; y < 5; y++) {
+            byte[] luminances = mBuffers.readRow(source, height * y / 5);
+            int right = (width * 4) / 5;
+            for (int x = width / 5; x < right; x++) {
+                buckets[(luminances[x] & 0xff) >> LUMINANCE_SHIFT]++;
+            }
+        }
+        int blackPoint = estimateBlackPoint(buckets);
+        byte[] luminances = mBuffers.readMatrix(source);
+        BitMatrix matrix = mBuffers.obtainMatrix(width, height);
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                if ((luminances[offset + x] & 0xff) < blackPoint) {
+                    matrix.set(x, y);
+                }
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * 裁剪、旋转后的图像可能与原图同时使用，使用当前线程的另一份缓冲
+     */
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new ReusableGlobalHistogramBinarizer(source, BinarizerBuffers.derive(getBuffers()));
+    }
+
+    private static int estimateBlackPoint(int[] buckets) throws NotFoundException {
+        // 最高的峰
+        int numBuckets = buckets.length;
+        int maxBucketCount = 0;
+        int firstPeak = 0;
+        int firstPeakSize = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            if (buckets[x] > firstPeakSize) {
+                firstPeak = x;
+                firstPeakSize = buckets[x];
+            }
+            if (buckets[x] > maxBucketCount) {
+                maxBucketCount = buckets[x];
+            }
+        }
+        // 按到最高峰距离的平方加权找第二个峰
+        int secondPeak = 0;
+        int secondPeakScore = 0;
+        for (int x = 0; x < numBuckets; x++) {
+            int distanceToBiggest = x - firstPeak;
+            int score = buckets[x] * distanceToBiggest * distanceToBiggest;
+            if (score > secondPeakScore) {
+                secondPeak = x;
+                secondPeakScore = score;
+            }
+        }
+        if (firstPeak > secondPeak) {
+            int temp = firstPeak;
+            firstPeak = secondPeak;
+            secondPeak = temp;
+        }
+        // 两个峰太近时认为没有条码
+        if (secondPeak - firstPeak <= numBuckets / 16) {
+            throw NotFoundException.getNotFoundInstance();
+        }
+        // 两峰之间偏向白色一侧的谷
+        int bestValley = secondPeak - 1;
+        int bestValleyScore = -1;
+        for (int x = secondPeak - 1; x > firstPeak; x--) {
+            int fromFirst = x - firstPeak;
+            int score = fromFirst * fromFirst * (secondPeak - x) * (maxBucketCount - buckets[x]);
+            if (score > bestValleyScore) {
+                bestValley = x;
+                bestValleyScore = score;
+            }
+        }
+        return bestValley << LUMINANCE_SHIFT;
+    }
+}
@@ -0,0 +1,150 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitMatrix;
+
+/**
+ * 与zxing的HybridBinarizer结果相同：按8x8分块计算局部阈值，亮度矩阵、分块阈值表和BitMatrix取自BinarizerBuffers。
+ * 图像太小时退回全局直方图
+ */
+public class ReusableHybridBinarizer extends ReusableGlobalHistogramBinarizer {
+
+    private static final int BLOCK_SIZE_POWER = 3;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SIZE_POWER;
+    private static final int BLOCK_SIZE_MASK = BLOCK_SIZE - 1;
+    private static final int MINIMUM_DIMENSION = BLOCK_SIZE * 5;
+    private static final int MIN_DYNAMIC_RANGE = 24;
+
+    private BitMatrix mMatrix;
+
+    public ReusableHybridBinarizer(LuminanceSource source, BinarizerBuffers buffers) {
+        super(source, buffers);
+    }
+
+    @Override
+    public BitMatrix getBlackMatrix() throws NotFoundException {
+        if (mMatrix != null) {
+            return mMatrix;
+        }
+        LuminanceSource source = getLuminanceSource();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        if (width < MINIMUM_DIMENSION || height < MINIMUM_DIMENSION) {
+            mMatrix = super.getBlackMatrix();
+            return mMatrix;
+        }
+        BinarizerBuffers buffers = getBuffers();
+        byte[] luminances = buffers.readMatrix(source);
+        int subWidth = width >> BLOCK_SIZE_POWER;
+        if ((width & BLOCK_SIZE_MASK) != 0) {
+            subWidth++;
+        }
+        int subHeight = height >> BLOCK_SIZE_POWER;
+        if ((height & BLOCK_SIZE_MASK) != 0) {
+            subHeight++;
+        }
+        int[] blackPoints = buffers.obtainBlackPoints(subWidth * subHeight);
+        calculateBlackPoints(luminances, subWidth, subHeight, width, height, blackPoints);
+        BitMatrix matrix = buffers.obtainMatrix(width, height);
+        calculateThresholdForBlock(luminances, subWidth, subHeight, width, height, blackPoints, matrix);
+        mMatrix = matrix;
+        return matrix;
+    }
+
+    @Override
+    public Binarizer createBinarizer(LuminanceSource source) {
+        return new ReusableHybridBinarizer(source, BinarizerBuffers.derive(getBuffers()));
+    }
+
+    /**
+     * 每块的阈值取周围5x5块黑点的平均值
+     */
+    private static void calculateThresholdForBlock(byte[] luminances, int subWidth, int subHeight,
+                                                   int width, int height, int[] blackPoints, BitMatrix matrix) {
+        int maxYOffset = height - BLOCK_SIZE;
+        int maxXOffset = width - BLOCK_SIZE;
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+            int top = cap(y, 2, subHeight - 3);
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+                int left = cap(x, 2, subWidth - 3);
+                int sum = 0;
+                for (int z = -2; z <= 2; z++) {
+                    int row = (top + z) * subWidth + left;
+                    sum += blackPoints[row - 2] + blackPoints[row - 1] + blackPoints[row]
+                            + blackPoints[row + 1] + blackPoints[row + 2];
+                }
+                thresholdBlock(luminances, xoffset, yoffset, sum / 25, width, matrix);
+            }
+        }
+    }
+
+    private static int cap(int value, int min, int max) {
+        return value < min ? min : value > max ? max : value;
+    }
+
+    private static void thresholdBlock(byte[] luminances, int xoffset, int yoffset, int threshold,
+                                       int stride, BitMatrix matrix) {
+        for (int y = 0, offset = yoffset * stride + xoffset; y < BLOCK_SIZE; y++, offset += stride) {
+            for (int x = 0; x < BLOCK_SIZE; x++) {
+                if ((luminances[offset + x] & 0xff) <= threshold) {
+                    matrix.set(xoffset + x, yoffset + y);
+                }
+            }
+        }
+    }
+
+    /**
+     * 计算每块的黑点，写入按行排列的blackPoints；对比度太低的块参考相邻块，避免把纯色区域二值化成噪点
+     */
+    private static void calculateBlackPoints(byte[] luminances, int subWidth, int subHeight,
+                                             int width, int height, int[] blackPoints) {
+        int maxYOffset = height - BLOCK_SIZE;
+        int maxXOffset = width - BLOCK_SIZE;
+        for (int y = 0; y < subHeight; y++) {
+            int yoffset = Math.min(y << BLOCK_SIZE_POWER, maxYOffset);
+            for (int x = 0; x < subWidth; x++) {
+                int xoffset = Math.min(x << BLOCK_SIZE_POWER, maxXOffset);
+                int sum = 0;
+                int min = 0xff;
+                int max = 0;
+                for (int yy = 0, offset = yoffset * width + xoffset; yy < BLOCK_SIZE; yy++, offset += width) {
+                    for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                        int pixel = luminances[offset + xx] & 0xff;
+                        sum += pixel;
+                        if (pixel < min) {
+                            min = pixel;
+                        }
+                        if (pixel > max) {
+                            max = pixel;
+                        }
+                    }
+                    // 对比度已足够时剩余的行只求和
+                    if (max - min > MIN_DYNAMIC_RANGE) {
+                        for (yy++, offset += width; yy < BLOCK_SIZE; yy++, offset += width) {
+                            for (int xx = 0; xx < BLOCK_SIZE; xx++) {
+                                sum += luminances[offset + xx] & 0xff;
+                            }
+                        }
+                    }
+                }
+                int average = sum >> (BLOCK_SIZE_POWER * 2);
+                if (max - min <= MIN_DYNAMIC_RANGE) {
+                    average = min / 2;
+                    if (y > 0 && x > 0) {
+                        int index = y * subWidth + x;
+                        int averageNeighborBlackPoint = (blackPoints[index - subWidth] + (2 * blackPoints[index - 1])
+                                + blackPoints[index - subWidth - 1]) / 4;
+                        if (min < averageNeighborBlackPoint) {
+                            average = averageNeighborBlackPoint;
+                        }
+                    }
+                }
+                blackPoints[y * subWidth + x] = average;
+            }
+        }
+    }
+}
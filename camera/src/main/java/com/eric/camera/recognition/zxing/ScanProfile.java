@@ -0,0 +1,83 @@
+package com.eric.camera.recognition.zxing;
+
+import com.google.zxing.BarcodeFormat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 扫描码制配置，按扫描框样式只启用需要的码制，减少每帧尝试的reader数量
+ */
+public enum ScanProfile {
+    /**
+     * 全部码制
+     */
+    ALL(BarcodeFormat.AZTEC, BarcodeFormat.CODABAR, BarcodeFormat.CODE_39, BarcodeFormat.CODE_93,
+            BarcodeFormat.CODE_128, BarcodeFormat.DATA_MATRIX, BarcodeFormat.EAN_8, BarcodeFormat.EAN_13,
+            BarcodeFormat.ITF, BarcodeFormat.MAXICODE, BarcodeFormat.PDF_417, BarcodeFormat.QR_CODE,
+            BarcodeFormat.RSS_14, BarcodeFormat.RSS_EXPANDED, BarcodeFormat.UPC_A, BarcodeFormat.UPC_E,
+            BarcodeFormat.UPC_EAN_EXTENSION),
+    /**
+     * 一维码，用于宽的条码扫描框
+     */
+    ONE_D(BarcodeFormat.CODABAR, BarcodeFormat.CODE_39, BarcodeFormat.CODE_93, BarcodeFormat.CODE_128,
+            BarcodeFormat.EAN_8, BarcodeFormat.EAN_13, BarcodeFormat.ITF, BarcodeFormat.RSS_14,
+            BarcodeFormat.RSS_EXPANDED, BarcodeFormat.UPC_A, BarcodeFormat.UPC_E, BarcodeFormat.UPC_EAN_EXTENSION),
+    /**
+     * 二维码，用于方形的二维码扫描框
+     */
+    TWO_D(BarcodeFormat.QR_CODE, BarcodeFormat.DATA_MATRIX, BarcodeFormat.AZTEC, BarcodeFormat.PDF_417,
+            BarcodeFormat.MAXICODE);
+
+    /*
+     * 宽高比不小于该值的扫描框视为条码扫描框
+     */
+    private static final float ONE_D_MIN_ASPECT_RATIO = 1.5f;
+    /*
+     * 宽高比不大于该值的扫描框视为二维码扫描框
+     */
+    private static final float TWO_D_MAX_ASPECT_RATIO = 1.25f;
+
+    private final List<BarcodeFormat> formats;
+
+    ScanProfile(BarcodeFormat... formats) {
+        this.formats = Collections.unmodifiableList(Arrays.asList(formats));
+    }
+
+    public List<BarcodeFormat> getFormats() {
+        return formats;
+    }
+
+    /**
+     * 是否是一维码
+     */
+    public static boolean isOneD(BarcodeFormat format) {
+        return ONE_D.formats.contains(format);
+    }
+
+    /**
+     * 按扫描框样式和宽高比选择码制配置
+     *
+     * @param qrCodeStyle 是否是二维码扫描模式
+     * @param roiWidth    扫描框宽度（预览方向）
+     * @param roiHeight   扫描框高度（预览方向）
+     * @return 码制配置
+     */
+    public static ScanProfile select(boolean qrCodeStyle, int roiWidth, int roiHeight) {
+        if (qrCodeStyle) {
+            return TWO_D;
+        }
+        if (roiWidth <= 0 || roiHeight <= 0) {
+            return ALL;
+        }
+        float aspectRatio = roiWidth * 1f / roiHeight;
+        if (aspectRatio >= ONE_D_MIN_ASPECT_RATIO) {
+            return ONE_D;
+        }
+        if (aspectRatio <= TWO_D_MAX_ASPECT_RATIO) {
+            return TWO_D;
+        }
+        return ALL;
+    }
+}
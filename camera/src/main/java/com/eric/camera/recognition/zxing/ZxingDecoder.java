@@ -0,0 +1,769 @@
+package com.eric.camera.recognition.zxing;
+
+import com.eric.camera.recognition.decode.ByteBufferLuminanceSource;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.RoiTracker;
+import com.eric.camera.recognition.decode.RotatedLuminanceSource;
+import com.eric.camera.recognition.decode.YuvRotator;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Binarizer;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.ResultPointCallback;
+import com.google.zxing.multi.GenericMultipleBarcodeReader;
+import com.google.zxing.multi.qrcode.QRCodeMultiReader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * zxing识别逻辑，不依赖Android，ZxingView和离线工具共用
+ */
+public class ZxingDecoder {
+
+    /**
+     * 识别策略
+     */
+    public enum Strategy {
+        /**
+         * HybridBinarizer识别原始识别区域，即单策略时的识别方式
+         */
+        HYBRID,
+        /**
+         * GlobalHistogramBinarizer，对光照均匀但对比度低的条码更友好
+         */
+        GLOBAL_HISTOGRAM,
+        /**
+         * 识别区域逆时针旋转90度，用于竖放的一维码
+         */
+        ROTATED_90,
+        /**
+         * 识别区域缩小一半，用于大尺寸或轻微模糊的条码
+         */
+        DOWNSCALED
+    }
+
+    /**
+     * 学习模式下，累计成功次数达到该值后才开始裁剪码制
+     */
+    public static final int LEARNING_MIN_SAMPLES = 20;
+    /**
+     * 学习模式下，裁剪后的码制连续失败该次数后用完整码制识别一次，以便学习到新出现的码制
+     */
+    public static final int LEARNING_MAX_MISSES = 3;
+    /*
+     * 每个码制分组保留的空闲reader数上限，足够覆盖识别线程数乘以并行策略数
+     */
+    private static final int MAX_IDLE_READERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    /*
+     * 金字塔中缩小后的识别区域短边不小于该值，更小的图像识别不到任何条码
+     */
+    private static final int MIN_PYRAMID_SIZE = 80;
+    /*
+     * 保留的并行识别复制缓冲数，同时进行的并行识别数不超过识别线程数
+     */
+    private static final int MAX_RACE_BUFFERS = 4;
+
+    private final Strategy[] mStrategies = Strategy.values();
+    /*
+     * reader池，按码制分组查找，切换码制时不需要重建reader；MultiFormatReader不是线程安全的，每次识别独占一个
+     */
+    private final FormatReaderPool mReaderPool = new FormatReaderPool(MAX_IDLE_READERS);
+    private final Map<ScanProfile, Plan> mProfilePlans = new EnumMap<>(ScanProfile.class);
+    private final FormatStatistics mStatistics = new FormatStatistics();
+    private final AtomicInteger mLearnedMisses = new AtomicInteger();
+    private final PyramidStatistics mPyramidStatistics = new PyramidStatistics();
+    private volatile Map<DecodeHintType, Object> mHints;
+    private volatile Executor mRaceExecutor;
+    private volatile ScanProfile mScanProfile = ScanProfile.ALL;
+    private volatile boolean isAutoScanProfile = false;
+    private volatile boolean isQrCodeStyle = false;
+    private volatile boolean isLearning = false;
+    private volatile boolean isPyramid = false;
+    private volatile RoiTracker mRoiTracker;
+    private volatile PointCollector mPointCollector;
+    private volatile Plan mLearnedPlan;
+    private final ArrayDeque<byte[]> mRaceBuffers = new ArrayDeque<>();
+
+    public ZxingDecoder(Map<DecodeHintType, Object> hints) {
+        setHints(hints);
+    }
+
+    /**
+     * 设置识别参数，ALL配置使用其中的POSSIBLE_FORMATS，其余参数（如TRY_HARDER、CHARACTER_SET）所有配置共用。
+     * 会清空已创建的reader
+     *
+     * @param hints 识别参数
+     */
+    public void setHints(Map<DecodeHintType, Object> hints) {
+        Map<DecodeHintType, Object> copy = new EnumMap<>(DecodeHintType.class);
+        if (hints != null) {
+            copy.putAll(hints);
+        }
+        // 收集定位点用于跟踪识别区域，保留原有的回调
+        Object callback = copy.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+        PointCollector collector = new PointCollector(
+                callback instanceof ResultPointCallback ? (ResultPointCallback) callback : null);
+        copy.put(DecodeHintType.NEED_RESULT_POINT_CALLBACK, collector);
+        synchronized (mProfilePlans) {
+            mPointCollector = collector;
+            mHints = copy;
+            mProfilePlans.clear();
+            mLearnedPlan = null;
+            mReaderPool.reset(copy);
+        }
+    }
+
+    /**
+     * 按当前码制配置为每个识别线程预先创建reader，开始扫描后的前几帧不用再创建
+     *
+     * @param workerCount 识别线程数，开启多策略并行识别时每个线程还需要额外的reader，会在识别时按需创建
+     */
+    public void prepareReaders(int workerCount) {
+        Plan plan = profilePlan(mScanProfile);
+        mReaderPool.prepare(plan.groups, plan.hints, workerCount);
+    }
+
+    /**
+     * 累计创建的reader数，稳定后不再增长，约等于同时识别的最大线程数
+     */
+    public int getCreatedReaderCount() {
+        return mReaderPool.getCreatedCount();
+    }
+
+    /**
+     * 设置固定的码制配置，并关闭自动选择
+     *
+     * @param scanProfile 码制配置
+     */
+    public void setScanProfile(ScanProfile scanProfile) {
+        mScanProfile = scanProfile == null ? ScanProfile.ALL : scanProfile;
+        isAutoScanProfile = false;
+    }
+
+    public ScanProfile getScanProfile() {
+        return mScanProfile;
+    }
+
+    /**
+     * 设置是否按扫描框样式和宽高比自动选择码制配置
+     *
+     * @param autoScanProfile
+     */
+    public void setAutoScanProfile(boolean autoScanProfile) {
+        isAutoScanProfile = autoScanProfile;
+    }
+
+    public boolean isAutoScanProfile() {
+        return isAutoScanProfile;
+    }
+
+    public void setQrCodeStyle(boolean qrCodeStyle) {
+        isQrCodeStyle = qrCodeStyle;
+    }
+
+    /**
+     * 设置学习模式：按运行时各码制的成功次数裁剪未出现的码制，并按成功次数排列尝试顺序
+     *
+     * @param learning
+     */
+    public void setLearning(boolean learning) {
+        isLearning = learning;
+        mLearnedMisses.set(0);
+    }
+
+    public boolean isLearning() {
+        return isLearning;
+    }
+
+    public FormatStatistics getFormatStatistics() {
+        return mStatistics;
+    }
+
+    /**
+     * 设置多策略并行识别使用的线程池，为null时只使用HYBRID策略
+     *
+     * @param executor 线程池
+     */
+    public void setRaceExecutor(Executor executor) {
+        mRaceExecutor = executor;
+    }
+
+    public boolean isRaceEnabled() {
+        return mRaceExecutor != null;
+    }
+
+    /**
+     * 设置分辨率金字塔模式：先识别缩小4倍或2倍的识别区域，失败后再逐层识别更高的分辨率，
+     * 开始的层按每层的成功率自动调整
+     *
+     * @param pyramid
+     */
+    public void setPyramid(boolean pyramid) {
+        isPyramid = pyramid;
+    }
+
+    public boolean isPyramid() {
+        return isPyramid;
+    }
+
+    public PyramidStatistics getPyramidStatistics() {
+        return mPyramidStatistics;
+    }
+
+    /**
+     * 设置识别区域跟踪，识别到或定位到条码后只识别条码周围的小窗口，多码识别不使用
+     *
+     * @param roiTracker 为null时每帧都识别整个识别区域
+     */
+    public void setRoiTracker(RoiTracker roiTracker) {
+        mRoiTracker = roiTracker;
+    }
+
+    public RoiTracker getRoiTracker() {
+        return mRoiTracker;
+    }
+
+    /**
+     * 识别一帧，多策略模式下HYBRID在当前线程执行，其余策略在线程池中并行执行，先成功的结果胜出，其余策略被取消
+     *
+     * @param frame 帧
+     * @return 识别结果，失败为null；结果中的坐标相对于识别区域
+     */
+    public Result decode(Frame frame) {
+        Plan plan = selectPlan(frame);
+        RoiTracker tracker = mRoiTracker;
+        Result result = tracker == null ? decodeRoi(frame, plan) : decodeTracked(frame, plan, tracker);
+        onDecoded(plan, result);
+        return result;
+    }
+
+    private Result decodeRoi(Frame frame, Plan plan) {
+        return isPyramid ? decodePyramid(frame, plan) : decodeLevel(frame, plan);
+    }
+
+    /**
+     * 识别跟踪窗口，没有窗口时识别整个识别区域；按结果中的点或识别过程中定位到的点更新窗口
+     */
+    private Result decodeTracked(Frame frame, Plan plan, RoiTracker tracker) {
+        Frame window = tracker.track(frame);
+        Frame target = window != null ? window : frame;
+        PointCollector collector = mPointCollector;
+        Result result;
+        collector.begin();
+        try {
+            result = decodeRoi(target, plan);
+        } finally {
+            collector.end();
+        }
+        int dx = target.getRoiLeft();
+        int dy = target.getRoiTop();
+        if (result != null) {
+            ResultPoint[] points = result.getResultPoints();
+            if (points != null && points.length > 0) {
+                float minX = Float.MAX_VALUE;
+                float minY = Float.MAX_VALUE;
+                float maxX = -Float.MAX_VALUE;
+                float maxY = -Float.MAX_VALUE;
+                for (ResultPoint point : points) {
+                    if (point != null) {
+                        minX = Math.min(minX, point.getX());
+                        minY = Math.min(minY, point.getY());
+                        maxX = Math.max(maxX, point.getX());
+                        maxY = Math.max(maxY, point.getY());
+                    }
+                }
+                if (minX <= maxX) {
+                    tracker.update(frame, minX + dx, minY + dy, maxX + dx, maxY + dy, true);
+                }
+            }
+            // 结果中的坐标相对于跟踪窗口，换算为相对于原始识别区域
+            return window == null ? result
+                    : transformResult(result, 1, dx - frame.getRoiLeft(), dy - frame.getRoiTop());
+        }
+        if (collector.getCount() >= 3) {
+            // 识别失败但定位到了条码，例如二维码的三个定位图案
+            tracker.update(frame, collector.getMinX() + dx, collector.getMinY() + dy,
+                    collector.getMaxX() + dx, collector.getMaxY() + dy, false);
+        } else if (window != null) {
+            tracker.miss();
+        }
+        return null;
+    }
+
+    private Result decodeLevel(Frame frame, Plan plan) {
+        Executor executor = mRaceExecutor;
+        if (executor == null) {
+            return decode(Strategy.HYBRID, frame, plan, null);
+        }
+        return race(frame, plan, executor);
+    }
+
+    /**
+     * 从选出的层开始逐层识别，缩小的识别区域写入识别线程复用的缓冲区
+     */
+    private Result decodePyramid(Frame frame, Plan plan) {
+        int shortSide = Math.min(frame.getRoiWidth(), frame.getRoiHeight());
+        for (int level = mPyramidStatistics.selectStartLevel(); level >= 0; level--) {
+            int factor = mPyramidStatistics.getFactor(level);
+            if (factor > 1 && shortSide / factor < MIN_PYRAMID_SIZE) {
+                continue;
+            }
+            Frame levelFrame = factor == 1 ? frame : YuvRotator.rotateScaleRoi(frame, factor);
+            mPointCollector.setScale(factor);
+            Result result = decodeLevel(levelFrame, plan);
+            mPyramidStatistics.record(level, result != null);
+            if (result != null) {
+                return factor == 1 ? result : transformResult(result, factor, 0, 0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 结果中的坐标乘以factor后平移(dx, dy)，用于把缩小层或跟踪窗口上的坐标换算回原始识别区域
+     */
+    private static Result transformResult(Result result, int factor, float dx, float dy) {
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] scaled = null;
+        if (points != null) {
+            scaled = new ResultPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                if (points[i] != null) {
+                    scaled[i] = new ResultPoint(points[i].getX() * factor + dx, points[i].getY() * factor + dy);
+                }
+            }
+        }
+        return copyResult(result, scaled);
+    }
+
+    /**
+     * 逆时针旋转90度后识别到的坐标换算回旋转前的识别区域
+     *
+     * @param width 旋转前识别区域的宽度
+     */
+    private static Result unrotateResult(Result result, int width) {
+        ResultPoint[] points = result.getResultPoints();
+        ResultPoint[] rotated = null;
+        if (points != null) {
+            rotated = new ResultPoint[points.length];
+            for (int i = 0; i < points.length; i++) {
+                if (points[i] != null) {
+                    rotated[i] = new ResultPoint(width - 1 - points[i].getY(), points[i].getX());
+                }
+            }
+        }
+        return copyResult(result, rotated);
+    }
+
+    private static Result copyResult(Result result, ResultPoint[] points) {
+        Result copy = new Result(result.getText(), result.getRawBytes(), result.getNumBits(), points,
+                result.getBarcodeFormat(), result.getTimestamp());
+        copy.putAllMetadata(result.getResultMetadata());
+        return copy;
+    }
+
+    /**
+     * 多策略并行识别，第一个成功的结果返回后其余策略在下一个取消点退出。
+     * 调用线程返回后帧可能被释放或复用，其他线程上的策略使用识别区域的副本，最后一个策略结束时归还副本
+     */
+    private Result race(Frame frame, final Plan plan, Executor executor) {
+        final Race race = new Race(mStrategies.length);
+        final byte[] buffer = obtainRaceBuffer(frame.getSensorRoiWidth() * frame.getSensorRoiHeight());
+        final Frame copy = YuvRotator.copyRoi(frame, buffer);
+        for (int i = 1; i < mStrategies.length; i++) {
+            final Strategy strategy = mStrategies[i];
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Result result = race.isDone() ? null : decode(strategy, copy, plan, race);
+                        if (race.offer(result)) {
+                            recycleRaceBuffer(buffer);
+                        }
+                    }
+                });
+            } catch (Exception e) {
+                if (race.offer(null)) {
+                    recycleRaceBuffer(buffer);
+                }
+            }
+        }
+        if (race.offer(decode(mStrategies[0], frame, plan, race))) {
+            recycleRaceBuffer(buffer);
+        }
+        return race.await();
+    }
+
+    private byte[] obtainRaceBuffer(int size) {
+        byte[] buffer;
+        synchronized (mRaceBuffers) {
+            buffer = mRaceBuffers.poll();
+        }
+        return buffer != null && buffer.length >= size ? buffer : new byte[size];
+    }
+
+    private void recycleRaceBuffer(byte[] buffer) {
+        synchronized (mRaceBuffers) {
+            if (mRaceBuffers.size() < MAX_RACE_BUFFERS) {
+                mRaceBuffers.offer(buffer);
+            }
+        }
+    }
+
+    /**
+     * 只用一种策略识别，不统计结果，用于测试
+     */
+    Result decode(Strategy strategy, Frame frame) {
+        return decode(strategy, frame, selectPlan(frame), null);
+    }
+
+    /**
+     * 按策略识别，结果中的坐标换算回frame的识别区域
+     */
+    private Result decode(Strategy strategy, Frame frame, Plan plan, Race race) {
+        // 二值化缓冲按线程复用，并行的策略各自在自己的线程中取得
+        BinarizerBuffers buffers = BinarizerBuffers.get();
+        LuminanceSource source;
+        Binarizer binarizer;
+        switch (strategy) {
+            case GLOBAL_HISTOGRAM:
+                source = createSource(frame);
+                binarizer = new ReusableGlobalHistogramBinarizer(wrap(source, race), buffers);
+                break;
+            case ROTATED_90:
+                source = createRotatableSource(frame).rotateCounterClockwise();
+                binarizer = new ReusableHybridBinarizer(wrap(source, race), buffers);
+                break;
+            case DOWNSCALED:
+                source = createSource(YuvRotator.rotateScaleRoi(frame, 2));
+                binarizer = new ReusableHybridBinarizer(wrap(source, race), buffers);
+                break;
+            default:
+                source = createSource(frame);
+                binarizer = new ReusableHybridBinarizer(wrap(source, race), buffers);
+                break;
+        }
+        Result result;
+        FormatReader reader = mReaderPool.obtain(plan.groups, plan.hints);
+        // reader使用的是创建计划时识别参数中的回调，setHints之后可能不是mPointCollector
+        Object callback = race == null ? null : plan.hints.get(DecodeHintType.NEED_RESULT_POINT_CALLBACK);
+        PointCollector collector = callback instanceof PointCollector ? (PointCollector) callback : null;
+        if (collector != null) {
+            collector.setRace(race);
+        }
+        try {
+            result = reader.decode(new BinaryBitmap(binarizer));
+        } catch (Exception e) {
+            return null;
+        } finally {
+            if (collector != null) {
+                collector.setRace(null);
+            }
+            mReaderPool.release(reader);
+        }
+        switch (strategy) {
+            case ROTATED_90:
+                return unrotateResult(result, frame.getRoiWidth());
+            case DOWNSCALED:
+                return transformResult(result, 2, 0, 0);
+            default:
+                return result;
+        }
+    }
+
+    /**
+     * 识别一帧中的多个条码，同一帧中内容和码制都相同的结果只保留一个
+     *
+     * @param frame 帧
+     * @return 去重后的识别结果，没有识别到时为空
+     */
+    public List<Result> decodeMultiple(Frame frame) {
+        Plan plan = selectPlan(frame);
+        Map<String, Result> unique = new LinkedHashMap<>();
+        FormatReader reader = mReaderPool.obtain(plan.groups, plan.hints);
+        try {
+            BinaryBitmap bitmap = new BinaryBitmap(
+                    new ReusableHybridBinarizer(createSource(frame), BinarizerBuffers.get()));
+            if (containsFormat(plan, BarcodeFormat.QR_CODE)) {
+                // 多个二维码的定位图案会互相干扰，GenericMultipleBarcodeReader整图识别会失败
+                try {
+                    addUnique(unique, new QRCodeMultiReader().decodeMultiple(bitmap, plan.hints));
+                } catch (Exception e) {
+                    // 没有识别到二维码
+                }
+            }
+            try {
+                addUnique(unique, new GenericMultipleBarcodeReader(reader).decodeMultiple(bitmap));
+            } catch (Exception e) {
+                // 没有识别到
+            }
+        } finally {
+            mReaderPool.release(reader);
+        }
+        List<Result> results = new ArrayList<>(unique.values());
+        if (results.isEmpty()) {
+            onDecoded(plan, null);
+        }
+        for (Result result : results) {
+            onDecoded(plan, result);
+        }
+        return results;
+    }
+
+    private static void addUnique(Map<String, Result> unique, Result[] results) {
+        for (Result result : results) {
+            String key = result.getBarcodeFormat() + ":" + result.getText();
+            if (!unique.containsKey(key)) {
+                unique.put(key, result);
+            }
+        }
+    }
+
+    private static boolean containsFormat(Plan plan, BarcodeFormat format) {
+        for (List<BarcodeFormat> group : plan.groups) {
+            if (group.contains(format)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 选择本帧使用的码制分组
+     */
+    private Plan selectPlan(Frame frame) {
+        ScanProfile profile = isAutoScanProfile
+                ? ScanProfile.select(isQrCodeStyle, frame.getRoiWidth(), frame.getRoiHeight())
+                : mScanProfile;
+        Plan profilePlan = profilePlan(profile);
+        if (!isLearning || mLearnedMisses.get() >= LEARNING_MAX_MISSES) {
+            return profilePlan;
+        }
+        int total = mStatistics.getTotal();
+        if (total < LEARNING_MIN_SAMPLES) {
+            return profilePlan;
+        }
+        Plan learnedPlan = mLearnedPlan;
+        if (learnedPlan == null || learnedPlan.profile != profile || learnedPlan.samples != total) {
+            List<BarcodeFormat> ranked = mStatistics.rank(profilePlan.groups.get(0));
+            if (ranked.isEmpty()) {
+                return profilePlan;
+            }
+            learnedPlan = new Plan(profile, groupFormats(ranked), profilePlan.hints, true, total);
+            mLearnedPlan = learnedPlan;
+        }
+        return learnedPlan;
+    }
+
+    private Plan profilePlan(ScanProfile profile) {
+        synchronized (mProfilePlans) {
+            Plan plan = mProfilePlans.get(profile);
+            if (plan == null) {
+                List<BarcodeFormat> formats = profileFormats(profile);
+                plan = new Plan(profile, Collections.singletonList(formats), mHints, false, 0);
+                mProfilePlans.put(profile, plan);
+            }
+            return plan;
+        }
+    }
+
+    private void onDecoded(Plan plan, Result result) {
+        if (!isLearning) {
+            return;
+        }
+        if (result != null) {
+            mStatistics.record(result.getBarcodeFormat());
+            mLearnedMisses.set(0);
+        } else if (plan.learned) {
+            mLearnedMisses.incrementAndGet();
+        } else if (mLearnedMisses.get() >= LEARNING_MAX_MISSES) {
+            // 完整码制也没有识别到，恢复使用学习结果
+            mLearnedMisses.set(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<BarcodeFormat> profileFormats(ScanProfile profile) {
+        if (profile == ScanProfile.ALL) {
+            Object formats = mHints.get(DecodeHintType.POSSIBLE_FORMATS);
+            if (formats instanceof List) {
+                return new ArrayList<>((List<BarcodeFormat>) formats);
+            }
+        }
+        return profile.getFormats();
+    }
+
+    /**
+     * 二维码每种码制单独一个reader；一维码共用一个reader，避免每种一维码都逐行扫描一遍
+     */
+    private static List<List<BarcodeFormat>> groupFormats(List<BarcodeFormat> ranked) {
+        List<List<BarcodeFormat>> groups = new ArrayList<>();
+        List<BarcodeFormat> oneD = null;
+        for (BarcodeFormat format : ranked) {
+            if (ScanProfile.isOneD(format)) {
+                if (oneD == null) {
+                    oneD = new ArrayList<>();
+                    groups.add(oneD);
+                }
+                oneD.add(format);
+            } else {
+                groups.add(Collections.singletonList(format));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * 按帧的识别区域创建LuminanceSource，旋转过的帧按旋转角度读取，数据在ByteBuffer中的帧直接读取缓冲区
+     *
+     * @param frame 帧
+     * @return 识别区域
+     */
+    public static LuminanceSource createSource(Frame frame) {
+        if (!frame.hasArray()) {
+            return ByteBufferLuminanceSource.fromFrame(frame);
+        }
+        if (frame.getRotation() == 0) {
+            // PlanarYUVLuminanceSource不支持旋转，TRY_HARDER时一维码不会再旋转识别一遍，不能换成RotatedLuminanceSource
+            return new PlanarYUVLuminanceSource(frame.getData(), frame.getRowStride(), frame.getHeight(),
+                    frame.getRoiLeft(), frame.getRoiTop(), frame.getRoiWidth(), frame.getRoiHeight(), false);
+        }
+        return RotatedLuminanceSource.fromFrame(frame);
+    }
+
+    /**
+     * 支持旋转的LuminanceSource，用于ROTATED_90策略
+     */
+    private static LuminanceSource createRotatableSource(Frame frame) {
+        return frame.hasArray() ? RotatedLuminanceSource.fromFrame(frame) : ByteBufferLuminanceSource.fromFrame(frame);
+    }
+
+    private static LuminanceSource wrap(LuminanceSource source, Race race) {
+        return race == null ? source : new CancellableLuminanceSource(source, race);
+    }
+
+    /**
+     * 本帧使用的码制分组
+     */
+    private static class Plan {
+        final ScanProfile profile;
+        final List<List<BarcodeFormat>> groups;
+        final Map<DecodeHintType, Object> hints;
+        final boolean learned;
+        final int samples;
+
+        Plan(ScanProfile profile, List<List<BarcodeFormat>> groups, Map<DecodeHintType, Object> hints,
+             boolean learned, int samples) {
+            this.profile = profile;
+            this.groups = groups;
+            this.hints = hints;
+            this.learned = learned;
+            this.samples = samples;
+        }
+    }
+
+    /**
+     * 一次多策略识别的状态
+     */
+    static class Race {
+        private int remaining;
+        private volatile Result result;
+
+        Race(int count) {
+            remaining = count;
+        }
+
+        boolean isDone() {
+            return result != null;
+        }
+
+        /**
+         * 已有策略成功时抛出异常，使当前线程上的策略尽快退出，zxing本身不响应interrupt
+         */
+        void checkCancelled() {
+            if (result != null) {
+                throw new IllegalStateException("cancelled");
+            }
+        }
+
+        /**
+         * 一个策略结束
+         *
+         * @return 是否是最后一个结束的策略
+         */
+        synchronized boolean offer(Result r) {
+            if (result == null && r != null) {
+                result = r;
+            }
+            remaining--;
+            notifyAll();
+            return remaining == 0;
+        }
+
+        /**
+         * 等到第一个成功的结果，或所有策略都失败
+         */
+        synchronized Result await() {
+            boolean interrupted = false;
+            while (result == null && remaining > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 已有策略成功后，读取数据时抛出异常使其余策略尽快退出。
+     * BinarizerBuffers读取整个矩阵时通过unwrap取得原始数据源，仍然使用其不分配内存的读取方式
+     */
+    static class CancellableLuminanceSource extends LuminanceSource {
+        private final LuminanceSource delegate;
+        private final Race race;
+
+        CancellableLuminanceSource(LuminanceSource delegate, Race race) {
+            super(delegate.getWidth(), delegate.getHeight());
+            this.delegate = delegate;
+            this.race = race;
+        }
+
+        /**
+         * 检查是否已取消，返回原始数据源
+         */
+        LuminanceSource unwrap() {
+            race.checkCancelled();
+            return delegate;
+        }
+
+        @Override
+        public byte[] getRow(int y, byte[] row) {
+            race.checkCancelled();
+            return delegate.getRow(y, row);
+        }
+
+        @Override
+        public byte[] getMatrix() {
+            race.checkCancelled();
+            return delegate.getMatrix();
+        }
+    }
+}
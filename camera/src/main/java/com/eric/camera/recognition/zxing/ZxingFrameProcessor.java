@@ -0,0 +1,108 @@
+package com.eric.camera.recognition.zxing;
+
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.thread.ProcessFrameListener;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.Result;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ZxingView的识别逻辑，不依赖View，可在普通JVM上配合ProcessPreviewDataThread和ReplayFrameSource离线运行
+ */
+public class ZxingFrameProcessor implements ProcessFrameListener {
+
+    private final ZxingDecoder mDecoder;
+    /*
+     * 是否识别扫描框中的多个条码
+     */
+    private volatile boolean isMultiDecode = false;
+
+    /**
+     * 使用默认识别参数（全部码制，TRY_HARDER）
+     */
+    public ZxingFrameProcessor() {
+        this(new ZxingDecoder(createHints(true)));
+    }
+
+    public ZxingFrameProcessor(ZxingDecoder decoder) {
+        mDecoder = decoder;
+    }
+
+    /**
+     * ZxingView默认的识别参数
+     *
+     * @param tryHarder 是否使用TRY_HARDER
+     * @return 识别参数
+     */
+    public static Map<DecodeHintType, Object> createHints(boolean tryHarder) {
+        Map<DecodeHintType, Object>  hints = new EnumMap<>(DecodeHintType.class);
+        List<BarcodeFormat> allFormats = new ArrayList<>();
+        allFormats.add(BarcodeFormat.AZTEC);
+        allFormats.add(BarcodeFormat.CODABAR);
+        allFormats.add(BarcodeFormat.CODE_39);
+        allFormats.add(BarcodeFormat.CODE_93);
+        allFormats.add(BarcodeFormat.CODE_128);
+        allFormats.add(BarcodeFormat.DATA_MATRIX);
+        allFormats.add(BarcodeFormat.EAN_8);
+        allFormats.add(BarcodeFormat.EAN_13);
+        allFormats.add(BarcodeFormat.ITF);
+        allFormats.add(BarcodeFormat.MAXICODE);
+        allFormats.add(BarcodeFormat.PDF_417);
+        allFormats.add(BarcodeFormat.QR_CODE);
+        allFormats.add(BarcodeFormat.RSS_14);
+        allFormats.add(BarcodeFormat.RSS_EXPANDED);
+        allFormats.add(BarcodeFormat.UPC_A);
+        allFormats.add(BarcodeFormat.UPC_E);
+        allFormats.add(BarcodeFormat.UPC_EAN_EXTENSION);
+
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, BarcodeFormat.QR_CODE);
+        }
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, allFormats);
+        hints.put(DecodeHintType.CHARACTER_SET, "utf-8");
+        return hints;
+    }
+
+    public ZxingDecoder getDecoder() {
+        return mDecoder;
+    }
+
+    /**
+     * 设置是否识别扫描框中的多个条码
+     *
+     * @param enabled
+     */
+    public void setMultiDecode(boolean enabled) {
+        isMultiDecode = enabled;
+    }
+
+    public boolean isMultiDecode() {
+        return isMultiDecode;
+    }
+
+    @Override
+    public DecodeResult processFrame(Frame frame) {
+        if (isMultiDecode) {
+            List<Result> rawResults = mDecoder.decodeMultiple(frame);
+            if (rawResults.isEmpty()) {
+                return null;
+            }
+            List<DecodeResult> results = new ArrayList<>(rawResults.size());
+            for (Result result : rawResults) {
+                results.add(new DecodeResult(result.getText(), result.getBarcodeFormat().name()));
+            }
+            return DecodeResult.of(results);
+        }
+        Result rawResult = mDecoder.decode(frame);
+        if (rawResult == null) {
+            return null;
+        }
+        return new DecodeResult(rawResult.getText(), rawResult.getBarcodeFormat().name());
+    }
+}
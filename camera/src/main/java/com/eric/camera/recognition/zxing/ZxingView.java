@@ -4,23 +4,26 @@ import android.content.Context;
 import android.graphics.Rect;
 import android.util.AttributeSet;
 
+import com.eric.camera.recognition.decode.DecodeResult;
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.eric.camera.recognition.decode.RoiTracker;
+import com.eric.camera.recognition.thread.PreviewDecodeExecutor;
+import com.eric.camera.recognition.utils.FocusUtils;
 import com.eric.camera.recognition.view.RecognitionScanView;
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.BinaryBitmap;
 import com.google.zxing.DecodeHintType;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.PlanarYUVLuminanceSource;
 import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
 
-import java.util.ArrayList;
-import java.util.EnumMap;
-import java.util.List;
 import java.util.Map;
 
 public class ZxingView extends RecognitionScanView {
 
-    private MultiFormatReader mMultiFormatReader;
+    private ZxingDecoder mDecoder;
+    private ZxingFrameProcessor mFrameProcessor;
+    /*
+     * 是否使用TRY_HARDER识别
+     */
+    private boolean isTryHarder = true;
 
     public ZxingView(Context context, AttributeSet attributeSet) {
         this(context, attributeSet,0);
@@ -33,61 +36,159 @@ public class ZxingView extends RecognitionScanView {
     }
 
     private void initMultiFormatReader() {
-        mMultiFormatReader = new MultiFormatReader();
-        mMultiFormatReader.setHints(getHints());
+        mDecoder = new ZxingDecoder(getHints());
+        mFrameProcessor = new ZxingFrameProcessor(mDecoder);
+        mDecoder.setQrCodeStyle(isQrCodeStyle());
     }
 
+    /**
+     * 同时按识别线程数预先创建reader，每个识别线程独占一个reader并行识别
+     */
+    @Override
+    public void setDecodeExecutor(PreviewDecodeExecutor decodeExecutor) {
+        super.setDecodeExecutor(decodeExecutor);
+        if (decodeExecutor != null) {
+            mDecoder.prepareReaders(decodeExecutor.getWorkerCount());
+        }
+    }
+
+    @Override
+    public void setQrCodeStyle(boolean isQrCodeStyle) {
+        super.setQrCodeStyle(isQrCodeStyle);
+        mDecoder.setQrCodeStyle(isQrCodeStyle);
+    }
+
+    /**
+     * 设置固定的码制配置，默认为ScanProfile.ALL，即getHints()中的全部码制
+     *
+     * @param scanProfile
+     */
+    public void setScanProfile(ScanProfile scanProfile) {
+        mDecoder.setScanProfile(scanProfile);
+    }
+
+    /**
+     * 设置是否自动选择码制配置：二维码扫描模式或方形扫描框只识别二维码，宽的扫描框只识别一维码
+     *
+     * @param autoScanProfile
+     */
+    public void setAutoScanProfile(boolean autoScanProfile) {
+        mDecoder.setAutoScanProfile(autoScanProfile);
+    }
+
+    /**
+     * 设置学习模式：按运行时各码制的成功次数裁剪和排序码制
+     *
+     * @param learning
+     */
+    public void setFormatLearning(boolean learning) {
+        mDecoder.setLearning(learning);
+    }
+
+    public FormatStatistics getFormatStatistics() {
+        return mDecoder.getFormatStatistics();
+    }
+
+    /**
+     * 重新读取getHints()，子类修改识别参数后调用
+     */
+    public void refreshHints() {
+        mDecoder.setHints(getHints());
+    }
+
+    /**
+     * 设置是否多策略并行识别：HybridBinarizer、GlobalHistogramBinarizer、旋转90度、缩小一半
+     * 同时在FocusUtils线程池中识别，先成功的结果胜出，用空闲的CPU换取更短的识别时间
+     *
+     * @param enabled
+     */
+    public void setMultiStrategyDecode(boolean enabled) {
+        mDecoder.setRaceExecutor(enabled ? FocusUtils.getExecutor() : null);
+    }
+
+    public boolean isMultiStrategyDecode() {
+        return mDecoder.isRaceEnabled();
+    }
+
+    /**
+     * 设置是否识别扫描框中的多个条码，同一帧中的结果去重后通过
+     * MultiProcessDataResultListener.onProcessMultiDataSuccess一次性回调，
+     * 普通的ProcessDataResultListener只收到第一个结果。多码识别时不使用多策略并行识别
+     *
+     * @param enabled
+     */
+    public void setMultiDecode(boolean enabled) {
+        mFrameProcessor.setMultiDecode(enabled);
+    }
+
+    public boolean isMultiDecode() {
+        return mFrameProcessor.isMultiDecode();
+    }
+
+    /**
+     * 设置是否使用TRY_HARDER，关闭后单帧识别更快但一维码更容易误读，建议同时开启setResultVoter
+     *
+     * @param tryHarder
+     */
+    public void setTryHarder(boolean tryHarder) {
+        isTryHarder = tryHarder;
+        refreshHints();
+    }
+
+    public boolean isTryHarder() {
+        return isTryHarder;
+    }
+
+    /**
+     * 设置是否使用分辨率金字塔：先识别缩小的识别区域，失败后再识别原始分辨率，大尺寸条码识别更快
+     *
+     * @param enabled
+     */
+    public void setPyramidDecode(boolean enabled) {
+        mDecoder.setPyramid(enabled);
+    }
+
+    public boolean isPyramidDecode() {
+        return mDecoder.isPyramid();
+    }
+
+    public PyramidStatistics getPyramidStatistics() {
+        return mDecoder.getPyramidStatistics();
+    }
+
+    /**
+     * 设置是否跟踪条码位置：识别到或定位到条码后只识别条码周围的窗口，连续失败3次后恢复识别整个扫描框，
+     * 适合连续扫描时条码在扫描框中缓慢移动的场景
+     *
+     * @param enabled
+     */
+    public void setRoiTracking(boolean enabled) {
+        mDecoder.setRoiTracker(enabled ? new RoiTracker() : null);
+    }
+
+    public boolean isRoiTracking() {
+        return mDecoder.getRoiTracker() != null;
+    }
+
+    /**
+     * 识别参数，默认为全部码制，子类可重写后调用refreshHints()
+     */
     public Map<DecodeHintType, Object> getHints() {
-        Map<DecodeHintType, Object>  hints = new EnumMap<>(DecodeHintType.class);
-        List<BarcodeFormat> allFormats = new ArrayList<>();
-        allFormats.add(BarcodeFormat.AZTEC);
-        allFormats.add(BarcodeFormat.CODABAR);
-        allFormats.add(BarcodeFormat.CODE_39);
-        allFormats.add(BarcodeFormat.CODE_93);
-        allFormats.add(BarcodeFormat.CODE_128);
-        allFormats.add(BarcodeFormat.DATA_MATRIX);
-        allFormats.add(BarcodeFormat.EAN_8);
-        allFormats.add(BarcodeFormat.EAN_13);
-        allFormats.add(BarcodeFormat.ITF);
-        allFormats.add(BarcodeFormat.MAXICODE);
-        allFormats.add(BarcodeFormat.PDF_417);
-        allFormats.add(BarcodeFormat.QR_CODE);
-        allFormats.add(BarcodeFormat.RSS_14);
-        allFormats.add(BarcodeFormat.RSS_EXPANDED);
-        allFormats.add(BarcodeFormat.UPC_A);
-        allFormats.add(BarcodeFormat.UPC_E);
-        allFormats.add(BarcodeFormat.UPC_EAN_EXTENSION);
-
-        hints.put(DecodeHintType.TRY_HARDER, BarcodeFormat.QR_CODE);
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, allFormats);
-        hints.put(DecodeHintType.CHARACTER_SET, "utf-8");
-        return hints;
+        return ZxingFrameProcessor.createHints(isTryHarder);
     }
 
 
     @Override
     public String processData(byte[] data, int width, int height, Rect previewRect) {
-        String result = null;
-        Result rawResult = null;
-
-        try {
-            PlanarYUVLuminanceSource source = null;
-            Rect rect = getScanBoxView().getPreviewRect();
-            if (rect != null) {
-                source = new PlanarYUVLuminanceSource(data, width, height, rect.left, rect.top, rect.width(), rect.height(), false);
-            } else {
-                source = new PlanarYUVLuminanceSource(data, width, height, 0, 0, width, height, false);
-            }
-            rawResult = mMultiFormatReader.decodeWithState(new BinaryBitmap(new HybridBinarizer(source)));
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            mMultiFormatReader.reset();
-        }
+        Rect rect = previewRect != null ? previewRect : new Rect(0, 0, width, height);
+        FrameMetadata metadata = new FrameMetadata(width, height, width, FrameMetadata.FORMAT_Y8, 0);
+        Frame frame = new Frame(data, metadata, System.nanoTime(), 0, rect.left, rect.top, rect.width(), rect.height(), null);
+        Result rawResult = mDecoder.decode(frame);
+        return rawResult != null ? rawResult.getText() : null;
+    }
 
-        if (rawResult != null) {
-            result = rawResult.getText();
-        }
-        return result;
+    @Override
+    public DecodeResult processFrame(Frame frame) {
+        return mFrameProcessor.processFrame(frame);
     }
 }
@@ -0,0 +1,170 @@
+package com.eric.camera.recognition.decode;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 写入帧文件后回放，检查尺寸和亮度数据
+ */
+public class ReplayFrameSourceTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    /*
+     * 行间带填充，检查按行跨度读写
+     */
+    private static final int ROW_STRIDE = 72;
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private File mDirectory;
+    private ReplayFrameSource mSource;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("replay", "");
+        assertTrue(mDirectory.delete());
+        assertTrue(mDirectory.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        if (mSource != null) {
+            mSource.close();
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void replaysWrittenFrames() throws IOException {
+        byte[] first = writeFrame("000", 1);
+        byte[] second = writeFrame("001", 2);
+        mSource = new ReplayFrameSource(mDirectory);
+        assertEquals(2, mSource.getFrameCount());
+        assertFrame(first, mSource.nextFrame());
+        assertFrame(second, mSource.nextFrame());
+        assertNull(mSource.nextFrame());
+        assertTrue(mSource.isFinished());
+    }
+
+    @Test
+    public void preloadedFramesMatchFiles() throws IOException {
+        byte[] first = writeFrame("000", 3);
+        mSource = new ReplayFrameSource(mDirectory, true);
+        mSource.setLoop(true);
+        assertFrame(first, mSource.nextFrame());
+        // 循环回放回到第一帧
+        assertFrame(first, mSource.nextFrame());
+        assertFalse(mSource.isFinished());
+    }
+
+    @Test
+    public void requestFrameDeliversOnReplayThread() throws Exception {
+        byte[] first = writeFrame("000", 4);
+        mSource = new ReplayFrameSource(mDirectory);
+        Frame frame = request();
+        assertFrame(first, frame);
+        assertEquals(FrameMetadata.FORMAT_Y8, mSource.getFrameMetadata().getFormat());
+    }
+
+    @Test
+    public void loopSkipsUnreadableFile() throws Exception {
+        byte[] good = writeFrame("000", 5);
+        writeGarbage("001");
+        mSource = new ReplayFrameSource(mDirectory);
+        mSource.setLoop(true);
+        for (int i = 0; i < 3; i++) {
+            assertFrame(good, request());
+        }
+    }
+
+    @Test
+    public void loopStopsWhenNoFileIsReadable() throws Exception {
+        writeGarbage("000");
+        writeGarbage("001");
+        mSource = new ReplayFrameSource(mDirectory);
+        mSource.setLoop(true);
+        BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(1);
+        mSource.requestFrame(collect(frames));
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!mSource.isFinished() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mSource.isFinished());
+        assertTrue(frames.isEmpty());
+    }
+
+    private Frame request() throws InterruptedException {
+        BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(1);
+        mSource.requestFrame(collect(frames));
+        Frame frame = frames.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertNotNull(frame);
+        return frame;
+    }
+
+    private static FrameSource.FrameCallback collect(final BlockingQueue<Frame> frames) {
+        return new FrameSource.FrameCallback() {
+            @Override
+            public void onFrame(Frame frame) {
+                frames.offer(frame);
+            }
+        };
+    }
+
+    /**
+     * 写入一帧Y8数据，每个像素的值由坐标和seed决定
+     *
+     * @return 写入的数据
+     */
+    private byte[] writeFrame(String name, int seed) throws IOException {
+        byte[] data = new byte[ROW_STRIDE * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < ROW_STRIDE; x++) {
+                data[y * ROW_STRIDE + x] = (byte) (x * 3 + y * 7 + seed * 31);
+            }
+        }
+        FrameMetadata metadata = new FrameMetadata(WIDTH, HEIGHT, ROW_STRIDE, FrameMetadata.FORMAT_Y8, 0);
+        Frame frame = new Frame(data, metadata, 0, 0, 0, 0, WIDTH, HEIGHT, null);
+        FrameFile.write(frame, new File(mDirectory, name + FrameFile.EXTENSION));
+        return data;
+    }
+
+    private void writeGarbage(String name) throws IOException {
+        FileOutputStream out = new FileOutputStream(new File(mDirectory, name + FrameFile.EXTENSION));
+        try {
+            out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void assertFrame(byte[] expected, Frame frame) {
+        assertNotNull(frame);
+        assertEquals(WIDTH, frame.getWidth());
+        assertEquals(HEIGHT, frame.getHeight());
+        assertEquals(ROW_STRIDE, frame.getRowStride());
+        assertEquals(WIDTH, frame.getRoiWidth());
+        assertEquals(HEIGHT, frame.getRoiHeight());
+        assertArrayEquals(expected, frame.getData());
+    }
+}
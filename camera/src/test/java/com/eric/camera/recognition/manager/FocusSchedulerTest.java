@@ -0,0 +1,175 @@
+package com.eric.camera.recognition.manager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用假的相机驱动检查对焦调度的状态变化
+ */
+public class FocusSchedulerTest {
+
+    private FakeDriver mDriver;
+    private FocusScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mDriver = new FakeDriver();
+        mScheduler = new FocusScheduler(mDriver);
+        mScheduler.setMinIntervalMillis(0);
+        mScheduler.setFailuresBeforeFocus(3);
+    }
+
+    @Test
+    public void fixedFocusScansOnStartAndLocks() {
+        mScheduler.start(false);
+        assertEquals(FocusScheduler.State.ACTIVE_SCAN, mScheduler.getState());
+        assertEquals(1, mDriver.starts);
+        assertTrue(mScheduler.isFocusing());
+
+        mScheduler.onAutoFocus(true);
+        assertEquals(FocusScheduler.State.LOCKED, mScheduler.getState());
+        assertFalse(mScheduler.isFocusing());
+        assertEquals(0, mDriver.cancels);
+    }
+
+    @Test
+    public void continuousScanResumesContinuousFocus() {
+        mScheduler.start(true);
+        assertEquals(FocusScheduler.State.CONTINUOUS, mScheduler.getState());
+        assertEquals(0, mDriver.starts);
+
+        assertTrue(mScheduler.focusNow());
+        assertEquals(FocusScheduler.State.ACTIVE_SCAN, mScheduler.getState());
+
+        mScheduler.onAutoFocus(true);
+        // 结束后解除锁定，交还给连续对焦
+        assertEquals(FocusScheduler.State.CONTINUOUS, mScheduler.getState());
+        assertEquals(1, mDriver.cancels);
+    }
+
+    @Test
+    public void overlappingRequestsAreIgnored() {
+        mScheduler.start(false);
+        mScheduler.requestFocus();
+        assertFalse(mScheduler.focusNow());
+        assertEquals(1, mDriver.starts);
+    }
+
+    @Test
+    public void failuresTriggerScan() {
+        mScheduler.start(false);
+        mScheduler.onAutoFocus(true);
+        mScheduler.onDecodeResult(false);
+        mScheduler.onDecodeResult(false);
+        assertEquals(1, mDriver.starts);
+        mScheduler.onDecodeResult(false);
+        assertEquals(2, mDriver.starts);
+        assertEquals(FocusScheduler.State.ACTIVE_SCAN, mScheduler.getState());
+    }
+
+    @Test
+    public void successResetsFailures() {
+        mScheduler.start(false);
+        mScheduler.onAutoFocus(true);
+        mScheduler.onDecodeResult(false);
+        mScheduler.onDecodeResult(false);
+        mScheduler.onDecodeResult(true);
+        mScheduler.onDecodeResult(false);
+        mScheduler.onDecodeResult(false);
+        assertEquals(1, mDriver.starts);
+    }
+
+    @Test
+    public void requestWithinIntervalIsDeferred() {
+        mScheduler.setMinIntervalMillis(60000);
+        mScheduler.start(false);
+        mScheduler.onAutoFocus(true);
+        mScheduler.requestFocus();
+        assertEquals(1, mDriver.starts);
+        assertEquals(FocusScheduler.State.LOCKED, mScheduler.getState());
+
+        // 间隔足够后由下一帧的识别结果执行推迟的对焦
+        mScheduler.setMinIntervalMillis(0);
+        mScheduler.onDecodeResult(false);
+        assertEquals(2, mDriver.starts);
+    }
+
+    @Test
+    public void motionCancelsScanAndStabilityRefocuses() {
+        mScheduler.start(false);
+        mScheduler.onSceneStabilityChanged(false);
+        assertEquals(1, mDriver.cancels);
+        assertEquals(FocusScheduler.State.LOCKED, mScheduler.getState());
+
+        // 运动中的请求推迟到画面静止
+        mScheduler.requestFocus();
+        assertEquals(1, mDriver.starts);
+        mScheduler.onSceneStabilityChanged(true);
+        assertEquals(2, mDriver.starts);
+        assertEquals(FocusScheduler.State.ACTIVE_SCAN, mScheduler.getState());
+    }
+
+    @Test
+    public void passiveScanSkipsFramesAndClearsPendingFocus() {
+        mScheduler.start(true);
+        mScheduler.onFocusMoving(true);
+        assertEquals(FocusScheduler.State.PASSIVE_SCAN, mScheduler.getState());
+        assertTrue(mScheduler.isFocusing());
+
+        mScheduler.requestFocus();
+        mScheduler.onFocusMoving(false);
+        assertEquals(FocusScheduler.State.CONTINUOUS, mScheduler.getState());
+        assertFalse(mScheduler.isFocusing());
+
+        mScheduler.onDecodeResult(false);
+        assertEquals(0, mDriver.starts);
+    }
+
+    @Test
+    public void driverNotReadyRetriesLater() {
+        mDriver.isReady = false;
+        mScheduler.start(false);
+        assertEquals(FocusScheduler.State.LOCKED, mScheduler.getState());
+        assertEquals(1, mDriver.starts);
+
+        mDriver.isReady = true;
+        mScheduler.onDecodeResult(false);
+        assertEquals(2, mDriver.starts);
+        assertEquals(FocusScheduler.State.ACTIVE_SCAN, mScheduler.getState());
+    }
+
+    @Test
+    public void stopIgnoresLateCallbacks() {
+        mScheduler.start(false);
+        mScheduler.stop();
+        assertEquals(FocusScheduler.State.IDLE, mScheduler.getState());
+
+        mScheduler.onAutoFocus(true);
+        mScheduler.requestFocus();
+        mScheduler.onDecodeResult(false);
+        assertEquals(FocusScheduler.State.IDLE, mScheduler.getState());
+        assertEquals(1, mDriver.starts);
+    }
+
+    private static class FakeDriver implements FocusScheduler.FocusDriver {
+
+        int starts = 0;
+        int cancels = 0;
+        boolean isReady = true;
+
+        @Override
+        public boolean startFocus() {
+            starts++;
+            return isReady;
+        }
+
+        @Override
+        public void cancelFocus() {
+            cancels++;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.eric.camera.recognition.manager;
+
+import android.graphics.Point;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 预览尺寸和帧率范围的选择，Point需要Robolectric提供实现
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class PreviewSizePolicyTest {
+
+    private static final int[][] SIZES = {{3840, 2160}, {2560, 1440}, {1920, 1080}, {1440, 1080}, {1280, 960},
+            {1280, 720}, {960, 720}, {960, 540}, {800, 600}, {720, 480}, {640, 480}, {640, 360}, {352, 288},
+            {320, 240}, {176, 144}};
+
+    @Test
+    public void requiredPixelsFollowCodeSize() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        // 95个模块 * 3像素 / 0.8
+        assertEquals(357, policy.getRequiredBoxPixels());
+        policy.setCodeSize(29, 0.5f, 4f);
+        assertEquals(232, policy.getRequiredBoxPixels());
+    }
+
+    @Test
+    public void picksSmallestSizeMeetingRequirement() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        // 扫描框占满1440宽的视图，640x360换算后扫描框内有360像素
+        assertEquals(new Point(640, 360), policy.selectPreviewSize(sizes(), 1440, 2560, 1440));
+        // 扫描框占60%宽度，需要更大的尺寸
+        assertEquals(new Point(1280, 720), policy.selectPreviewSize(sizes(), 1080, 1920, 648));
+    }
+
+    @Test
+    public void landscapeUsesPreviewWidth() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        assertEquals(new Point(960, 540), policy.selectPreviewSize(sizes(), 1920, 1080, 800));
+    }
+
+    @Test
+    public void picksLargestWhenNoneIsSufficient() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        policy.setCodeSize(95, 0.8f, 50f);
+        assertEquals(new Point(3840, 2160), policy.selectPreviewSize(sizes(), 1440, 2560, 1440));
+    }
+
+    @Test
+    public void higherDensityPicksLargerSize() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        policy.setCodeSize(95, 0.8f, 8f);
+        assertEquals(new Point(1920, 1080), policy.selectPreviewSize(sizes(), 1440, 2560, 1440));
+    }
+
+    @Test
+    public void unknownBoxPicksClosestToView() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        assertEquals(new Point(2560, 1440), policy.selectPreviewSize(sizes(), 1440, 2560, 0));
+    }
+
+    @Test
+    public void excludesDistortedAspect() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        // 4:3的640x480面积更小也满足要求，但与16:9屏幕的宽高比相差太大
+        List<Point> sizes = Arrays.asList(new Point(640, 480), new Point(1280, 720));
+        assertEquals(new Point(1280, 720), policy.selectPreviewSize(sizes, 1080, 1920, 1080));
+        policy.setMaxAspectDistortion(0.5f);
+        assertEquals(new Point(640, 480), policy.selectPreviewSize(sizes, 1080, 1920, 1080));
+    }
+
+    @Test
+    public void fallsBackToClosestAspect() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        // 19.5:9的屏幕没有足够接近的尺寸时在16:9中选择，不选4:3
+        assertEquals(new Point(960, 540), policy.selectPreviewSize(sizes(), 1080, 2340, 1080));
+    }
+
+    @Test
+    public void emptyInputIsNull() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        assertNull(policy.selectPreviewSize(Collections.<Point>emptyList(), 1080, 1920, 1080));
+        assertNull(policy.selectPreviewSize(sizes(), 0, 1920, 1080));
+        assertNull(policy.selectFpsRange(Collections.<int[]>emptyList(), 1));
+    }
+
+    @Test
+    public void fpsPrefersReachingMax() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        List<int[]> ranges = Arrays.asList(new int[]{15000, 15000}, new int[]{7000, 30000},
+                new int[]{15000, 30000}, new int[]{30000, 30000}, new int[]{24000, 24000});
+        assertArrayEquals(new int[]{15000, 30000}, policy.selectFpsRange(ranges, 1000));
+    }
+
+    @Test
+    public void fpsPrefersMinClosestToDesired() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        List<int[]> ranges = Arrays.asList(new int[]{7, 30}, new int[]{30, 30}, new int[]{10, 60});
+        assertArrayEquals(new int[]{10, 60}, policy.selectFpsRange(ranges, 1));
+    }
+
+    @Test
+    public void fpsTieBreaksOnHigherMinThenSmallerMax() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        // 最低帧率同样接近15时选较高的，曝光时间短
+        assertArrayEquals(new int[]{20, 30},
+                policy.selectFpsRange(Arrays.asList(new int[]{10, 30}, new int[]{20, 30}), 1));
+        // 最低帧率相同时选最高帧率较低的，省电
+        assertArrayEquals(new int[]{15, 30},
+                policy.selectFpsRange(Arrays.asList(new int[]{15, 60}, new int[]{15, 30}), 1));
+    }
+
+    @Test
+    public void fpsPrefersLargerMaxWhenNoneReaches() {
+        PreviewSizePolicy policy = new PreviewSizePolicy();
+        assertArrayEquals(new int[]{10, 20},
+                policy.selectFpsRange(Arrays.asList(new int[]{5, 15}, new int[]{10, 20}), 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidFpsRange() {
+        new PreviewSizePolicy().setFpsRange(30, 15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCodeFraction() {
+        new PreviewSizePolicy().setCodeSize(95, 1.5f, 3f);
+    }
+
+    private static List<Point> sizes() {
+        List<Point> sizes = new ArrayList<>();
+        for (int[] size : SIZES) {
+            sizes.add(new Point(size[0], size[1]));
+        }
+        return sizes;
+    }
+}
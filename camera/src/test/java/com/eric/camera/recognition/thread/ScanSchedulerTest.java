@@ -0,0 +1,122 @@
+package com.eric.camera.recognition.thread;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 识别间隔随识别耗时、画面状态和连续失败次数变化，并限制在频率范围内
+ */
+public class ScanSchedulerTest {
+
+    private static final long DECODE_NANOS = 100 * 1000000L;
+
+    @Test
+    public void startsFromInitialEstimate() {
+        ScanScheduler scheduler = new ScanScheduler();
+        assertEquals(33, scheduler.getMinIntervalMillis());
+        assertEquals(500, scheduler.getMaxIntervalMillis());
+        assertEquals(100, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void followsAverageDecodeTime() {
+        ScanScheduler scheduler = new ScanScheduler();
+        for (int i = 0; i < 100; i++) {
+            scheduler.onFrameProcessed(60 * 1000000L, true, true, false);
+        }
+        assertEquals(60f, scheduler.getAverageDecodeMillis(), 0.5f);
+        assertEquals(60, scheduler.nextDelayMillis(), 1);
+    }
+
+    @Test
+    public void clampsToRateBounds() {
+        ScanScheduler scheduler = new ScanScheduler();
+        for (int i = 0; i < 100; i++) {
+            scheduler.onFrameProcessed(1000000L, true, true, false);
+        }
+        assertEquals(33, scheduler.nextDelayMillis());
+
+        scheduler.setRateBounds(5f, 10f);
+        assertEquals(100, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void skippedFramesDoNotChangeDecodeTime() {
+        ScanScheduler scheduler = new ScanScheduler();
+        scheduler.onFrameProcessed(DECODE_NANOS / 10, false, false, true);
+        assertEquals(100f, scheduler.getAverageDecodeMillis(), 0f);
+    }
+
+    @Test
+    public void unsteadySceneSlowsDown() {
+        ScanScheduler scheduler = new ScanScheduler();
+        scheduler.onFrameProcessed(DECODE_NANOS, true, false, false);
+        assertEquals(200, scheduler.nextDelayMillis());
+        scheduler.onFrameProcessed(DECODE_NANOS, true, true, false);
+        assertEquals(100, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void failuresBackOffUpToLimit() {
+        ScanScheduler scheduler = new ScanScheduler();
+        fail(scheduler, 15);
+        // 成功率为0时，15次失败放慢到1 + 3 * 15 / 30倍
+        assertEquals(250, scheduler.nextDelayMillis());
+        fail(scheduler, 15);
+        assertEquals(400, scheduler.nextDelayMillis());
+        fail(scheduler, 30);
+        assertEquals(400, scheduler.nextDelayMillis());
+
+        // 叠加画面不稳定时不超过最大间隔
+        scheduler.onFrameProcessed(DECODE_NANOS, false, false, false);
+        assertEquals(500, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void successResetsBackoff() {
+        ScanScheduler scheduler = new ScanScheduler();
+        fail(scheduler, 30);
+        scheduler.onFrameProcessed(DECODE_NANOS, true, true, false);
+        assertEquals(100, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void recentSuccessesReduceBackoff() {
+        ScanScheduler scheduler = new ScanScheduler();
+        for (int i = 0; i < 100; i++) {
+            scheduler.onFrameProcessed(DECODE_NANOS, true, true, false);
+        }
+        fail(scheduler, 1);
+        // 成功率约为0.8，1次失败几乎不放慢
+        assertEquals(0.8f, scheduler.getSuccessRate(), 0.01f);
+        assertEquals(102, scheduler.nextDelayMillis());
+    }
+
+    @Test
+    public void resetClearsFailuresAndKeepsDecodeTime() {
+        ScanScheduler scheduler = new ScanScheduler();
+        for (int i = 0; i < 50; i++) {
+            scheduler.onFrameProcessed(2 * DECODE_NANOS, false, false, false);
+        }
+        assertEquals(500, scheduler.nextDelayMillis());
+        scheduler.reset();
+        assertEquals(200, scheduler.nextDelayMillis(), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvertedRates() {
+        new ScanScheduler(10f, 5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveRate() {
+        new ScanScheduler(0f, 5f);
+    }
+
+    private static void fail(ScanScheduler scheduler, int count) {
+        for (int i = 0; i < count; i++) {
+            scheduler.onFrameProcessed(DECODE_NANOS, false, true, false);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.eric.camera.recognition.utils;
+
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 扫描框换算为相机对焦、测光区域，Rect需要Robolectric提供实现
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RecognitionUtilsTest {
+
+    /*
+     * 竖屏1080x1920视图，扫描框在上半部分中间
+     */
+    private static final Rect BOX = new Rect(140, 400, 940, 800);
+
+    @Test
+    public void mapsUnrotatedRect() {
+        assertEquals(new Rect(-741, -584, 740, -167), RecognitionUtils.mapRectToCameraArea(BOX, 1080, 1920, 0));
+    }
+
+    @Test
+    public void mapsRotatedRectToSensorOrientation() {
+        // 后置摄像头竖屏旋转90度，视图的上方是传感器的左边
+        assertEquals(new Rect(-584, -741, -167, 740), RecognitionUtils.mapRectToCameraArea(BOX, 1080, 1920, 90));
+    }
+
+    @Test
+    public void fullViewMapsToFullArea() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            assertEquals(new Rect(-1000, -1000, 1000, 1000),
+                    RecognitionUtils.mapRectToCameraArea(new Rect(0, 0, 1080, 1920), 1080, 1920, rotation));
+        }
+    }
+
+    @Test
+    public void clampsRectOutsideView() {
+        assertEquals(new Rect(-1000, -1000, 1000, 1000),
+                RecognitionUtils.mapRectToCameraArea(new Rect(-50, -50, 2000, 3000), 1080, 1920, 90));
+        assertEquals(new Rect(-1000, -1000, 0, 1000),
+                RecognitionUtils.mapRectToCameraArea(new Rect(-100, 0, 540, 1920), 1080, 1920, 0));
+    }
+
+    @Test
+    public void rectNotIntersectingViewIsNull() {
+        assertNull(RecognitionUtils.mapRectToCameraArea(new Rect(2000, 0, 3000, 10), 1080, 1920, 90));
+    }
+
+    @Test
+    public void emptyViewIsNull() {
+        assertNull(RecognitionUtils.mapRectToCameraArea(BOX, 0, 1920, 0));
+    }
+
+    @Test
+    public void activeArrayCropsToPreviewAspect() {
+        Rect full = new Rect(-1000, -1000, 1000, 1000);
+        // 4:3传感器输出16:9预览，上下裁掉
+        assertEquals(new Rect(0, 375, 4000, 2625),
+                RecognitionUtils.mapCameraAreaToActiveArray(full, 4000, 3000, 1920, 1080));
+        // 2:1传感器输出4:3预览，左右裁掉
+        assertEquals(new Rect(667, 0, 3333, 2000),
+                RecognitionUtils.mapCameraAreaToActiveArray(full, 4000, 2000, 640, 480));
+        // 宽高比相同时不裁剪
+        assertEquals(new Rect(0, 0, 4000, 3000),
+                RecognitionUtils.mapCameraAreaToActiveArray(full, 4000, 3000, 640, 480));
+    }
+
+    @Test
+    public void activeArrayMapsSubArea() {
+        assertEquals(new Rect(2000, 1500, 3000, 2062),
+                RecognitionUtils.mapCameraAreaToActiveArray(new Rect(0, 0, 500, 500), 4000, 3000, 1920, 1080));
+    }
+}
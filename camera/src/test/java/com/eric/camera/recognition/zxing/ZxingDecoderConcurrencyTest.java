@@ -0,0 +1,207 @@
+package com.eric.camera.recognition.zxing;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 多个识别线程共用一个ZxingDecoder：同时识别内容不同的帧，每个结果都必须对应自己的帧
+ */
+public class ZxingDecoderConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 12;
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void overlappingFramesKeepTheirOwnResults() throws Exception {
+        ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        runStress(decoder, createFrames());
+        // 每次识别独占一个reader，稳定后reader数不超过同时识别的线程数
+        assertTrue(decoder.getCreatedReaderCount() <= THREADS);
+    }
+
+    @Test
+    public void overlappingFramesWithMultiStrategyDecode() throws Exception {
+        ExecutorService raceExecutor = Executors.newFixedThreadPool(THREADS);
+        try {
+            ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+            decoder.setRaceExecutor(raceExecutor);
+            runStress(decoder, createFrames());
+        } finally {
+            raceExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void overlappingFramesWithPyramid() throws Exception {
+        ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        decoder.setPyramid(true);
+        runStress(decoder, createFrames());
+    }
+
+    @Test
+    public void preparedReadersAreReused() throws Exception {
+        ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        decoder.prepareReaders(THREADS);
+        assertEquals(THREADS, decoder.getCreatedReaderCount());
+        runStress(decoder, createFrames());
+        assertEquals(THREADS, decoder.getCreatedReaderCount());
+    }
+
+    @Test
+    public void hintsChangedWhileDecoding() throws Exception {
+        final ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        final List<TestFrame> frames = createFrames();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = submitStress(executor, decoder, frames);
+            for (int i = 0; i < 20; i++) {
+                decoder.setHints(ZxingFrameProcessor.createHints(i % 2 == 0));
+                Thread.sleep(5);
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void runStress(ZxingDecoder decoder, List<TestFrame> frames) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : submitStress(executor, decoder, frames)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 每个线程从不同的位置开始依次识别全部帧，所有线程同时开始，使不同内容的帧交叠识别
+     */
+    private static List<Future<Void>> submitStress(ExecutorService executor, final ZxingDecoder decoder,
+                                                   final List<TestFrame> frames) {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) {
+                        TestFrame frame = frames.get((offset + i) % frames.size());
+                        Result result = decoder.decode(frame.frame);
+                        if (frame.text == null) {
+                            assertNull(result);
+                        } else {
+                            assertNotNull("no result for " + frame.text, result);
+                            assertEquals(frame.text, result.getText());
+                            assertEquals(frame.format, result.getBarcodeFormat());
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        start.countDown();
+        return futures;
+    }
+
+    private static List<TestFrame> createFrames() throws WriterException {
+        List<TestFrame> frames = new ArrayList<>();
+        int[] rotations = {0, 90, 180, 270};
+        for (int i = 0; i < 8; i++) {
+            String text = "frame-" + i;
+            BitMatrix code = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 200, 200);
+            frames.add(new TestFrame(render(code, rotations[i % 4], i % 2 == 1), text, BarcodeFormat.QR_CODE));
+        }
+        String[] eans = {"5901234123457", "4006381333931"};
+        for (int i = 0; i < eans.length; i++) {
+            BitMatrix code = new EAN13Writer().encode(eans[i], BarcodeFormat.EAN_13, 300, 120);
+            frames.add(new TestFrame(render(code, 0, i == 1), eans[i], BarcodeFormat.EAN_13));
+        }
+        frames.add(new TestFrame(render(null, 90, false), null, null));
+        return frames;
+    }
+
+    /**
+     * 条码画在预览方向的图像中央，再按旋转角度换算到原始方向的Y数据
+     */
+    private static Frame render(BitMatrix code, int rotation, boolean direct) {
+        FrameMetadata metadata = new FrameMetadata(WIDTH, HEIGHT, WIDTH, FrameMetadata.FORMAT_Y8, rotation);
+        int uprightWidth = metadata.getUprightWidth();
+        int uprightHeight = metadata.getUprightHeight();
+        byte[] data = new byte[WIDTH * HEIGHT];
+        Arrays.fill(data, (byte) 220);
+        if (code != null) {
+            int left = (uprightWidth - code.getWidth()) / 2;
+            int top = (uprightHeight - code.getHeight()) / 2;
+            for (int y = 0; y < code.getHeight(); y++) {
+                for (int x = 0; x < code.getWidth(); x++) {
+                    if (code.get(x, y)) {
+                        data[sensorIndex(left + x, top + y, rotation)] = 20;
+                    }
+                }
+            }
+        }
+        if (direct) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data);
+            buffer.clear();
+            return new Frame(buffer, metadata, 0, 0, 0, 0, uprightWidth, uprightHeight, null);
+        }
+        return new Frame(data, metadata, 0, 0, 0, 0, uprightWidth, uprightHeight, null);
+    }
+
+    private static int sensorIndex(int x, int y, int rotation) {
+        switch (rotation) {
+            case 90:
+                return (HEIGHT - 1 - x) * WIDTH + y;
+            case 180:
+                return (HEIGHT - 1 - y) * WIDTH + WIDTH - 1 - x;
+            case 270:
+                return x * WIDTH + WIDTH - 1 - y;
+            default:
+                return y * WIDTH + x;
+        }
+    }
+
+    private static class TestFrame {
+        final Frame frame;
+        final String text;
+        final BarcodeFormat format;
+
+        TestFrame(Frame frame, String text, BarcodeFormat format) {
+            this.frame = frame;
+            this.text = text;
+            this.format = format;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.eric.camera.recognition.zxing;
+
+import com.eric.camera.recognition.decode.Frame;
+import com.eric.camera.recognition.decode.FrameMetadata;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.oned.EAN13Writer;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 旋转、缩小策略识别到的坐标要换算回识别区域，与直接识别的坐标一致
+ */
+public class ZxingDecoderStrategyTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    /*
+     * 换算后允许的坐标误差，缩小一半后定位精度约为2个像素
+     */
+    private static final float TOLERANCE = 4f;
+
+    @Test
+    public void rotatedAndDownscaledPointsMatchHybrid() throws WriterException {
+        ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        BitMatrix code = new QRCodeWriter().encode("strategy", BarcodeFormat.QR_CODE, 240, 240);
+        // 识别区域不在帧的原点，且宽高不同
+        Frame frame = render(code, 150, 100, 100, 60, 440, 380);
+        Result hybrid = decoder.decode(ZxingDecoder.Strategy.HYBRID, frame);
+        assertNotNull(hybrid);
+        for (ZxingDecoder.Strategy strategy : new ZxingDecoder.Strategy[]{
+                ZxingDecoder.Strategy.ROTATED_90, ZxingDecoder.Strategy.DOWNSCALED}) {
+            Result result = decoder.decode(strategy, frame);
+            assertNotNull(strategy.name(), result);
+            assertPointsNear(strategy.name(), hybrid.getResultPoints(), result.getResultPoints());
+        }
+    }
+
+    @Test
+    public void raceWonByRotatedStrategyReturnsRoiPoints() throws WriterException {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+            decoder.setRaceExecutor(executor);
+            // 竖放的一维码，只有ROTATED_90策略能识别
+            BitMatrix code = transpose(new EAN13Writer().encode("5901234123457", BarcodeFormat.EAN_13, 300, 100));
+            int codeLeft = 200;
+            int codeTop = 60;
+            int roiLeft = 100;
+            int roiTop = 20;
+            Frame frame = render(code, codeLeft, codeTop, roiLeft, roiTop, 400, 420);
+            Result result = decoder.decode(frame);
+            assertNotNull(result);
+            assertEquals(BarcodeFormat.EAN_13, result.getBarcodeFormat());
+            ResultPoint[] points = result.getResultPoints();
+            assertTrue(points.length >= 2);
+            float left = codeLeft - roiLeft;
+            float top = codeTop - roiTop;
+            for (ResultPoint point : points) {
+                // 条码竖放，点落在条码所在的列范围内，沿条码方向的坐标落在条码的高度范围内
+                assertTrue("x " + point.getX(), point.getX() >= left - TOLERANCE
+                        && point.getX() <= left + code.getWidth() + TOLERANCE);
+                assertTrue("y " + point.getY(), point.getY() >= top - TOLERANCE
+                        && point.getY() <= top + code.getHeight() + TOLERANCE);
+            }
+            // 起止点分别在条码的两端
+            assertTrue(Math.abs(points[points.length - 1].getY() - points[0].getY()) > code.getHeight() / 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void raceReturnsFirstResultWithoutWaitingForOtherStrategies() throws WriterException {
+        // 其他策略提交后不执行，直接识别成功的策略不能等它们结束
+        final List<Runnable> pending = new ArrayList<>();
+        ZxingDecoder decoder = new ZxingDecoder(ZxingFrameProcessor.createHints(false));
+        decoder.setRaceExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pending.add(command);
+            }
+        });
+        BitMatrix code = new QRCodeWriter().encode("first", BarcodeFormat.QR_CODE, 240, 240);
+        Frame frame = render(code, 150, 100, 100, 60, 440, 380);
+        Result result = decoder.decode(frame);
+        assertNotNull(result);
+        assertEquals("first", result.getText());
+        assertEquals(3, pending.size());
+        // 晚到的策略发现已有结果后直接结束，识别区域的副本不受之后的帧影响
+        Arrays.fill(frame.getData(), (byte) 0);
+        for (Runnable runnable : pending) {
+            runnable.run();
+        }
+        assertNotNull(decoder.decode(render(code, 150, 100, 100, 60, 440, 380)));
+    }
+
+    private static void assertPointsNear(String message, ResultPoint[] expected, ResultPoint[] actual) {
+        assertNotNull(message, actual);
+        assertTrue(message, actual.length >= 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(message + " x" + i, expected[i].getX(), actual[i].getX(), TOLERANCE);
+            assertEquals(message + " y" + i, expected[i].getY(), actual[i].getY(), TOLERANCE);
+        }
+    }
+
+    private static BitMatrix transpose(BitMatrix code) {
+        BitMatrix transposed = new BitMatrix(code.getHeight(), code.getWidth());
+        for (int y = 0; y < code.getHeight(); y++) {
+            for (int x = 0; x < code.getWidth(); x++) {
+                if (code.get(x, y)) {
+                    transposed.set(y, x);
+                }
+            }
+        }
+        return transposed;
+    }
+
+    /**
+     * 条码画在(codeLeft, codeTop)，识别区域为(roiLeft, roiTop, roiWidth, roiHeight)，不旋转
+     */
+    private static Frame render(BitMatrix code, int codeLeft, int codeTop,
+                                int roiLeft, int roiTop, int roiWidth, int roiHeight) {
+        byte[] data = new byte[WIDTH * HEIGHT];
+        Arrays.fill(data, (byte) 220);
+        for (int y = 0; y < code.getHeight(); y++) {
+            for (int x = 0; x < code.getWidth(); x++) {
+                if (code.get(x, y)) {
+                    data[(codeTop + y) * WIDTH + codeLeft + x] = 20;
+                }
+            }
+        }
+        FrameMetadata metadata = new FrameMetadata(WIDTH, HEIGHT, WIDTH, FrameMetadata.FORMAT_Y8, 0);
+        return new Frame(data, metadata, 0, 0, roiLeft, roiTop, roiWidth, roiHeight, null);
+    }
+}